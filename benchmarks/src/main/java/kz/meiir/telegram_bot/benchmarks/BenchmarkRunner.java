@@ -0,0 +1,31 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Точка входа {@code benchmarks.jar}: запускает JMH и по умолчанию сохраняет результаты
+ * в {@code jmh-result.json}, чтобы прогоны можно было сравнивать между коммитами.
+ *
+ * <p>Аргументы передаются JMH без изменений; явно заданные {@code -rf} или {@code -rff}
+ * заменяют значения по умолчанию.</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.addAll(List.of("-rf", "json"));
+        }
+        if (!jmhArgs.contains("-rff")) {
+            jmhArgs.addAll(List.of("-rff", "jmh-result.json"));
+        }
+        Main.main(jmhArgs.toArray(String[]::new));
+    }
+}
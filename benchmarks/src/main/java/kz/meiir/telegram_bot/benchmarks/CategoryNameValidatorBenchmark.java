@@ -0,0 +1,55 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import kz.meiir.telegram_bot.validation.CategoryNameValidator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Сравнение проверки названия категории: прежний {@code String.matches}, компилирующий
+ * регулярное выражение на каждый вызов, заранее скомпилированный {@link Pattern}
+ * и посимвольная проверка {@link CategoryNameValidator}.
+ *
+ * <p>Названия взяты типичной длины: короткое, среднее, длинное и недопустимое.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryNameValidatorBenchmark {
+    private static final String REGEX = "[a-zA-Zа-яА-ЯёЁ0-9\\s]+";
+    private static final Pattern PATTERN = Pattern.compile(REGEX);
+
+    @Param({"Книги", "Смартфоны и аксессуары", "Бытовая техника для кухни и дома 2024 Premium Edition", "Книги/Журналы!"})
+    public String name;
+
+    @Benchmark
+    public boolean legacyStringMatches() {
+        return name == null || !name.matches(REGEX);
+    }
+
+    @Benchmark
+    public boolean precompiledPattern() {
+        return name == null || !PATTERN.matcher(name).matches();
+    }
+
+    @Benchmark
+    public boolean scanner() {
+        return CategoryNameValidator.isValidCategoryName(name);
+    }
+
+    @Benchmark
+    public String legacyValidateAndLowerCase() {
+        // Прежний импорт: проверка и отдельное приведение к нижнему регистру
+        String trimmed = name.trim();
+        return trimmed.matches(REGEX) ? trimmed.toLowerCase() : null;
+    }
+
+    @Benchmark
+    public String scannerNormalize() {
+        return CategoryNameValidator.normalize(name);
+    }
+}
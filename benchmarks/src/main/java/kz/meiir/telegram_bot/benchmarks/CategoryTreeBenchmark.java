@@ -0,0 +1,84 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.service.CategoryTreeFormat;
+import kz.meiir.telegram_bot.service.CategoryTreePage;
+import kz.meiir.telegram_bot.service.CategoryTreeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение снимка дерева и вывод дерева командой {@code /viewTree}
+ * на синтетических деревьях разной формы и размера.
+ *
+ * <ul>
+ *     <li>{@code buildSnapshot} — построение {@link CategoryTreeSnapshot} из строк {@code loadTree}
+ *     (старт приложения и перезагрузка кеша);</li>
+ *     <li>{@code renderTree} — текст всего дерева;</li>
+ *     <li>{@code writePlain}, {@code writeJson} — потоковая запись всего дерева в {@link Writer}
+ *     (приёмник отбрасывает текст, поэтому измеряется только обход и форматирование);</li>
+ *     <li>{@code renderFirstPage} — первая страница {@code /viewTree} (разбиение на страницы
+ *     проходит всё дерево);</li>
+ *     <li>{@code find} — поиск {@code /find} по подстроке названия.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class CategoryTreeBenchmark {
+    private static final int PAGE_LIMIT = 4000;
+    private static final int FIND_LIMIT = 20;
+
+    @Param({"WIDE", "DEEP", "BALANCED"})
+    public SyntheticTree.Shape shape;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<CategoryTreeSnapshot.Node> nodes;
+    private CategoryTreeService treeService;
+
+    @Setup
+    public void setUp() {
+        nodes = SyntheticTree.generate(shape, size);
+        treeService = new CategoryTreeService(Stubs.cache(nodes), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public CategoryTreeSnapshot buildSnapshot() {
+        return CategoryTreeSnapshot.of(nodes);
+    }
+
+    @Benchmark
+    public String renderTree() {
+        return treeService.getCategoryTree(Stubs.CHAT_ID);
+    }
+
+    @Benchmark
+    public void writePlain() throws IOException {
+        treeService.writeCategoryTree(Stubs.CHAT_ID, CategoryTreeFormat.PLAIN, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public void writeJson() throws IOException {
+        treeService.writeCategoryTree(Stubs.CHAT_ID, CategoryTreeFormat.JSON, Writer.nullWriter());
+    }
+
+    @Benchmark
+    public CategoryTreePage renderFirstPage() {
+        return treeService.getCategoryTreePage(Stubs.CHAT_ID, null, -1, 0, PAGE_LIMIT);
+    }
+
+    @Benchmark
+    public List<String> find() {
+        return treeService.findCategories(Stubs.CHAT_ID, "ория 99", FIND_LIMIT);
+    }
+}
@@ -0,0 +1,70 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.meiir.telegram_bot.bot.CommandRegistry;
+import kz.meiir.telegram_bot.bot.commands.*;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение поиска обработчика команды: прежний вариант, создававший {@code Map.of(...)}
+ * и новые экземпляры команд на каждое обновление, и {@link CommandRegistry}.
+ *
+ * <p>Измеряется только выбор обработчика (без отправки сообщений), результат — обновлений в секунду.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDispatchBenchmark {
+
+    @Param({"/help", "/viewTree", "/addElement Электроника/Телефоны", "/removeElement@test_bot Книги", "/unknown"})
+    public String text;
+
+    private CommandRegistry registry;
+
+    @Setup
+    public void setUp() {
+        TelegramBotProperties properties = new TelegramBotProperties();
+        properties.setUsername("test_bot");
+        registry = new CommandRegistry(List.of(
+                new StartCommand(null),
+                new ViewTreeCommand(null, null),
+                new HelpCommand(null),
+                new DownloadCommand(null, null, null),
+                new UploadCommand(null, null, null),
+                new AddElementCommand(null, null),
+                new RemoveElementCommand(null, null)), properties, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public Object legacyMapPerUpdate() {
+        Map<String, BotCommand> commandHandlers = Map.of(
+                "/start", new StartCommand(null),
+                "/viewTree", new ViewTreeCommand(null, null),
+                "/help", new HelpCommand(null),
+                "/download", new DownloadCommand(null, null, null),
+                "/upload", new UploadCommand(null, null, null)
+        );
+
+        BotCommand handler = commandHandlers.get(text);
+        if (handler != null) {
+            return handler;
+        }
+        // Прежний код создавал оба обработчика и каждый проверял префикс текста
+        AddElementCommand add = new AddElementCommand(null, null);
+        RemoveElementCommand remove = new RemoveElementCommand(null, null);
+        return text.startsWith("/addElement") ? add : text.startsWith("/removeElement") ? remove : null;
+    }
+
+    @Benchmark
+    public Object registry() {
+        return registry.find(text);
+    }
+}
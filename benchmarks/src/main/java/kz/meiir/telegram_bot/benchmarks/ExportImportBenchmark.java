@@ -0,0 +1,121 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.meiir.telegram_bot.bot.ExportDocumentCache;
+import kz.meiir.telegram_bot.bot.commands.DownloadCommand;
+import kz.meiir.telegram_bot.bot.commands.UploadCommand;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.service.CategoryExportService;
+import kz.meiir.telegram_bot.service.CategoryFileFormat;
+import kz.meiir.telegram_bot.service.CategoryImportService;
+import kz.meiir.telegram_bot.service.InMemoryChatSessionStore;
+import org.openjdk.jmh.annotations.*;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Document;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выгрузка дерева командой {@code /download} и загрузка того же файла командой {@code /upload}.
+ *
+ * <p>Файл для загрузки создаётся выгрузкой синтетического дерева в формате {@code format}.
+ * Каждая загрузка выполняется в пустую базу (заглушку), поэтому все строки файла создают категории.</p>
+ *
+ * <p>{@code download} каждый раз формирует файл; {@code downloadRepeated} выгружает неизменившееся
+ * дерево повторно и отправляет его по {@code file_id} из {@link ExportDocumentCache}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class ExportImportBenchmark {
+    @Param({"WIDE", "DEEP", "BALANCED"})
+    public SyntheticTree.Shape shape;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"XLSX", "CSV", "JSONL"})
+    public CategoryFileFormat format;
+
+    private Stubs.MessageSender messageSender;
+    private Stubs.MessageSender repeatedSender;
+    private DownloadCommand downloadCommand;
+    private DownloadCommand repeatedDownloadCommand;
+    private String arguments;
+    private Path exported;
+    private Update upload;
+    private UploadCommand uploadCommand;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        messageSender = Stubs.messageSender();
+        CategoryExportService exportService = new CategoryExportService(
+                Stubs.cache(SyntheticTree.generate(shape, size)), Stubs.changeRepository(), new SimpleMeterRegistry());
+        // Заглушка не возвращает file_id, поэтому каждая выгрузка формируется заново
+        downloadCommand = new DownloadCommand(exportService,
+                new ExportDocumentCache(new TelegramBotProperties(), new SimpleMeterRegistry()), messageSender);
+        repeatedSender = Stubs.messageSender();
+        repeatedSender.setDocumentFileId("benchmark");
+        repeatedDownloadCommand = new DownloadCommand(exportService,
+                new ExportDocumentCache(new TelegramBotProperties(), new SimpleMeterRegistry()), repeatedSender);
+        arguments = format.extension();
+        repeatedDownloadCommand.execute(Stubs.CHAT_ID, arguments);
+
+        exported = Files.createTempFile("benchmark-", "." + format.extension());
+        try (FileChannel out = FileChannel.open(exported, StandardOpenOption.WRITE)) {
+            exportService.writeTree(Stubs.CHAT_ID, format, out);
+        }
+        messageSender.setDownloadSource(exported);
+        upload = documentUpdate();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyDatabase() {
+        CategoryImportService importService = new CategoryImportService(
+                Stubs.emptyCache(), Stubs.batchRepository(), new SimpleMeterRegistry());
+        uploadCommand = new UploadCommand(importService, messageSender, new InMemoryChatSessionStore());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(exported);
+        messageSender.shutdown();
+        repeatedSender.shutdown();
+    }
+
+    @Benchmark
+    public void download() {
+        downloadCommand.execute(Stubs.CHAT_ID, arguments);
+    }
+
+    @Benchmark
+    public void downloadRepeated() {
+        repeatedDownloadCommand.execute(Stubs.CHAT_ID, arguments);
+    }
+
+    @Benchmark
+    public void upload() {
+        uploadCommand.handleDocument(upload);
+    }
+
+    private static Update documentUpdate() {
+        Document document = new Document();
+        document.setFileId("benchmark");
+        Message message = new Message();
+        message.setChat(new Chat(Stubs.CHAT_ID, "private"));
+        message.setDocument(document);
+        Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+}
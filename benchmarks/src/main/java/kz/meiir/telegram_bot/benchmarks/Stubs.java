@@ -0,0 +1,268 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.model.CategoryChange;
+import kz.meiir.telegram_bot.model.CategoryTreeRow;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.repository.CategoryBatchRepository;
+import kz.meiir.telegram_bot.repository.CategoryChangeRepository;
+import kz.meiir.telegram_bot.repository.CategoryRepository;
+import kz.meiir.telegram_bot.service.CategoryTreeCache;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.objects.Document;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Заглушки базы данных и Telegram API в памяти.
+ *
+ * <p>Бенчмарки измеряют код приложения, а не сеть и PostgreSQL: репозитории возвращают
+ * заранее сгенерированные данные, а отправитель сообщений только считает вызовы.</p>
+ */
+public final class Stubs {
+    /**
+     * Чат, дерево которого загружается в кеш заранее.
+     */
+    public static final long CHAT_ID = 1L;
+
+    private Stubs() {
+    }
+
+    /**
+     * Создаёт кеш над заглушкой {@link CategoryRepository} и загружает в него дерево чата {@link #CHAT_ID}.
+     *
+     * @param nodes узлы дерева (одинаковые для любого чата).
+     * @return кеш с деревом.
+     */
+    public static CategoryTreeCache cache(List<CategoryTreeSnapshot.Node> nodes) {
+        List<CategoryTreeRow> rows = nodes.stream().<CategoryTreeRow>map(Row::new).toList();
+        CategoryRepository repository = (CategoryRepository) Proxy.newProxyInstance(
+                CategoryRepository.class.getClassLoader(), new Class<?>[]{CategoryRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("loadTree")) {
+                        return rows;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        CategoryTreeCache cache = new CategoryTreeCache(repository, changeRepository(), event -> {
+        }, new TelegramBotProperties());
+        cache.snapshot(CHAT_ID);
+        return cache;
+    }
+
+    /**
+     * Создаёт кеш, в котором дерево любого чата пусто.
+     *
+     * @return пустой кеш.
+     */
+    public static CategoryTreeCache emptyCache() {
+        return cache(List.of());
+    }
+
+    /**
+     * Создаёт заглушку журнала изменений: позиция всегда нулевая, изменений нет.
+     *
+     * @return журнал изменений.
+     */
+    public static CategoryChangeRepository changeRepository() {
+        return new ChangeRepository();
+    }
+
+    /**
+     * Создаёт заглушку пакетного репозитория: идентификаторы выделяются из счётчика,
+     * вставка только считает строки.
+     *
+     * @return репозиторий.
+     */
+    public static BatchRepository batchRepository() {
+        return new BatchRepository();
+    }
+
+    /**
+     * Создаёт отправителя, который не обращается к Telegram.
+     *
+     * @return отправитель.
+     */
+    public static MessageSender messageSender() {
+        TelegramBotProperties properties = new TelegramBotProperties();
+        properties.setToken("0:benchmark");
+        return new MessageSender(properties);
+    }
+
+    private record Row(CategoryTreeSnapshot.Node node) implements CategoryTreeRow {
+        @Override
+        public Long getId() {
+            return node.id();
+        }
+
+        @Override
+        public Long getParentId() {
+            return node.parentId();
+        }
+
+        @Override
+        public String getName() {
+            return node.name();
+        }
+
+        @Override
+        public Integer getDepth() {
+            return 0;
+        }
+    }
+
+    /**
+     * Журнал изменений без базы данных.
+     */
+    private static final class ChangeRepository extends CategoryChangeRepository {
+        private ChangeRepository() {
+            super(null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public long currentPosition() {
+            return 0;
+        }
+
+        @Override
+        public List<CategoryChange> findChanges(long position) {
+            return List.of();
+        }
+
+        @Override
+        public List<CategoryChange> findChanges(long chatId, long from, long to) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Пакетный репозиторий без базы данных.
+     */
+    public static final class BatchRepository extends CategoryBatchRepository {
+        private final AtomicLong sequence = new AtomicLong();
+        private final LongAdder inserted = new LongAdder();
+
+        private BatchRepository() {
+            super(null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public long[] allocateIds(int count) {
+            long first = sequence.getAndAdd(count) + 1;
+            long[] ids = new long[count];
+            for (int i = 0; i < count; i++) {
+                ids[i] = first + i;
+            }
+            return ids;
+        }
+
+        @Override
+        public boolean[] insertBatch(long chatId, List<NewCategory> categories) {
+            inserted.add(categories.size());
+            boolean[] result = new boolean[categories.size()];
+            Arrays.fill(result, true);
+            return result;
+        }
+
+        /**
+         * @return количество «вставленных» строк.
+         */
+        public long inserted() {
+            return inserted.sum();
+        }
+    }
+
+    /**
+     * Отправитель сообщений без сети: вызовы считаются и сразу завершаются.
+     */
+    public static final class MessageSender extends TelegramMessageSender {
+        private final LongAdder sent = new LongAdder();
+        private volatile Path downloadSource;
+        private volatile String documentFileId;
+
+        private MessageSender(TelegramBotProperties properties) {
+            super(properties, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public CompletableFuture<Message> sendMessage(Long chatId, String text, ReplyKeyboard replyMarkup) {
+            sent.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Message> sendDocument(Long chatId, File file, String fileName) {
+            sent.increment();
+            if (documentFileId == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            Document document = new Document();
+            document.setFileId(documentFileId);
+            Message message = new Message();
+            message.setDocument(document);
+            return CompletableFuture.completedFuture(message);
+        }
+
+        @Override
+        public CompletableFuture<Message> sendDocument(Long chatId, String fileId) {
+            sent.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public <T extends Serializable> CompletableFuture<T> execute(Long chatId, BotApiMethod<T> method) {
+            sent.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        /**
+         * Задаёт {@code file_id}, который будет «возвращён» в ответ на отправку файла.
+         *
+         * @param fileId идентификатор или {@code null}, чтобы не возвращать документ.
+         */
+        public void setDocumentFileId(String fileId) {
+            this.documentFileId = fileId;
+        }
+
+        /**
+         * Задаёт файл, который будет «скачан» вместо файла из Telegram.
+         *
+         * @param file файл на диске.
+         */
+        public void setDownloadSource(Path file) {
+            this.downloadSource = file;
+        }
+
+        @Override
+        public InputStream downloadFile(String fileId) {
+            try {
+                return Files.newInputStream(downloadSource);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * @return количество «отправленных» запросов.
+         */
+        public long sent() {
+            return sent.sum();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Генератор синтетических деревьев категорий для бенчмарков.
+ *
+ * <p>Узлы создаются в порядке возрастания идентификаторов, родитель всегда предшествует
+ * потомкам — как в выгрузке {@code loadTree}. Названия уникальны и уже нормализованы.</p>
+ */
+public final class SyntheticTree {
+
+    /**
+     * Форма дерева.
+     */
+    public enum Shape {
+        /** 10 корней, все остальные узлы — их прямые потомки (глубина 1). */
+        WIDE,
+        /** Цепочки глубиной до 1000 узлов. */
+        DEEP,
+        /** Сбалансированное дерево: у каждого узла 10 потомков. */
+        BALANCED
+    }
+
+    private static final int WIDE_ROOTS = 10;
+    private static final int DEEP_CHAIN = 1000;
+    private static final int BALANCED_FANOUT = 10;
+
+    private SyntheticTree() {
+    }
+
+    /**
+     * Строит дерево заданной формы.
+     *
+     * @param shape форма дерева.
+     * @param size  количество узлов.
+     * @return узлы дерева.
+     */
+    public static List<CategoryTreeSnapshot.Node> generate(Shape shape, int size) {
+        List<CategoryTreeSnapshot.Node> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long id = i + 1;
+            Long parentId = switch (shape) {
+                case WIDE -> i < WIDE_ROOTS ? null : (long) (i % WIDE_ROOTS) + 1;
+                case DEEP -> i % DEEP_CHAIN == 0 ? null : id - 1;
+                case BALANCED -> i == 0 ? null : (long) ((i - 1) / BALANCED_FANOUT) + 1;
+            };
+            nodes.add(new CategoryTreeSnapshot.Node(id, parentId, "категория " + id));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,93 @@
+package kz.meiir.telegram_bot.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.meiir.telegram_bot.bot.CommandRegistry;
+import kz.meiir.telegram_bot.bot.UpdateDispatcher;
+import kz.meiir.telegram_bot.bot.UpdateHandler;
+import kz.meiir.telegram_bot.bot.commands.HelpCommand;
+import kz.meiir.telegram_bot.bot.commands.UploadCommand;
+import kz.meiir.telegram_bot.bot.commands.ViewTreeCommand;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.service.InMemoryChatSessionStore;
+import org.openjdk.jmh.annotations.*;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.MessageEntity;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность приёма обновлений: {@link UpdateHandler} (дедупликация, очередь
+ * {@link UpdateDispatcher}, поиск команды) и выполнение {@code /help} с заглушкой отправителя.
+ *
+ * <p>Одна операция — пакет из {@value #BATCH} обновлений от {@code chats} разных чатов;
+ * замер заканчивается, когда все обновления пакета обработаны.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateDispatchBenchmark {
+    private static final int BATCH = 1000;
+
+    @Param({"1", "100", "1000"})
+    public int chats;
+
+    private UpdateDispatcher dispatcher;
+    private UpdateHandler handler;
+    private Stubs.MessageSender messageSender;
+    private int nextUpdateId;
+
+    @Setup
+    public void setUp() {
+        TelegramBotProperties properties = new TelegramBotProperties();
+        properties.setUsername("test_bot");
+        properties.setMaxPendingUpdates(BATCH);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        messageSender = Stubs.messageSender();
+        ViewTreeCommand viewTreeCommand = new ViewTreeCommand(null, messageSender);
+        UploadCommand uploadCommand = new UploadCommand(null, messageSender, new InMemoryChatSessionStore());
+        CommandRegistry commandRegistry = new CommandRegistry(
+                List.of(new HelpCommand(messageSender), viewTreeCommand, uploadCommand), properties, registry);
+        dispatcher = new UpdateDispatcher(properties, registry);
+        handler = new UpdateHandler(properties, commandRegistry, uploadCommand, viewTreeCommand,
+                dispatcher, messageSender, registry);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dispatcher.shutdown();
+        messageSender.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void help() throws InterruptedException {
+        for (int i = 0; i < BATCH; i++) {
+            handler.handle(command(i % chats, "/help"));
+        }
+        while (dispatcher.getPendingCount() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Создаёт сообщение с командой. Каждое обновление получает новый {@code update_id},
+     * иначе оно будет отброшено как повторная доставка.
+     */
+    private Update command(long chatId, String text) {
+        Message message = new Message();
+        message.setChat(new Chat(chatId, "private"));
+        message.setText(text);
+        message.setEntities(List.of(new MessageEntity("bot_command", 0, text.length())));
+        Update update = new Update();
+        update.setUpdateId(++nextUpdateId);
+        update.setMessage(message);
+        return update;
+    }
+}
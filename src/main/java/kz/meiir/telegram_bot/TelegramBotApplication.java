@@ -15,7 +15,8 @@ import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
  * <ul>
  *     <li>Запускает Spring Boot приложение и инициализирует контекст приложения.</li>
  *     <li>Создаёт объект {@link TelegramBotsApi} для работы с Telegram API.</li>
- *     <li>Регистрирует бота с помощью конфигурации {@link TelegramBotConfig}.</li>
+ *     <li>Регистрирует бота с помощью конфигурации {@link TelegramBotConfig}, если включён режим
+ *     long polling. В режиме webhook обновления принимает HTTP-обработчик приложения.</li>
  * </ul>
  * </p>
  *
@@ -28,11 +29,17 @@ public class TelegramBotApplication {
 	public static void main(String[] args) {
 		ApplicationContext applicationContext= SpringApplication.run(TelegramBotApplication.class, args);
 
+		// В режиме webhook компонент long polling не создаётся
+		TelegramBotConfig bot = applicationContext.getBeanProvider(TelegramBotConfig.class).getIfAvailable();
+		if (bot == null) {
+			return;
+		}
+
 		try {
 			// Создание API для работы с Telegram Bots
 			TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
 			// Регистрация бота
-			botsApi.registerBot(applicationContext.getBean(TelegramBotConfig.class));
+			botsApi.registerBot(bot);
 		} catch (TelegramApiException e) {
 			// Обработка исключений при регистрации бота
 			e.printStackTrace();
@@ -0,0 +1,94 @@
+package kz.meiir.telegram_bot.bot;
+
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Распределение чатов между экземплярами бота в режиме webhook.
+ *
+ * <h2>Описание:</h2>
+ * Каждый чат закреплён ровно за одним узлом из {@code telegram.bot.cluster-nodes}, поэтому
+ * обновления одного чата выполняются последовательно на одном узле, а локальные очереди
+ * {@link UpdateDispatcher} и окно дедупликации остаются корректными без координации.
+ * Узел-владелец выбирается rendezvous-хешированием: каждый узел вычисляет его одинаково,
+ * без лидера и обмена состоянием, а при добавлении или удалении узла переезжают только
+ * чаты этого узла.
+ *
+ * <p>Если список узлов пуст, все чаты обрабатываются локально.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Component
+public class ChatPartitioner {
+    private final List<String> nodes;
+    private final long[] nodeSeeds;
+    private final int self;
+
+    /**
+     * Конструктор распределителя.
+     *
+     * @param botProperties свойства бота (список узлов и адрес текущего узла).
+     * @throws IllegalStateException если текущий узел не входит в список узлов.
+     */
+    public ChatPartitioner(TelegramBotProperties botProperties) {
+        this.nodes = botProperties.getClusterNodes().stream().map(ChatPartitioner::baseUrl).toList();
+        this.nodeSeeds = nodes.stream().mapToLong(ChatPartitioner::seed).toArray();
+
+        String selfUrl = botProperties.getClusterSelf() == null ? null : baseUrl(botProperties.getClusterSelf());
+        this.self = nodes.indexOf(selfUrl);
+        if (!nodes.isEmpty() && self < 0) {
+            throw new IllegalStateException("telegram.bot.cluster-self (" + selfUrl
+                    + ") должен входить в telegram.bot.cluster-nodes " + nodes);
+        }
+    }
+
+    /**
+     * Определяет узел, который обрабатывает чат.
+     *
+     * @param chatId идентификатор чата.
+     * @return базовый адрес узла-владельца или {@code null}, если чат обрабатывается текущим узлом.
+     */
+    public String ownerOf(long chatId) {
+        if (nodes.size() <= 1) {
+            return null;
+        }
+        int owner = 0;
+        long best = Long.MIN_VALUE;
+        for (int i = 0; i < nodeSeeds.length; i++) {
+            long score = mix(chatId ^ nodeSeeds[i]);
+            if (score > best) {
+                best = score;
+                owner = i;
+            }
+        }
+        return owner == self ? null : nodes.get(owner);
+    }
+
+    private static String baseUrl(String url) {
+        return url.trim().replaceAll("/+$", "");
+    }
+
+    /**
+     * 64-битный FNV-1a хеш адреса узла.
+     */
+    private static long seed(String node) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Финализатор SplitMix64: равномерно перемешивает биты пары (чат, узел).
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,187 @@
+package kz.meiir.telegram_bot.bot;
+
+import kz.meiir.telegram_bot.bot.commands.BotCommand;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.utils.OutcomeTimers;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Реестр команд Telegram-бота.
+ *
+ * <p>Все реализации {@link BotCommand} обнаруживаются Spring и регистрируются один раз
+ * при создании реестра. Поиск команды выполняется по неизменяемой хеш-таблице с
+ * открытой адресацией: хеш вычисляется прямо по символам исходного текста, поэтому
+ * разбор команды не создаёт промежуточных строк.</p>
+ *
+ * <h2>Поддерживаемый формат:</h2>
+ * <pre>
+ * /команда
+ * /команда параметры
+ * /команда@имя_бота параметры
+ * </pre>
+ * Команды, адресованные другому боту (например, в групповых чатах), игнорируются.
+ *
+ * <h2>Метрики:</h2>
+ * <ul>
+ *     <li><strong>telegram.command</strong>: Время выполнения команды с тегами
+ *     {@code command}, {@code outcome} и {@code exception}.</li>
+ *     <li><strong>telegram.command.unknown</strong>: Количество нераспознанных команд.</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Component
+public class CommandRegistry {
+    private final BotCommand[] table;
+    private final int mask;
+    private final TelegramBotProperties botProperties;
+    private final MeterRegistry meterRegistry;
+    private final Counter unknownCommands;
+    private final OutcomeTimers commandTimers;
+
+    /**
+     * Конструктор реестра.
+     *
+     * @param commands      все команды, зарегистрированные в контексте Spring.
+     * @param botProperties свойства бота (имя бота используется для проверки упоминаний).
+     * @param meterRegistry реестр метрик.
+     */
+    public CommandRegistry(List<BotCommand> commands, TelegramBotProperties botProperties,
+                           MeterRegistry meterRegistry) {
+        this.botProperties = botProperties;
+        this.meterRegistry = meterRegistry;
+        this.unknownCommands = meterRegistry.counter("telegram.command.unknown");
+        this.commandTimers = new OutcomeTimers(meterRegistry, "telegram.command", "command");
+        int capacity = Integer.highestOneBit(Math.max(1, commands.size()) * 4);
+        this.table = new BotCommand[capacity];
+        this.mask = capacity - 1;
+
+        for (BotCommand command : commands) {
+            String name = command.getName();
+            int slot = hash(name, name.length()) & mask;
+            while (table[slot] != null) {
+                if (table[slot].getName().equals(name)) {
+                    throw new IllegalStateException("Команда " + name + " зарегистрирована дважды");
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = command;
+        }
+    }
+
+    /**
+     * Выполняет команду, содержащуюся в тексте сообщения.
+     *
+     * @param chatId идентификатор чата, из которого пришла команда.
+     * @param text   полный текст сообщения.
+     * @return {@code true}, если команда найдена и выполнена, иначе {@code false}.
+     */
+    public boolean execute(Long chatId, String text) {
+        BotCommand command = find(text);
+        if (command == null) {
+            unknownCommands.increment();
+            return false;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        RuntimeException error = null;
+        try {
+            command.execute(chatId, arguments(text));
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            sample.stop(commandTimers.timer(command.getName(), error));
+        }
+        return true;
+    }
+
+    /**
+     * Находит команду по тексту сообщения.
+     *
+     * @param text полный текст сообщения (например, {@code "/addElement@my_bot Книги"}).
+     * @return найденная команда или {@code null}, если команда не распознана
+     *         либо адресована другому боту.
+     */
+    public BotCommand find(String text) {
+        if (text == null || text.isEmpty() || text.charAt(0) != '/') {
+            return null;
+        }
+
+        int end = commandEnd(text);
+        if (!isAddressedToBot(text, end)) {
+            return null;
+        }
+
+        for (int slot = hash(text, end) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            String name = table[slot].getName();
+            if (name.length() == end && text.regionMatches(0, name, 0, end)) {
+                return table[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Возвращает параметры команды: текст после имени команды и упоминания бота.
+     *
+     * @param text полный текст сообщения.
+     * @return параметры без начальных и конечных пробелов или пустая строка.
+     */
+    public static String arguments(String text) {
+        int start = 0;
+        while (start < text.length() && !Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start == text.length() ? "" : text.substring(start).trim();
+    }
+
+    /**
+     * Проверяет, адресована ли команда этому боту.
+     *
+     * @param text полный текст сообщения.
+     * @return {@code false}, если команда содержит упоминание другого бота ({@code /cmd@other_bot}).
+     */
+    public boolean isAddressedToBot(String text) {
+        return text != null && !text.isEmpty() && isAddressedToBot(text, commandEnd(text));
+    }
+
+    private boolean isAddressedToBot(String text, int commandEnd) {
+        String username = botProperties.getUsername();
+        if (commandEnd == text.length() || text.charAt(commandEnd) != '@' || username == null) {
+            return true;
+        }
+        int from = commandEnd + 1;
+        int end = from;
+        while (end < text.length() && !Character.isWhitespace(text.charAt(end))) {
+            end++;
+        }
+        return end - from == username.length() && text.regionMatches(true, from, username, 0, username.length());
+    }
+
+    private static int commandEnd(String text) {
+        int end = 1;
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            if (c == '@' || Character.isWhitespace(c)) {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    private static int hash(String text, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,142 @@
+package kz.meiir.telegram_bot.bot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.service.CategoryExportResult;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Кеш отправленных выгрузок дерева категорий.
+ *
+ * <h2>Описание:</h2>
+ * Для каждого чата и формата запоминается последняя отправленная выгрузка: номер содержимого
+ * дерева, из которого она сформирована, итоги выгрузки и {@code file_id}, который Telegram вернул
+ * в ответ на отправку файла. Пока номер содержимого не изменился, повторная выгрузка отправляется
+ * по {@code file_id}: файл не формируется и не загружается заново.
+ *
+ * <ul>
+ *     <li>Запись появляется сразу после начала отправки файла; запросы, пришедшие во время
+ *     загрузки, дожидаются её и отправляют тот же {@code file_id}.</li>
+ *     <li>Если отправка не удалась или Telegram не вернул документ, запись удаляется.</li>
+ *     <li>Хранится не больше {@code telegram.bot.export-cache-capacity} записей; при переполнении
+ *     вытесняется запись, к которой дольше всех не обращались. Сами файлы удаляются после
+ *     отправки, поэтому запись занимает несколько десятков байт.</li>
+ * </ul>
+ *
+ * <p>Обращения записываются в счётчик {@code category.export.cache} с тегом {@code result}
+ * ({@code hit} или {@code miss}).</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Component
+public class ExportDocumentCache {
+    private final Map<Key, Document> documents;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Конструктор кеша.
+     *
+     * @param botProperties свойства бота (количество записей).
+     * @param meterRegistry реестр метрик.
+     */
+    public ExportDocumentCache(TelegramBotProperties botProperties, MeterRegistry meterRegistry) {
+        int capacity = botProperties.getExportCacheCapacity();
+        this.documents = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Document> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.hits = meterRegistry.counter("category.export.cache", "result", "hit");
+        this.misses = meterRegistry.counter("category.export.cache", "result", "miss");
+    }
+
+    /**
+     * Возвращает выгрузку, сформированную из указанного содержимого дерева.
+     *
+     * @param chatId  идентификатор чата.
+     * @param format  формат выгрузки.
+     * @param version номер содержимого дерева.
+     * @return отправленная (или отправляемая) выгрузка либо {@code null}, если её нет.
+     */
+    public Document get(long chatId, String format, long version) {
+        Document document;
+        synchronized (documents) {
+            document = documents.get(new Key(chatId, format));
+        }
+        if (document == null || document.version() != version) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return document;
+    }
+
+    /**
+     * Запоминает отправку выгрузки. Заменяет выгрузку того же чата и формата из более старого содержимого.
+     *
+     * @param chatId  идентификатор чата.
+     * @param format  формат выгрузки.
+     * @param version номер содержимого дерева, полученный до формирования файла.
+     * @param result  итоги выгрузки.
+     * @param sent    результат отправки файла.
+     */
+    public void put(long chatId, String format, long version, CategoryExportResult result,
+                    CompletableFuture<Message> sent) {
+        Key key = new Key(chatId, format);
+        Document document = new Document(version, result, sent.thenApply(ExportDocumentCache::fileId));
+        synchronized (documents) {
+            documents.put(key, document);
+        }
+        document.fileId().whenComplete((fileId, error) -> {
+            if (error != null) {
+                remove(key, document);
+            }
+        });
+    }
+
+    /**
+     * Удаляет выгрузку, если она всё ещё сохранена (например, Telegram отклонил её {@code file_id}).
+     *
+     * @param chatId   идентификатор чата.
+     * @param format   формат выгрузки.
+     * @param document выгрузка, полученная из {@link #get}.
+     */
+    public void evict(long chatId, String format, Document document) {
+        remove(new Key(chatId, format), document);
+    }
+
+    private void remove(Key key, Document document) {
+        synchronized (documents) {
+            documents.remove(key, document);
+        }
+    }
+
+    private static String fileId(Message message) {
+        if (message == null || message.getDocument() == null) {
+            throw new IllegalStateException("Telegram не вернул документ в ответе на отправку");
+        }
+        return message.getDocument().getFileId();
+    }
+
+    private record Key(long chatId, String format) {
+    }
+
+    /**
+     * Отправленная выгрузка.
+     *
+     * @param version номер содержимого дерева, из которого сформирован файл.
+     * @param result  итоги выгрузки.
+     * @param fileId  {@code file_id} файла; завершается, когда Telegram примет файл.
+     */
+    public record Document(long version, CategoryExportResult result, CompletableFuture<String> fileId) {
+    }
+}
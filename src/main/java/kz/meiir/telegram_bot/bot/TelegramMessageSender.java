@@ -0,0 +1,340 @@
+package kz.meiir.telegram_bot.bot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.utils.OutcomeTimers;
+import kz.meiir.telegram_bot.utils.TokenBucket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultAbsSender;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.GetFile;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронная отправка сообщений в Telegram с учётом ограничений Bot API.
+ *
+ * <h2>Описание:</h2>
+ * Все исходящие вызовы проходят через этот компонент. Вызов не блокирует
+ * обработчик команды: метод сразу возвращает {@link CompletableFuture}, а сам запрос
+ * выполняется через {@code executeAsync} в момент, разрешённый ограничителями.
+ *
+ * <h2>Ограничения:</h2>
+ * <ul>
+ *     <li>Глобальный лимит на все чаты ({@code telegram.bot.global-messages-per-second}, по умолчанию 30/с).</li>
+ *     <li>Лимит на личный чат ({@code telegram.bot.chat-messages-per-second}, по умолчанию 1/с).</li>
+ *     <li>Лимит на групповой чат ({@code telegram.bot.group-messages-per-minute}, по умолчанию 20/мин).</li>
+ * </ul>
+ * Сначала определяется момент, разрешённый лимитом чата, и глобальное разрешение резервируется
+ * на этот момент или позже ({@link TokenBucket#reserve(TokenBucket)}): разрешение, взятое «на сейчас»
+ * для сообщения, которое лимит чата отложил, пропало бы, а отложенные сообщения превысили бы
+ * глобальный лимит позже.
+ * Ответы на нажатия кнопок ({@link AnswerCallbackQuery}) не являются сообщениями в чат и учитываются
+ * только глобальным лимитом: иначе ответ занимал бы разрешение чата, и следующее за ним
+ * редактирование страницы ждало бы ещё секунду.
+ *
+ * <h2>Повторные попытки:</h2>
+ * При ответе 429 запрос повторяется через время {@code retry_after}, указанное Telegram, и на то же
+ * время приостанавливается глобальный лимит: ограничение Telegram действует на весь бот, а не на один запрос;
+ * при ошибках сервера (5xx) и сетевых ошибках — с экспоненциальной задержкой.
+ * Количество попыток ограничено {@code telegram.bot.max-send-retries}.
+ *
+ * <h2>Метрики:</h2>
+ * <ul>
+ *     <li><strong>telegram.api</strong>: Время каждой попытки вызова Bot API с тегами
+ *     {@code method}, {@code outcome} и {@code exception}.</li>
+ *     <li><strong>telegram.api.throttle</strong>: Задержка, внесённая ограничителями частоты.</li>
+ *     <li><strong>telegram.api.retries</strong>: Количество повторных попыток по методам.</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class TelegramMessageSender {
+    private static final long BASE_BACKOFF_MILLIS = 500;
+
+    private final TelegramBotProperties botProperties;
+    private final MeterRegistry meterRegistry;
+    private final Timer throttleTimer;
+    private final OutcomeTimers apiTimers;
+    private final DefaultAbsSender client;
+    private final TokenBucket globalLimit;
+    private final Map<Long, TokenBucket> chatLimits = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("telegram-sender").daemon().factory());
+
+    /**
+     * Конструктор отправителя.
+     *
+     * @param botProperties свойства бота (токен и лимиты отправки).
+     * @param meterRegistry реестр метрик.
+     */
+    public TelegramMessageSender(TelegramBotProperties botProperties, MeterRegistry meterRegistry) {
+        this.botProperties = botProperties;
+        this.meterRegistry = meterRegistry;
+        this.throttleTimer = Timer.builder("telegram.api.throttle")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.apiTimers = new OutcomeTimers(meterRegistry, "telegram.api", "method");
+
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setMaxThreads(botProperties.getSenderThreads());
+        this.client = new DefaultAbsSender(options, botProperties.getToken()) {
+        };
+        this.globalLimit = new TokenBucket(botProperties.getGlobalMessagesPerSecond(),
+                (int) botProperties.getGlobalMessagesPerSecond());
+
+        scheduler.scheduleWithFixedDelay(this::removeIdleChatLimits, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Отправляет текстовое сообщение в указанный чат.
+     *
+     * @param chatId ID чата, в который будет отправлено сообщение
+     * @param text   текст сообщения
+     * @return результат отправки
+     */
+    public CompletableFuture<Message> sendMessage(Long chatId, String text) {
+        return sendMessage(chatId, text, null);
+    }
+
+    /**
+     * Отправляет текстовое сообщение с клавиатурой в указанный чат.
+     *
+     * @param chatId      ID чата, в который будет отправлено сообщение
+     * @param text        текст сообщения
+     * @param replyMarkup клавиатура или {@code null}
+     * @return результат отправки
+     */
+    public CompletableFuture<Message> sendMessage(Long chatId, String text, ReplyKeyboard replyMarkup) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        message.setReplyMarkup(replyMarkup);
+        return execute(chatId, message);
+    }
+
+    /**
+     * Отправляет документ в указанный чат.
+     *
+     * <p>Файл должен существовать до завершения возвращённого {@link CompletableFuture}.</p>
+     *
+     * @param chatId   ID чата, в который будет отправлен документ
+     * @param file     файл на диске
+     * @param fileName имя файла, которое увидит получатель
+     * @return результат отправки
+     */
+    public CompletableFuture<Message> sendDocument(Long chatId, File file, String fileName) {
+        SendDocument sendDocument = new SendDocument();
+        sendDocument.setChatId(chatId.toString());
+        sendDocument.setDocument(new InputFile(file, fileName));
+        return submit(chatId, true, SendDocument.PATH, () -> client.executeAsync(sendDocument), 0,
+                new CompletableFuture<>());
+    }
+
+    /**
+     * Повторно отправляет документ, уже загруженный в Telegram, по его {@code file_id}.
+     * Содержимое файла не передаётся.
+     *
+     * @param chatId ID чата, в который будет отправлен документ
+     * @param fileId {@code file_id} из ответа на предыдущую отправку документа
+     * @return результат отправки
+     */
+    public CompletableFuture<Message> sendDocument(Long chatId, String fileId) {
+        SendDocument sendDocument = new SendDocument();
+        sendDocument.setChatId(chatId.toString());
+        sendDocument.setDocument(new InputFile(fileId));
+        return submit(chatId, true, SendDocument.PATH, () -> client.executeAsync(sendDocument), 0,
+                new CompletableFuture<>());
+    }
+
+    /**
+     * Выполняет произвольный метод Bot API, адресованный чату, с учётом ограничений.
+     *
+     * @param chatId ID чата, к которому относится запрос
+     * @param method метод Bot API
+     * @param <T>    тип результата
+     * @return результат выполнения
+     */
+    public <T extends Serializable> CompletableFuture<T> execute(Long chatId, BotApiMethod<T> method) {
+        boolean chatLimited = !(method instanceof AnswerCallbackQuery);
+        return submit(chatId, chatLimited, method.getMethod(), () -> {
+            try {
+                return client.executeAsync(method);
+            } catch (TelegramApiException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }, 0, new CompletableFuture<>());
+    }
+
+    /**
+     * Получает входной поток файла по его ID.
+     *
+     * @param fileId ID файла
+     * @return входной поток для чтения файла
+     * @throws TelegramApiException если произошла ошибка при вызове Telegram API
+     */
+    public InputStream downloadFile(String fileId) throws TelegramApiException {
+        GetFile getFile = new GetFile();
+        getFile.setFileId(fileId);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        TelegramApiException error = null;
+        try {
+            return client.downloadFileAsStream(client.execute(getFile));
+        } catch (TelegramApiException e) {
+            error = e;
+            throw e;
+        } finally {
+            sample.stop(apiTimers.timer("downloadfile", error));
+        }
+    }
+
+    /**
+     * Регистрирует webhook в Telegram.
+     *
+     * @param url         полный адрес HTTP-обработчика webhook
+     * @param secretToken секрет для заголовка {@code X-Telegram-Bot-Api-Secret-Token} или {@code null}
+     * @throws TelegramApiException если произошла ошибка при вызове Telegram API
+     */
+    public void setWebhook(String url, String secretToken) throws TelegramApiException {
+        SetWebhook setWebhook = new SetWebhook();
+        setWebhook.setUrl(url);
+        setWebhook.setSecretToken(secretToken);
+        client.execute(setWebhook);
+    }
+
+    private <T> CompletableFuture<T> submit(Long chatId, boolean chatLimited, String methodName,
+                                            Supplier<CompletableFuture<T>> call, int attempt,
+                                            CompletableFuture<T> result) {
+        long delay = chatLimited ? reserveChatSlot(chatId) : globalLimit.reserve();
+        throttleTimer.record(delay, TimeUnit.NANOSECONDS);
+        scheduler.schedule(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            call.get().whenComplete((value, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                sample.stop(apiTimers.timer(methodName, cause));
+                if (error == null) {
+                    result.complete(value);
+                } else {
+                    retryOrFail(chatId, chatLimited, methodName, call, attempt, result, cause);
+                }
+            });
+        }, delay, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private <T> void retryOrFail(Long chatId, boolean chatLimited, String methodName,
+                                 Supplier<CompletableFuture<T>> call, int attempt, CompletableFuture<T> result,
+                                 Throwable cause) {
+        long retryAfter = retryAfterMillis(cause);
+        if (retryAfter >= 0) {
+            // 429: Telegram ограничил весь бот, поэтому ждут все следующие запросы, а не только этот
+            globalLimit.pause(TimeUnit.MILLISECONDS.toNanos(retryAfter));
+        }
+        long retryDelay = retryDelayMillis(cause, attempt);
+        if (retryDelay >= 0 && attempt < botProperties.getMaxSendRetries()) {
+            log.debug("Повтор отправки в чат {} через {} мс (попытка {})", chatId, retryDelay, attempt + 1);
+            meterRegistry.counter("telegram.api.retries", "method", methodName).increment();
+            scheduler.schedule(() -> submit(chatId, chatLimited, methodName, call, attempt + 1, result),
+                    retryDelay, TimeUnit.MILLISECONDS);
+        } else {
+            log.warn("Ошибка отправки в чат {}: {}", chatId, cause.getMessage());
+            result.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Резервирует разрешение чата и глобальное разрешение на тот же момент отправки.
+     * Резервирование выполняется внутри {@code compute}, поэтому очистка не может удалить
+     * ограничитель чата между его получением и резервированием.
+     *
+     * @return задержка отправки в наносекундах.
+     */
+    private long reserveChatSlot(Long chatId) {
+        long[] delay = new long[1];
+        chatLimits.compute(chatId, (id, limit) -> {
+            if (limit == null) {
+                limit = id < 0
+                        // Отрицательные идентификаторы принадлежат группам и каналам
+                        ? new TokenBucket(botProperties.getGroupMessagesPerMinute() / 60.0, 1)
+                        : new TokenBucket(botProperties.getChatMessagesPerSecond(), 1);
+            }
+            delay[0] = limit.reserve(globalLimit);
+            return limit;
+        });
+        return delay[0];
+    }
+
+    /**
+     * Удаляет ограничители чатов, которые давно ничего не отправляли.
+     */
+    private void removeIdleChatLimits() {
+        for (Long chatId : chatLimits.keySet()) {
+            chatLimits.computeIfPresent(chatId, (id, limit) -> limit.isIdle() ? null : limit);
+        }
+    }
+
+    /**
+     * Определяет задержку перед повторной попыткой.
+     *
+     * @return задержка в миллисекундах или {@code -1}, если ошибку повторять нельзя.
+     */
+    private static long retryDelayMillis(Throwable error, int attempt) {
+        long retryAfter = retryAfterMillis(error);
+        if (retryAfter >= 0) {
+            return retryAfter;
+        }
+        if (error instanceof TelegramApiRequestException requestException) {
+            Integer errorCode = requestException.getErrorCode();
+            if (errorCode != null && errorCode < 500 && errorCode != 429) {
+                return -1; // Ошибка запроса: повтор не поможет
+            }
+        }
+        return BASE_BACKOFF_MILLIS << attempt;
+    }
+
+    /**
+     * @return время {@code retry_after} из ответа 429 в миллисекундах или {@code -1}, если его нет.
+     */
+    private static long retryAfterMillis(Throwable error) {
+        if (error instanceof TelegramApiRequestException requestException
+                && requestException.getParameters() != null
+                && requestException.getParameters().getRetryAfter() != null) {
+            return requestException.getParameters().getRetryAfter() * 1000L;
+        }
+        return -1;
+    }
+
+    /**
+     * Останавливает планировщик отправки.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,199 @@
+package kz.meiir.telegram_bot.bot;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * HTTP-обработчик webhook Telegram.
+ *
+ * <h2>Описание:</h2>
+ * Используется вместо long polling при {@code telegram.bot.mode=webhook}. Telegram отправляет
+ * каждое обновление POST-запросом на {@code telegram.bot.webhook-path}; обработчик только
+ * проверяет секрет и ставит обновление в {@link UpdateDispatcher}, не дожидаясь выполнения
+ * команды, поэтому HTTP-поток освобождается сразу.
+ *
+ * <h2>Ответы:</h2>
+ * <ul>
+ *     <li><strong>200</strong>: Обновление принято (или уже было принято ранее).</li>
+ *     <li><strong>401</strong>: Заголовок {@code X-Telegram-Bot-Api-Secret-Token} не совпадает
+ *     с {@code telegram.bot.webhook-secret}.</li>
+ *     <li><strong>503</strong>: Очередь обновлений заполнена или узел-владелец чата не ответил;
+ *     Telegram повторит доставку позже.</li>
+ * </ul>
+ *
+ * <h2>Несколько экземпляров:</h2>
+ * Если задан {@code telegram.bot.cluster-nodes}, обновление чата, закреплённого
+ * {@link ChatPartitioner} за другим узлом, пересылается этому узлу, и Telegram получает его ответ.
+ * Если к узлу-владельцу не удалось подключиться, обновление обрабатывается локально. Если соединение
+ * установлено, но ответа нет (тайм-аут, обрыв), владелец мог уже принять обновление, а окна
+ * дедупликации у узлов разные, поэтому возвращается 503: Telegram повторит доставку, и владелец
+ * отбросит повтор.
+ *
+ * <p>Если задан {@code telegram.bot.webhook-url}, webhook регистрируется в Telegram
+ * после запуска приложения.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Slf4j
+@RestController
+@ConditionalOnProperty(prefix = "telegram.bot", name = "mode", havingValue = "webhook")
+public class TelegramWebhookController {
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final String FORWARDED_HEADER = "X-Telegram-Bot-Forwarded";
+    private static final Duration FORWARD_TIMEOUT = Duration.ofSeconds(5);
+
+    private final TelegramBotProperties botProperties;
+    private final UpdateHandler updateHandler;
+    private final TelegramMessageSender messageSender;
+    private final ChatPartitioner chatPartitioner;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(FORWARD_TIMEOUT).build();
+    private final byte[] secret;
+
+    /**
+     * Конструктор обработчика webhook.
+     *
+     * @param botProperties   свойства бота (адрес, путь и секрет webhook).
+     * @param updateHandler   обработчик обновлений.
+     * @param messageSender   отправитель, через который регистрируется webhook.
+     * @param chatPartitioner распределитель чатов между узлами.
+     * @param objectMapper    сериализатор обновлений для пересылки.
+     */
+    public TelegramWebhookController(TelegramBotProperties botProperties,
+                                     UpdateHandler updateHandler,
+                                     TelegramMessageSender messageSender,
+                                     ChatPartitioner chatPartitioner,
+                                     ObjectMapper objectMapper) {
+        this.botProperties = botProperties;
+        this.updateHandler = updateHandler;
+        this.messageSender = messageSender;
+        this.chatPartitioner = chatPartitioner;
+        this.objectMapper = objectMapper;
+        this.secret = botProperties.getWebhookSecret() == null || botProperties.getWebhookSecret().isEmpty()
+                ? null
+                : botProperties.getWebhookSecret().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Принимает обновление от Telegram.
+     *
+     * @param secretToken значение заголовка {@code X-Telegram-Bot-Api-Secret-Token}.
+     * @param forwarded   признак обновления, пересланного другим узлом.
+     * @param update      обновление в формате Bot API.
+     * @return статус приёма обновления.
+     */
+    @PostMapping("${telegram.bot.webhook-path:/telegram/webhook}")
+    public CompletableFuture<ResponseEntity<Void>> onUpdate(
+            @RequestHeader(value = SECRET_HEADER, required = false) String secretToken,
+            @RequestHeader(value = FORWARDED_HEADER, required = false) String forwarded,
+            @RequestBody Update update) {
+        if (!isAuthorized(secretToken)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+
+        Long chatId = UpdateHandler.chatId(update);
+        String owner = forwarded != null || chatId == null ? null : chatPartitioner.ownerOf(chatId);
+        if (owner == null) {
+            return CompletableFuture.completedFuture(handleLocally(update));
+        }
+        return forward(owner, secretToken, update);
+    }
+
+    private ResponseEntity<Void> handleLocally(Update update) {
+        if (!updateHandler.tryHandle(update)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Пересылает обновление узлу-владельцу чата и возвращает его ответ.
+     */
+    private CompletableFuture<ResponseEntity<Void>> forward(String owner, String secretToken, Update update) {
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(owner + botProperties.getWebhookPath()))
+                    .timeout(FORWARD_TIMEOUT)
+                    .header("Content-Type", "application/json")
+                    .header(FORWARDED_HEADER, "true")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(update)));
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.completedFuture(handleLocally(update));
+        }
+        if (secretToken != null) {
+            request.header(SECRET_HEADER, secretToken);
+        }
+
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .<ResponseEntity<Void>>thenApply(response -> ResponseEntity.status(response.statusCode()).build())
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) {
+                        // Соединение не установлено: узел-владелец точно не получил обновление
+                        log.warn("Узел {} недоступен, обновление {} обрабатывается локально: {}",
+                                owner, update.getUpdateId(), cause.getMessage());
+                        return handleLocally(update);
+                    }
+                    // Владелец мог уже принять обновление: локальная обработка выполнила бы его дважды
+                    log.warn("Узел {} не ответил на обновление {}, Telegram повторит доставку: {}",
+                            owner, update.getUpdateId(), cause.getMessage());
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+                });
+    }
+
+    /**
+     * Регистрирует webhook в Telegram, если задан публичный адрес приложения.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerWebhook() {
+        String webhookUrl = botProperties.getWebhookUrl();
+        if (webhookUrl == null || webhookUrl.isEmpty()) {
+            return;
+        }
+        String url = webhookUrl.replaceAll("/+$", "") + botProperties.getWebhookPath();
+        try {
+            messageSender.setWebhook(url, botProperties.getWebhookSecret());
+            log.info("Webhook зарегистрирован: {}", url);
+        } catch (TelegramApiException e) {
+            log.error("Не удалось зарегистрировать webhook {}", url, e);
+        }
+    }
+
+    /**
+     * Сравнивает секрет за постоянное время, чтобы его нельзя было подобрать по времени ответа.
+     */
+    private boolean isAuthorized(String secretToken) {
+        if (secret == null) {
+            return true;
+        }
+        return secretToken != null
+                && MessageDigest.isEqual(secret, secretToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,55 @@
+package kz.meiir.telegram_bot.bot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ограниченное окно последних обработанных {@code update_id}.
+ *
+ * <h2>Описание:</h2>
+ * Telegram повторяет доставку обновления через webhook, если не получил ответ вовремя,
+ * поэтому одно и то же обновление может прийти несколько раз. Окно хранит не более
+ * {@code capacity} последних идентификаторов; при переполнении вытесняется самый старый.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+class UpdateDeduplicator {
+    private final Map<Integer, Boolean> recent;
+
+    /**
+     * Создаёт окно дедупликации.
+     *
+     * @param capacity максимальное количество запоминаемых идентификаторов.
+     */
+    UpdateDeduplicator(int capacity) {
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Запоминает идентификатор обновления.
+     *
+     * @param updateId идентификатор обновления (может быть {@code null} у обновлений,
+     *                 созданных вручную, — такие не проверяются).
+     * @return {@code true}, если обновление встречается впервые.
+     */
+    synchronized boolean firstSeen(Integer updateId) {
+        return updateId == null || recent.put(updateId, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Забывает идентификатор, чтобы повторная доставка обновления была обработана.
+     *
+     * @param updateId идентификатор обновления.
+     */
+    synchronized void forget(Integer updateId) {
+        if (updateId != null) {
+            recent.remove(updateId);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package kz.meiir.telegram_bot.bot;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Диспетчер входящих обновлений Telegram.
+ *
+ * <p>Обновления выполняются на виртуальных потоках, поэтому медленная команда
+ * (например, {@code /download} или загрузка Excel) не блокирует поток long polling
+ * или HTTP-поток webhook и не задерживает ответы в других чатах.</p>
+ *
+ * <h2>Гарантии:</h2>
+ * <ul>
+ *     <li>Обновления одного чата выполняются строго последовательно и в порядке поступления.
+ *     Для каждого чата хранится «хвост» цепочки задач; новая задача запускается только
+ *     после завершения предыдущей.</li>
+ *     <li>Обновления разных чатов выполняются параллельно.</li>
+ *     <li>Количество принятых, но ещё не выполненных обновлений ограничено
+ *     ({@link TelegramBotProperties#getMaxPendingUpdates()}). При переполнении
+ *     {@link #dispatch(Long, Runnable)} блокирует вызывающий поток, тем самым замедляя
+ *     получение новых обновлений (backpressure), а {@link #tryDispatch(Long, Runnable)}
+ *     сразу отказывает, чтобы webhook ответил ошибкой и Telegram повторил доставку позже.</li>
+ * </ul>
+ *
+ * <h2>Метрики:</h2>
+ * <ul>
+ *     <li><strong>telegram.dispatcher.pending</strong>: Текущая глубина очереди.</li>
+ *     <li><strong>telegram.dispatcher.wait</strong>: Время от приёма обновления до начала его обработки
+ *     (включая ожидание предыдущих обновлений того же чата).</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class UpdateDispatcher {
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, CompletableFuture<Void>> chatTails = new ConcurrentHashMap<>();
+    private final int maxPendingUpdates;
+    private final Semaphore backlog;
+    private final Timer waitTimer;
+
+    /**
+     * Конструктор диспетчера.
+     *
+     * @param botProperties свойства бота, содержащие размер очереди обновлений.
+     * @param meterRegistry реестр метрик.
+     */
+    public UpdateDispatcher(TelegramBotProperties botProperties, MeterRegistry meterRegistry) {
+        this.maxPendingUpdates = botProperties.getMaxPendingUpdates();
+        this.backlog = new Semaphore(maxPendingUpdates);
+        this.waitTimer = Timer.builder("telegram.dispatcher.wait")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("telegram.dispatcher.pending", this, UpdateDispatcher::getPendingCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ставит задачу в очередь чата.
+     *
+     * <p>Если очередь обновлений заполнена, метод ожидает освобождения места.</p>
+     *
+     * @param chatId идентификатор чата, определяющий порядок выполнения.
+     * @param task   задача обработки обновления.
+     * @throws InterruptedException если поток был прерван во время ожидания.
+     */
+    public void dispatch(Long chatId, Runnable task) throws InterruptedException {
+        backlog.acquire();
+        enqueue(chatId, task);
+    }
+
+    /**
+     * Ставит задачу в очередь чата без ожидания.
+     *
+     * @param chatId идентификатор чата, определяющий порядок выполнения.
+     * @param task   задача обработки обновления.
+     * @return {@code false}, если очередь обновлений заполнена и задача не принята.
+     */
+    public boolean tryDispatch(Long chatId, Runnable task) {
+        if (!backlog.tryAcquire()) {
+            return false;
+        }
+        enqueue(chatId, task);
+        return true;
+    }
+
+    /**
+     * Возвращает количество принятых, но ещё не обработанных обновлений.
+     *
+     * @return текущая глубина очереди.
+     */
+    public int getPendingCount() {
+        return maxPendingUpdates - backlog.availablePermits();
+    }
+
+    private void enqueue(Long chatId, Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        CompletableFuture<Void> tail = chatTails.compute(chatId, (id, previous) ->
+                (previous == null ? CompletableFuture.<Void>completedFuture(null) : previous)
+                        .handleAsync((result, error) -> runSafely(chatId, task, enqueuedAt), executor));
+        // Удаляем завершившийся хвост, чтобы не накапливать записи для неактивных чатов
+        tail.whenComplete((ignored, error) -> chatTails.remove(chatId, tail));
+    }
+
+    private Void runSafely(Long chatId, Runnable task, long enqueuedAt) {
+        waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+        try {
+            task.run();
+        } catch (Exception e) {
+            log.error("Ошибка обработки обновления для чата {}", chatId, e);
+        } finally {
+            backlog.release();
+        }
+        return null;
+    }
+
+    /**
+     * Останавливает диспетчер, дожидаясь завершения уже принятых обновлений.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+}
@@ -0,0 +1,228 @@
+package kz.meiir.telegram_bot.bot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import kz.meiir.telegram_bot.bot.commands.UploadCommand;
+import kz.meiir.telegram_bot.bot.commands.ViewTreeCommand;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.utils.OutcomeTimers;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Обработчик входящих обновлений Telegram, общий для long polling и webhook.
+ *
+ * <h2>Описание:</h2>
+ * Определяет чат обновления, отбрасывает повторно доставленные обновления по {@code update_id}
+ * и передаёт обработку в {@link UpdateDispatcher}. Логика команд делегируется
+ * классам команд, зарегистрированным в {@link CommandRegistry}.
+ *
+ * <h2>Методы:</h2>
+ * <ul>
+ *     <li><strong>handle</strong>: Принимает обновление, при заполненной очереди ожидает места
+ *     (используется потоком long polling).</li>
+ *     <li><strong>tryHandle</strong>: Принимает обновление без ожидания
+ *     (используется HTTP-обработчиком webhook).</li>
+ * </ul>
+ *
+ * <h2>Метрики:</h2>
+ * <ul>
+ *     <li><strong>telegram.update</strong>: Время обработки обновления с тегами
+ *     {@code type} ({@code message} или {@code callback}), {@code outcome} и {@code exception}.</li>
+ *     <li><strong>telegram.update.duplicate</strong>: Количество отброшенных повторных доставок.</li>
+ *     <li><strong>telegram.update.rejected</strong>: Количество обновлений, не принятых из-за заполненной очереди.</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Component
+public class UpdateHandler {
+    private final CommandRegistry commandRegistry;
+    private final UploadCommand uploadCommand;
+    private final ViewTreeCommand viewTreeCommand;
+    private final UpdateDispatcher updateDispatcher;
+    private final TelegramMessageSender messageSender;
+    private final UpdateDeduplicator deduplicator;
+    private final MeterRegistry meterRegistry;
+    private final Counter duplicates;
+    private final Counter rejected;
+    private final OutcomeTimers updateTimers;
+
+    /**
+     * Конструктор обработчика.
+     *
+     * @param botProperties    свойства бота (размер окна дедупликации).
+     * @param commandRegistry  реестр команд.
+     * @param uploadCommand    команда загрузки файла.
+     * @param viewTreeCommand  команда просмотра дерева (обрабатывает кнопки листания).
+     * @param updateDispatcher диспетчер обновлений.
+     * @param messageSender    отправитель сообщений.
+     * @param meterRegistry    реестр метрик.
+     */
+    public UpdateHandler(TelegramBotProperties botProperties,
+                         CommandRegistry commandRegistry,
+                         UploadCommand uploadCommand,
+                         ViewTreeCommand viewTreeCommand,
+                         UpdateDispatcher updateDispatcher,
+                         TelegramMessageSender messageSender,
+                         MeterRegistry meterRegistry) {
+        this.commandRegistry = commandRegistry;
+        this.uploadCommand = uploadCommand;
+        this.viewTreeCommand = viewTreeCommand;
+        this.updateDispatcher = updateDispatcher;
+        this.messageSender = messageSender;
+        this.deduplicator = new UpdateDeduplicator(botProperties.getRecentUpdatesCapacity());
+        this.meterRegistry = meterRegistry;
+        this.duplicates = meterRegistry.counter("telegram.update.duplicate");
+        this.rejected = meterRegistry.counter("telegram.update.rejected");
+        this.updateTimers = new OutcomeTimers(meterRegistry, "telegram.update", "type");
+    }
+
+    /**
+     * Принимает обновление к обработке. Если очередь обновлений заполнена,
+     * ожидает освобождения места.
+     *
+     * @param update обновление, полученное от Telegram.
+     * @throws InterruptedException если поток был прерван во время ожидания.
+     */
+    public void handle(Update update) throws InterruptedException {
+        Long chatId = chatId(update);
+        if (chatId != null && isFirstDelivery(update)) {
+            updateDispatcher.dispatch(chatId, () -> process(update, chatId));
+        }
+    }
+
+    /**
+     * Принимает обновление к обработке без ожидания.
+     *
+     * <p>Повторно доставленные и неподдерживаемые обновления считаются принятыми,
+     * чтобы Telegram не повторял их доставку.</p>
+     *
+     * @param update обновление, полученное от Telegram.
+     * @return {@code false}, если очередь обновлений заполнена и обновление нужно доставить позже.
+     */
+    public boolean tryHandle(Update update) {
+        Long chatId = chatId(update);
+        if (chatId == null || !isFirstDelivery(update)) {
+            return true;
+        }
+        if (updateDispatcher.tryDispatch(chatId, () -> process(update, chatId))) {
+            return true;
+        }
+        deduplicator.forget(update.getUpdateId()); // Telegram доставит обновление повторно
+        rejected.increment();
+        return false;
+    }
+
+    private boolean isFirstDelivery(Update update) {
+        if (deduplicator.firstSeen(update.getUpdateId())) {
+            return true;
+        }
+        duplicates.increment();
+        return false;
+    }
+
+    /**
+     * Определяет чат, к которому относится обновление.
+     *
+     * @return идентификатор чата или {@code null}, если обновление не обрабатывается ботом.
+     */
+    static Long chatId(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery() && update.getCallbackQuery().getMessage() != null) {
+            return update.getCallbackQuery().getMessage().getChatId();
+        }
+        return null;
+    }
+
+    private void process(Update update, Long chatId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        RuntimeException error = null;
+        try {
+            if (update.hasMessage()) {
+                handleMessage(update, chatId);
+            } else {
+                handleCallback(update, chatId);
+            }
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            sample.stop(updateTimers.timer(update.hasMessage() ? "message" : "callback", error));
+        }
+    }
+
+    /**
+     * Обрабатывает входящее сообщение, делегируя логику
+     * соответствующим методам и классам команд.
+     *
+     * @param update обновление, полученное от Telegram.
+     * @param chatId идентификатор чата, из которого пришло сообщение.
+     */
+    private void handleMessage(Update update, Long chatId) {
+        if (update.getMessage().isCommand()) {
+            handleCommand(update, chatId);
+        } else if (update.getMessage().hasDocument()) {
+            handleUploadCommand(update, chatId);
+        }
+    }
+
+    /**
+     * Обрабатывает нажатие кнопки под сообщением бота.
+     *
+     * @param update обновление, содержащее {@code CallbackQuery}.
+     * @param chatId идентификатор чата, в котором нажата кнопка.
+     */
+    private void handleCallback(Update update, Long chatId) {
+        String data = update.getCallbackQuery().getData();
+        if (data != null && data.startsWith(ViewTreeCommand.CALLBACK_PREFIX)) {
+            viewTreeCommand.handleCallback(chatId, update.getCallbackQuery());
+        }
+    }
+
+    /**
+     * Обрабатывает команды, отправленные пользователями.
+     * <p>
+     * Команды сопоставляются с обработчиками, зарегистрированными в
+     * {@link CommandRegistry}. Если команда не распознана,
+     * бот отправляет сообщение об ошибке.
+     * </p>
+     *
+     * @param update обновление, содержащее команду.
+     * @param chatId идентификатор чата, из которого пришла команда.
+     */
+    private void handleCommand(Update update, Long chatId) {
+        String command = update.getMessage().getText();
+
+        if (!commandRegistry.isAddressedToBot(command)) {
+            return; // Команда адресована другому боту в групповом чате
+        }
+        if (!commandRegistry.execute(chatId, command)) {
+            messageSender.sendMessage(chatId, "Неизвестная команда. Введите /help для списка команд.");
+        }
+    }
+
+    /**
+     * Обрабатывает загрузку документа, отправленного пользователем.
+     * <p>
+     * Если режим загрузки включён для текущего чата,
+     * передаёт обновление на обработку в {@code UploadCommand}.
+     * В противном случае отправляет сообщение о необходимости активировать
+     * режим загрузки с помощью команды {@code /upload}.
+     * </p>
+     *
+     * @param update обновление, содержащее документ.
+     * @param chatId идентификатор чата, из которого пришло сообщение.
+     */
+    private void handleUploadCommand(Update update, Long chatId) {
+        if (uploadCommand.isUploadMode(chatId)) {
+            uploadCommand.handleDocument(update);
+        } else {
+            messageSender.sendMessage(chatId, "Сначала используйте команду /upload, чтобы загрузить файл.");
+        }
+    }
+}
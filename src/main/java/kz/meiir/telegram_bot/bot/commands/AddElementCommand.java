@@ -1,7 +1,11 @@
 package kz.meiir.telegram_bot.bot.commands;
 
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import kz.meiir.telegram_bot.service.CategoryBatchResult;
 import kz.meiir.telegram_bot.service.CategoryServiceFacade;
-import kz.meiir.telegram_bot.utils.TelegramBotUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
 /**
  * Класс {@code AddElementCommand} отвечает за обработку команды "/addElement".
  * <p>
@@ -12,33 +16,47 @@ import kz.meiir.telegram_bot.utils.TelegramBotUtils;
  * <h2>Формат команды:</h2>
  * <pre>
  * /addElement &lt;родительский элемент&gt;/&lt;дочерний элемент&gt;
+ * /addElement &lt;корень&gt;/.../&lt;родительский элемент&gt;/&lt;дочерний элемент&gt;
  * </pre>
+ * Последний элемент пути — добавляемая категория, всё перед ним — путь родителя.
+ * Если сообщение содержит несколько строк, каждая строка — отдельный путь, и все категории
+ * добавляются одним пакетом в одной транзакции.
  * <h2>Примеры использования:</h2>
  * <ul>
  *     <li>{@code /addElement Electronics/Mobile}</li>
+ *     <li>{@code /addElement Electronics/Mobile/Android}</li>
  *     <li>{@code /addElement Books}</li>
  * </ul>
  *
  * @author Meiir Akhmetov
  * @version 1.0
  */
+@Component
 public class AddElementCommand implements BotCommand{
     private final CategoryServiceFacade categoryServiceFacade;
+    private final TelegramMessageSender messageSender;
 
     /**
      * Конструктор для создания команды {@code AddElementCommand}.
      *
      * @param categoryServiceFacade сервис для работы с категориями.
+     * @param messageSender         компонент отправки сообщений.
      */
-    public AddElementCommand(CategoryServiceFacade categoryServiceFacade) {
+    public AddElementCommand(CategoryServiceFacade categoryServiceFacade, TelegramMessageSender messageSender) {
         this.categoryServiceFacade = categoryServiceFacade;
+        this.messageSender = messageSender;
+    }
+
+    @Override
+    public String getName() {
+        return "/addElement";
     }
 
     /**
      * Выполняет команду "/addElement", вызывая соответствующий обработчик.
      *
      * @param chatId идентификатор чата, в который отправляется сообщение.
-     * @param text   текст команды (например, "/addElement Electronics/Mobile").
+     * @param text   параметры команды (например, "Electronics/Mobile").
      */
     @Override
     public void execute(Long chatId, String text) {
@@ -48,34 +66,31 @@ public class AddElementCommand implements BotCommand{
     /**
      * Обрабатывает команду "/addElement" и добавляет категорию.
      *
-     * @param command текст команды.
-     * @param chatId  идентификатор чата, в который отправляется сообщение.
+     * @param args   параметры команды.
+     * @param chatId идентификатор чата, в который отправляется сообщение.
      */
-    private void handleAddElementCommand(String command, Long chatId) {
-        if (command.startsWith("/addElement")) {
-            String[] args = command.split(" ", 2); // Разделяем команду и параметры
-
-            if (args.length == 2) { // Проверяем, есть ли параметры
-                String[] parts = args[1].split("/", 2); // Разделяем параметры по "/"
+    private void handleAddElementCommand(String args, Long chatId) {
+        if (args.indexOf('\n') >= 0) { // Несколько строк: пакетное добавление
+            List<String> paths = args.lines().filter(line -> !line.isBlank()).toList();
+            List<CategoryBatchResult> results = categoryServiceFacade.addCategories(chatId, paths);
+            messageSender.sendMessage(chatId, CategoryBatchResult.toMessage(results));
+        } else if (!args.isEmpty()) { // Проверяем, есть ли параметры
+            int split = args.lastIndexOf('/'); // Последний "/" отделяет элемент от пути родителя
 
-                if (parts.length == 2) {
-                    String parentName = parts[0].trim(); // Родительский элемент
-                    String elementName = parts[1].trim(); // Дочерний элемент
-                    String response = categoryServiceFacade.addCategory(elementName, parentName);
-                    TelegramBotUtils.sendMessage(chatId, response);
-                } else if (parts.length == 1) {
-                    // Если только один элемент без родительского
-                    String elementName = parts[0].trim();
-                    String response = categoryServiceFacade.addCategory(elementName, null);
-                    TelegramBotUtils.sendMessage(chatId, response);
-                } else {
-                    TelegramBotUtils.sendMessage(chatId, "Неверный формат команды. Используйте:\n" +
-                            "/addElement <родительский элемент>/<дочерний элемент>");
-                }
+            if (split >= 0) {
+                String parentName = args.substring(0, split).trim(); // Путь родительского элемента
+                String elementName = args.substring(split + 1).trim(); // Дочерний элемент
+                String response = categoryServiceFacade.addCategory(chatId, elementName, parentName);
+                messageSender.sendMessage(chatId, response);
             } else {
-                TelegramBotUtils.sendMessage(chatId, "Неверный формат команды. Используйте:\n" +
-                        "/addElement <родительский элемент>/<дочерний элемент>");
+                // Если только один элемент без родительского
+                String elementName = args.trim();
+                String response = categoryServiceFacade.addCategory(chatId, elementName, null);
+                messageSender.sendMessage(chatId, response);
             }
+        } else {
+            messageSender.sendMessage(chatId, "Неверный формат команды. Используйте:\n" +
+                    "/addElement <родительский элемент>/<дочерний элемент>");
         }
     }
 }
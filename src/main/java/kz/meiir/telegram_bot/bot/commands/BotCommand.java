@@ -2,14 +2,21 @@ package kz.meiir.telegram_bot.bot.commands;
 /**
  * Интерфейс {@code BotCommand} представляет собой контракт для всех команд Telegram-бота.
  * <p>
- * Все команды, реализующие этот интерфейс, должны определить метод {@code execute},
- * который отвечает за выполнение команды.
+ * Все команды, реализующие этот интерфейс, должны определить имя команды
+ * ({@code getName}) и метод {@code execute}, который отвечает за выполнение команды.
+ * Реализации являются Spring-компонентами и регистрируются в {@code CommandRegistry}
+ * один раз при старте приложения.
  * </p>
  *
  * <h2>Пример использования:</h2>
  * <pre>
  * public class StartCommand implements BotCommand {
  *     @Override
+ *     public String getName() {
+ *         return "/start";
+ *     }
+ *
+ *     @Override
  *     public void execute(Long chatId, String text) {
  *         // Логика команды /start
  *     }
@@ -28,11 +35,18 @@ package kz.meiir.telegram_bot.bot.commands;
  * @version 1.0
  */
 public interface BotCommand {
+    /**
+     * Возвращает имя команды вместе с символом "/" (например, {@code "/start"}).
+     *
+     * @return имя команды.
+     */
+    String getName();
+
     /**
      * Выполняет команду Telegram-бота.
      *
      * @param chatId идентификатор чата, в который отправляется результат выполнения команды.
-     * @param text   текст команды, содержащий ключевое слово команды и возможные параметры.
+     * @param text   параметры команды без её имени и упоминания бота (пустая строка, если параметров нет).
      */
     void execute(Long chatId, String text);
 }
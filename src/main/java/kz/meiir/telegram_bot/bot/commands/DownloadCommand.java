@@ -1,113 +1,234 @@
 package kz.meiir.telegram_bot.bot.commands;
 
-import kz.meiir.telegram_bot.model.Category;
-import kz.meiir.telegram_bot.repository.CategoryRepository;
-import kz.meiir.telegram_bot.utils.TelegramBotUtils;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-
-import java.io.FileOutputStream;
+import kz.meiir.telegram_bot.bot.ExportDocumentCache;
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import kz.meiir.telegram_bot.service.CategoryExportResult;
+import kz.meiir.telegram_bot.service.CategoryExportService;
+import kz.meiir.telegram_bot.service.CategoryFileFormat;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
 import java.io.IOException;
-import java.util.List;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
- * Команда {@code DownloadCommand} предназначена для генерации и отправки Excel-файла
+ * Команда {@code DownloadCommand} предназначена для генерации и отправки файла
  * с деревом категорий в чат Telegram.
  *
  * <h2>Описание:</h2>
- * Этот класс создает Excel-файл, содержащий категории и их родительские категории.
+ * Этот класс создает файл, содержащий категории и их родительские категории.
  * Затем файл отправляется в чат пользователя.
  *
- * <h2>Формат Excel-файла:</h2>
+ * <h2>Формат файла:</h2>
  * <ul>
  *     <li>Столбец 1: Название категории</li>
  *     <li>Столбец 2: Полный путь родительских категорий (разделённый через " / ")</li>
  * </ul>
+ * По умолчанию файл формируется в Excel. Команды <code>/download csv</code> и
+ * <code>/download jsonl</code> выгружают те же строки в CSV или JSON Lines
+ * ({@link CategoryFileFormat}): для синхронизации между системами такие файлы формируются
+ * и разбираются намного быстрее книги Excel.
+ *
+ * <h2>Выгрузка изменений:</h2>
+ * После файла бот сообщает версию дерева. Команда <code>/download since &lt;версия&gt;</code>
+ * выгружает только категории, добавленные, удалённые или перемещённые начиная с этой версии
+ * (формат описан в {@link CategoryExportService}), и сообщает версию для следующей выгрузки.
+ * Такой файл можно загрузить командой <code>/upload</code> в другое дерево.
  *
  * <h2>Использование:</h2>
  * Этот класс используется, когда пользователь отправляет команду <code>/download</code>.
+ * Для каждого запроса создаётся отдельный временный файл, который удаляется после отправки,
+ * поэтому одновременные выгрузки из разных чатов не мешают друг другу.
+ *
+ * <h2>Повторные выгрузки:</h2>
+ * Если дерево не изменилось с прошлой выгрузки, файл не формируется заново: документ
+ * отправляется по {@code file_id} из {@link ExportDocumentCache}, без загрузки содержимого.
+ * Файлы разных форматов кешируются отдельно. Выгрузки изменений не кешируются.
  *
  * <h2>Пример вызова:</h2>
  * <pre>
- * new DownloadCommand(categoryRepository).execute(chatId, "/download");
+ * DownloadCommand command = new DownloadCommand(categoryExportService, exportDocumentCache, messageSender);
+ * command.execute(chatId, "");
+ * command.execute(chatId, "since 1234");
+ * command.execute(chatId, "jsonl since 1234");
  * </pre>
  *
  * @author Meiir Akhmetov
  * @version 1.0
  */
+@Component
 public class DownloadCommand implements BotCommand{
-    private final CategoryRepository categoryRepository;
+    private static final String FILE_NAME = "categories_tree.%s"; // Имя файла, которое увидит пользователь
+    private static final String CHANGES_FILE_NAME = "categories_changes_%d.%s";
+    private static final String SINCE = "since";
+
+    private final CategoryExportService categoryExportService;
+    private final ExportDocumentCache exportDocumentCache;
+    private final TelegramMessageSender messageSender;
     /**
      * Конструктор для инициализации {@code DownloadCommand}.
      *
-     * @param categoryRepository репозиторий категорий для получения данных.
+     * @param categoryExportService сервис экспорта дерева категорий.
+     * @param exportDocumentCache   кеш отправленных выгрузок.
+     * @param messageSender         компонент отправки сообщений.
      */
-    public DownloadCommand(CategoryRepository categoryRepository) {
-        this.categoryRepository = categoryRepository;
+    public DownloadCommand(CategoryExportService categoryExportService, ExportDocumentCache exportDocumentCache,
+                           TelegramMessageSender messageSender) {
+        this.categoryExportService = categoryExportService;
+        this.exportDocumentCache = exportDocumentCache;
+        this.messageSender = messageSender;
+    }
+
+    @Override
+    public String getName() {
+        return "/download";
     }
 
     /**
-     * Выполняет команду загрузки дерева категорий и отправляет Excel-файл в чат.
+     * Выполняет команду загрузки дерева категорий и отправляет файл в чат.
      *
      * @param chatId идентификатор чата, куда будет отправлен файл.
-     * @param text   текст команды (не используется в данной реализации).
+     * @param text   необязательный формат ({@code xlsx}, {@code csv} или {@code jsonl}), затем пусто
+     *               для всего дерева или {@code since <версия>} для изменений после версии.
      */
     @Override
     public void execute(Long chatId, String text) {
-        String excelFilePath = createExcelFileWithCategoryTree();
-        TelegramBotUtils.sendDocument(chatId, excelFilePath);
+        Request request = parse(text);
+        if (request == null) {
+            messageSender.sendMessage(chatId, "Ошибка: Неверный формат команды. Используйте:\n" +
+                    "/download [xlsx|csv|jsonl]\n" +
+                    "/download [xlsx|csv|jsonl] since <версия>");
+            return;
+        }
+        CategoryFileFormat format = request.format();
+
+        if (request.since() != null) {
+            long since = request.since();
+            upload(chatId, format, String.format(CHANGES_FILE_NAME, since, format.extension()), true,
+                    out -> categoryExportService.writeChanges(chatId, since, format, out));
+            return;
+        }
+
+        long version = categoryExportService.contentVersion(chatId);
+        ExportDocumentCache.Document cached = exportDocumentCache.get(chatId, format.extension(), version);
+        if (cached == null) {
+            sendTree(chatId, format, version);
+            return;
+        }
+        // Ожидание в потоке команды: запасной путь формирует файл, и это не должно
+        // выполняться в потоке отправителя сообщений
+        try {
+            cached.fileId()
+                    .thenCompose(fileId -> messageSender.sendDocument(chatId, fileId))
+                    .join();
+        } catch (CompletionException | CancellationException e) {
+            // Первая отправка не удалась или Telegram не принял file_id
+            exportDocumentCache.evict(chatId, format.extension(), cached);
+            sendTree(chatId, format, version);
+            return;
+        }
+        messageSender.sendMessage(chatId, summary(format, false, cached.result()));
+    }
+
+    private void sendTree(Long chatId, CategoryFileFormat format, long version) {
+        Upload upload = upload(chatId, format, String.format(FILE_NAME, format.extension()), false,
+                out -> categoryExportService.writeTree(chatId, format, out));
+        if (upload != null) {
+            exportDocumentCache.put(chatId, format.extension(), version, upload.result(), upload.sent());
+        }
     }
 
     /**
-     * Генерирует Excel-файл с деревом категорий.
+     * Формирует файл во временном файле, отправляет его и после отправки сообщает итоги выгрузки.
      *
-     * <h2>Структура данных:</h2>
-     * <ul>
-     *     <li>Категории и их родительские элементы извлекаются из репозитория.</li>
-     *     <li>Родительские категории формируются в виде строки, разделённой " / ".</li>
-     * </ul>
-     *
-     * @return путь к созданному Excel-файлу.
+     * @return итоги и результат отправки или {@code null}, если файл не удалось сформировать.
      */
-    private String createExcelFileWithCategoryTree() {
-        Workbook workbook = new XSSFWorkbook();
-        Sheet sheet = workbook.createSheet("Категории");
-
-        // Добавление заголовков
-        Row header = sheet.createRow(0);
-        header.createCell(0).setCellValue("Категория");
-        header.createCell(1).setCellValue("Родительская категория");
-
-        // Получение дерева категорий
-        List<Category> categories = categoryRepository.findAll();
-        int rowNum = 1;
-        for (Category category : categories) {
-            Row row = sheet.createRow(rowNum++);
-            row.createCell(0).setCellValue(category.getName());
-
-            // Сбор всех родительских категорий
-            if (category.getParent() != null) {
-                StringBuilder parentNames = new StringBuilder();
-                Category parent = category.getParent();
-                while (parent != null) {
-                    parentNames.insert(0, parent.getName() + " / "); // Вставляем перед текущим
-                    parent = parent.getParent(); // Переходим к следующему уровню родителя
-                }
-                row.createCell(1).setCellValue(parentNames.toString()); // Указываем все родительские категории
-            } else {
-                row.createCell(1).setCellValue(""); // Если родителя нет
+    private Upload upload(Long chatId, CategoryFileFormat format, String fileName, boolean changes,
+                          ExportWriter writer) {
+        Path exportFile = null;
+        try {
+            exportFile = Files.createTempFile("categories-", "." + format.extension());
+            CategoryExportResult result;
+            try (FileChannel out = FileChannel.open(exportFile, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                result = writer.write(out);
             }
+            // Файл удаляется после завершения отправки, версия сообщается после файла
+            Path sentFile = exportFile;
+            CompletableFuture<Message> sent = messageSender.sendDocument(chatId, exportFile.toFile(), fileName)
+                    .whenComplete((message, error) -> {
+                        deleteQuietly(sentFile);
+                        if (error == null) {
+                            messageSender.sendMessage(chatId, summary(format, changes, result));
+                        }
+                    });
+            return new Upload(result, sent);
+        } catch (IOException e) {
+            deleteQuietly(exportFile);
+            messageSender.sendMessage(chatId, "Ошибка формирования файла: " + e.getMessage());
+            return null;
         }
+    }
+
+    private static String summary(CategoryFileFormat format, boolean changes, CategoryExportResult result) {
+        String formatArgument = format == CategoryFileFormat.XLSX ? "" : format.extension() + " ";
+        return (changes ? "Изменений: " : "Категорий: ") + result.rows() + "\n" +
+                "Версия дерева: " + result.version() + "\n" +
+                "Изменения после неё: /download " + formatArgument + SINCE + " " + result.version();
+    }
+
+    /**
+     * Разбирает аргументы {@code [формат] [since <версия>]}.
+     *
+     * @return формат и версия ({@code null} для всего дерева) или {@code null}, если аргументы неверны.
+     */
+    private static Request parse(String text) {
+        String[] args = text.isBlank() ? new String[0] : text.trim().split("\\s+");
+        int next = 0;
+        CategoryFileFormat format = CategoryFileFormat.XLSX;
+        if (args.length > 0 && CategoryFileFormat.ofExtension(args[0]) != null) {
+            format = CategoryFileFormat.ofExtension(args[next++]);
+        }
+        if (next == args.length) {
+            return new Request(format, null);
+        }
+        if (args.length - next != 2 || !SINCE.equalsIgnoreCase(args[next])) {
+            return null;
+        }
+        try {
+            long since = Long.parseLong(args[next + 1]);
+            return since < 0 ? null : new Request(format, since);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 
-        String filePath = "categories_tree.xlsx"; // Путь к файлу
-        try (FileOutputStream fileOut = new FileOutputStream(filePath)) {
-            workbook.write(fileOut);
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
         } catch (IOException e) {
-            e.printStackTrace();
+            file.toFile().deleteOnExit();
         }
+    }
+
+    private record Request(CategoryFileFormat format, Long since) {
+    }
+
+    private record Upload(CategoryExportResult result, CompletableFuture<Message> sent) {
+    }
 
-        return filePath; // Возвращаем путь к созданному файлу
+    @FunctionalInterface
+    private interface ExportWriter {
+        CategoryExportResult write(WritableByteChannel out) throws IOException;
     }
 }
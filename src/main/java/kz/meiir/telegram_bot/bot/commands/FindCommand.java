@@ -0,0 +1,78 @@
+package kz.meiir.telegram_bot.bot.commands;
+
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import kz.meiir.telegram_bot.service.CategoryServiceFacade;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Команда {@code FindCommand} ищет категории по части названия.
+ *
+ * <h2>Описание:</h2>
+ * Выводит до {@value #LIMIT} категорий с полными путями, начиная с наиболее точных совпадений.
+ * Путь из ответа можно передать команде {@code /viewTree}, чтобы посмотреть поддерево.
+ * Поиск выполняется по индексу в памяти и не обращается к базе данных.
+ *
+ * <h2>Пример вызова:</h2>
+ * <pre>
+ * new FindCommand(categoryServiceFacade, messageSender).execute(chatId, "телеф");
+ * </pre>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Component
+public class FindCommand implements BotCommand {
+    private static final int LIMIT = 20;
+    private static final int MESSAGE_LIMIT = 4000; // Telegram ограничивает сообщение 4096 символами
+
+    private final CategoryServiceFacade categoryServiceFacade;
+    private final TelegramMessageSender messageSender;
+
+    /**
+     * Конструктор для инициализации {@code FindCommand}.
+     *
+     * @param categoryServiceFacade сервис для управления категориями.
+     * @param messageSender         компонент отправки сообщений.
+     */
+    public FindCommand(CategoryServiceFacade categoryServiceFacade, TelegramMessageSender messageSender) {
+        this.categoryServiceFacade = categoryServiceFacade;
+        this.messageSender = messageSender;
+    }
+
+    @Override
+    public String getName() {
+        return "/find";
+    }
+
+    /**
+     * Выполняет поиск и отправляет пользователю найденные категории.
+     *
+     * @param chatId идентификатор чата, откуда пришла команда.
+     * @param text   запрос (часть названия категории).
+     */
+    @Override
+    public void execute(Long chatId, String text) {
+        if (text.isBlank()) {
+            messageSender.sendMessage(chatId, "Ошибка: Не указан запрос. Используйте:\n" +
+                    "/find <часть названия>");
+            return;
+        }
+
+        List<String> paths = categoryServiceFacade.findCategories(chatId, text, LIMIT);
+        if (paths.isEmpty()) {
+            messageSender.sendMessage(chatId, "Категории по запросу \"" + text.trim() + "\" не найдены.");
+            return;
+        }
+
+        StringBuilder message = new StringBuilder("Найденные категории:\n");
+        for (String path : paths) {
+            if (message.length() + path.length() + 4 > MESSAGE_LIMIT) {
+                break; // Очень длинные пути глубоких категорий
+            }
+            message.append(" - ").append(path).append("\n");
+        }
+        messageSender.sendMessage(chatId, message.toString());
+    }
+}
@@ -1,6 +1,7 @@
 package kz.meiir.telegram_bot.bot.commands;
 
-import kz.meiir.telegram_bot.utils.TelegramBotUtils;
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import org.springframework.stereotype.Component;
 /**
  * Класс {@code HelpCommand} представляет собой обработчик команды "/help".
  * <p>
@@ -10,28 +11,49 @@ import kz.meiir.telegram_bot.utils.TelegramBotUtils;
  *
  * <h2>Пример использования:</h2>
  * <pre>
- *     BotCommand helpCommand = new HelpCommand();
- *     helpCommand.execute(chatId, "/help");
+ *     BotCommand helpCommand = new HelpCommand(messageSender);
+ *     helpCommand.execute(chatId, "");
  * </pre>
  *
  * @author Meiir Akhmetov
  * @version 1.0
  */
+@Component
 public class HelpCommand implements BotCommand{
+    private final TelegramMessageSender messageSender;
+
+    /**
+     * Конструктор для создания команды {@code HelpCommand}.
+     *
+     * @param messageSender компонент отправки сообщений.
+     */
+    public HelpCommand(TelegramMessageSender messageSender) {
+        this.messageSender = messageSender;
+    }
+
+    @Override
+    public String getName() {
+        return "/help";
+    }
+
     /**
      * Выполняет команду "/help", отправляя пользователю список доступных команд.
      *
      * @param chatId идентификатор чата, в который отправляется сообщение.
-     * @param text   текст команды (в данном случае "/help").
+     * @param text   параметры команды (не используются).
      */
     @Override
     public void execute(Long chatId, String text) {
-        TelegramBotUtils.sendMessage(chatId, "/viewTree - Показать дерево категорий\n" +
+        messageSender.sendMessage(chatId, "/viewTree - Показать дерево категорий\n" +
+                "/viewTree <путь> [глубина] - Показать поддерево категории\n" +
+                "/find <часть названия> - Найти категории\n" +
                 "/addElement <название элемента>\n" +
                 "/addElement <родительский элемент>/<дочерний элемент>\n" +
                 "/removeElement <родительский элемент>/<дочерний элемент>\n" +
                 "/removeElement <название элемента>\n" +
                 "/download - Скачать дерево категорий в формате Excel\n" +
-                "/upload - Загрузить дерево категорий из Excel");
+                "/download csv, /download jsonl - Скачать дерево категорий в формате CSV или JSON Lines\n" +
+                "/download [csv|jsonl] since <версия> - Скачать изменения после версии\n" +
+                "/upload - Загрузить дерево категорий или файл изменений (Excel, CSV или JSON Lines)");
     }
 }
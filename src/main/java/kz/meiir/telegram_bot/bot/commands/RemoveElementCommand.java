@@ -1,7 +1,11 @@
 package kz.meiir.telegram_bot.bot.commands;
 
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import kz.meiir.telegram_bot.service.CategoryBatchResult;
 import kz.meiir.telegram_bot.service.CategoryServiceFacade;
-import kz.meiir.telegram_bot.utils.TelegramBotUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
 
 /**
  * Команда {@code RemoveElementCommand} используется для удаления категории из дерева категорий.
@@ -11,33 +15,43 @@ import kz.meiir.telegram_bot.utils.TelegramBotUtils;
  *
  * <h2>Использование:</h2>
  * Эта команда вызывается при получении команды <code>/removeElement</code>.
+ * Если сообщение содержит несколько строк, каждая строка — путь отдельной категории,
+ * и все категории удаляются одним пакетом в одной транзакции.
  *
  * <h2>Пример вызова:</h2>
  * <pre>
- * new RemoveElementCommand(categoryService).execute(chatId, "/removeElement Категория");
+ * new RemoveElementCommand(categoryServiceFacade, messageSender).execute(chatId, "Категория");
  * </pre>
  *
  * @author Meiir Akhmetov
  * @version 1.0
  */
-
+@Component
 public class RemoveElementCommand implements BotCommand{
     private final CategoryServiceFacade categoryServiceFacade;
+    private final TelegramMessageSender messageSender;
 
     /**
      * Конструктор для инициализации {@code RemoveElementCommand}.
      *
      * @param categoryServiceFacade сервис для управления категориями.
+     * @param messageSender         компонент отправки сообщений.
      */
-    public RemoveElementCommand(CategoryServiceFacade categoryServiceFacade) {
+    public RemoveElementCommand(CategoryServiceFacade categoryServiceFacade, TelegramMessageSender messageSender) {
         this.categoryServiceFacade = categoryServiceFacade;
+        this.messageSender = messageSender;
+    }
+
+    @Override
+    public String getName() {
+        return "/removeElement";
     }
 
     /**
      * Выполняет команду удаления категории.
      *
      * @param chatId идентификатор чата, откуда пришла команда.
-     * @param text   текст команды (например, "/removeElement Категория").
+     * @param text   параметры команды (например, "Категория").
      */
     @Override
     public void execute(Long chatId, String text) {
@@ -47,28 +61,30 @@ public class RemoveElementCommand implements BotCommand{
      * Обрабатывает команду удаления категории.
      *
      * <h2>Описание:</h2>
-     * Проверяет правильность команды, извлекает название удаляемой категории
+     * Проверяет, указано ли название удаляемой категории,
      * и вызывает соответствующий метод {@code CategoryService}.
      *
-     * @param command текст команды, отправленный пользователем.
-     * @param chatId  идентификатор чата, куда будет отправлен результат выполнения команды.
+     * @param elementName название категории из параметров команды.
+     * @param chatId      идентификатор чата, куда будет отправлен результат выполнения команды.
      */
-    private void handleRemoveElementCommand(String command, Long chatId) {
-        if (command.startsWith("/removeElement")) {
-            // Извлекаем название категории из команды
-            String elementName = command.substring("/removeElement".length()).trim();
-
-            // Проверяем, указано ли название категории
-            if (elementName.isEmpty()) {
-                TelegramBotUtils.sendMessage(chatId, "Ошибка: Не указано название категории. Используйте:\n" +
-                        "/removeElement <название категории>");
-                return;
-            }
+    private void handleRemoveElementCommand(String elementName, Long chatId) {
+        // Проверяем, указано ли название категории
+        if (elementName.isEmpty()) {
+            messageSender.sendMessage(chatId, "Ошибка: Не указано название категории. Используйте:\n" +
+                    "/removeElement <название категории>");
+            return;
+        }
 
-            // Удаляем категорию через CategoryService
-            String response = categoryServiceFacade.removeCategory(elementName);
-            TelegramBotUtils.sendMessage(chatId, response);
+        if (elementName.indexOf('\n') >= 0) {
+            List<String> paths = elementName.lines().filter(line -> !line.isBlank()).toList();
+            List<CategoryBatchResult> results = categoryServiceFacade.removeCategories(chatId, paths);
+            messageSender.sendMessage(chatId, CategoryBatchResult.toMessage(results));
+            return;
         }
+
+        // Удаляем категорию через CategoryService
+        String response = categoryServiceFacade.removeCategory(chatId, elementName);
+        messageSender.sendMessage(chatId, response);
     }
 
 
@@ -1,6 +1,7 @@
 package kz.meiir.telegram_bot.bot.commands;
 
-import kz.meiir.telegram_bot.utils.TelegramBotUtils;
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import org.springframework.stereotype.Component;
 
 /**
  * Команда {@code StartCommand} используется для приветствия пользователя при первом взаимодействии с ботом.
@@ -14,13 +15,30 @@ import kz.meiir.telegram_bot.utils.TelegramBotUtils;
  *
  * <h2>Пример вызова:</h2>
  * <pre>
- * new StartCommand().execute(chatId, "/start");
+ * new StartCommand(messageSender).execute(chatId, "");
  * </pre>
  *
  * @author Meiir Akhmetov
  * @version 1.0
  */
+@Component
 public class StartCommand implements BotCommand{
+    private final TelegramMessageSender messageSender;
+
+    /**
+     * Конструктор для создания команды {@code StartCommand}.
+     *
+     * @param messageSender компонент отправки сообщений.
+     */
+    public StartCommand(TelegramMessageSender messageSender) {
+        this.messageSender = messageSender;
+    }
+
+    @Override
+    public String getName() {
+        return "/start";
+    }
+
     /**
      * Выполняет команду приветствия.
      *
@@ -29,11 +47,11 @@ public class StartCommand implements BotCommand{
      * и предлагает воспользоваться командой <code>/help</code> для получения списка доступных команд.
      *
      * @param chatId идентификатор чата, откуда пришла команда.
-     * @param text   текст команды (например, "/start").
+     * @param text   параметры команды (не используются).
      */
     @Override
     public void execute(Long chatId, String text) {
-        TelegramBotUtils.sendMessage(chatId, "Добро пожаловать! Введите /help для списка команд.");
+        messageSender.sendMessage(chatId, "Добро пожаловать! Введите /help для списка команд.");
 
     }
 }
@@ -1,17 +1,21 @@
 package kz.meiir.telegram_bot.bot.commands;
 
-import kz.meiir.telegram_bot.service.CategoryServiceFacade;
-import kz.meiir.telegram_bot.utils.TelegramBotUtils;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import kz.meiir.telegram_bot.service.CategoryImportResult;
+import kz.meiir.telegram_bot.service.CategoryImportService;
+import kz.meiir.telegram_bot.service.ChatSessionStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 /**
- * Команда {@code UploadCommand} используется для загрузки файла Excel с деревом категорий.
+ * Команда {@code UploadCommand} используется для загрузки файла с деревом категорий.
  *
  * <h2>Описание:</h2>
  * Этот класс активирует режим загрузки для пользователя, позволяет загружать документ,
@@ -21,108 +25,107 @@ import java.util.Map;
  * <ul>
  *     <li>Выполнение команды <code>/upload</code> активирует режим загрузки.</li>
  *     <li>Пользователь может загрузить файл Excel с двумя колонками: название категории и родительская категория.</li>
+ *     <li>Вместо книги Excel можно загрузить файл CSV или JSON Lines из <code>/download csv</code> или
+ *     <code>/download jsonl</code>; формат определяется по содержимому файла, а не по его имени.</li>
+ *     <li>Файл изменений, полученный командой <code>/download since</code>, распознаётся по заголовку:
+ *     его строки добавляют, удаляют или перемещают категории.</li>
  * </ul>
  *
  * @author Meiir Akhmetov
  * @version 1.0
  */
+@Slf4j
+@Component
 public class UploadCommand implements BotCommand {
-    private final Map<Long, Boolean> uploadMode;
-    private final CategoryServiceFacade categoryServiceFacade;
+    private static final String UPLOAD_STATE = "upload"; // Состояние чата в режиме загрузки
+
+    private final CategoryImportService categoryImportService;
+    private final TelegramMessageSender messageSender;
+    private final ChatSessionStore chatSessionStore;
 
     /**
      * Конструктор для создания экземпляра {@code UploadCommand}.
      *
-     * @param uploadMode   Состояние режима загрузки для пользователей (по chatId).
-     * @param categoryServiceFacade Сервис для работы с категориями.
+     * @param categoryImportService Сервис импорта категорий из файла.
+     * @param messageSender         Компонент отправки сообщений.
+     * @param chatSessionStore      Хранилище состояния чатов.
      */
-    public UploadCommand(Map<Long, Boolean> uploadMode, CategoryServiceFacade categoryServiceFacade) {
-        this.uploadMode = uploadMode;
-        this.categoryServiceFacade = categoryServiceFacade;
+    public UploadCommand(CategoryImportService categoryImportService, TelegramMessageSender messageSender,
+                         ChatSessionStore chatSessionStore) {
+        this.categoryImportService = categoryImportService;
+        this.messageSender = messageSender;
+        this.chatSessionStore = chatSessionStore;
+    }
+
+    @Override
+    public String getName() {
+        return "/upload";
+    }
+
+    /**
+     * Проверяет, включён ли режим загрузки для указанного чата.
+     *
+     * @param chatId идентификатор чата.
+     * @return {@code true}, если пользователь выполнил {@code /upload} и ещё не отправил файл.
+     */
+    public boolean isUploadMode(Long chatId) {
+        return UPLOAD_STATE.equals(chatSessionStore.getState(chatId));
     }
 
     /**
      * Активирует режим загрузки для указанного пользователя.
      *
      * @param chatId  идентификатор чата, откуда пришла команда.
-     * @param command текст команды (например, "/upload").
+     * @param command параметры команды (не используются).
      */
     @Override
     public void execute(Long chatId, String command) {
-        uploadMode.put(chatId, true);
-        TelegramBotUtils.sendMessage(chatId, "Теперь вы можете загрузить файл Excel с деревом категорий.");
+        chatSessionStore.setState(chatId, UPLOAD_STATE);
+        messageSender.sendMessage(chatId, "Теперь вы можете загрузить файл Excel, CSV или JSON Lines с деревом категорий.");
     }
 
     /**
-     * Обрабатывает загруженный файл Excel и добавляет категории в базу данных.
+     * Обрабатывает загруженный файл и добавляет категории в базу данных.
+     *
+     * <p>Файл скачивается один раз во временный файл, импортируется за один проход
+     * и удаляется. Пользователь получает итоги импорта: количество строк, скорость
+     * обработки и отклонённые строки.</p>
      *
      * @param update объект {@link Update}, содержащий данные о загруженном документе.
-     * @throws Exception если произошла ошибка обработки файла.
      */
-    public void handleDocument(Update update) throws Exception {
+    public void handleDocument(Update update) {
         Long chatId = update.getMessage().getChatId();
         String fileId = update.getMessage().getDocument().getFileId();
 
-        try (InputStream inputStream = TelegramBotUtils.getFileInputStream(fileId)) {
-            Workbook workbook = new XSSFWorkbook(inputStream);
-            Sheet sheet = workbook.getSheetAt(0);
-
-            for (Row row : sheet) {
-                Cell categoryCell = row.getCell(0);
-                Cell parentCell = row.getCell(1);
-
-                if (categoryCell != null) {
-                    String categoryName = categoryCell.getStringCellValue();
-                    String parentName = parentCell != null ? parentCell.getStringCellValue() : null;
-
-                    // Добавляем родительскую категорию, если её ещё нет
-                    if (parentName != null && !parentName.isEmpty()) {
-                        categoryServiceFacade.addCategory(parentName, null);
-                    }
-
-                    // Добавляем категорию
-                    categoryServiceFacade.addCategory(categoryName, parentName);
-                }
+        Path file = null;
+        try {
+            file = Files.createTempFile("upload-", ".tmp");
+            try (InputStream inputStream = messageSender.downloadFile(fileId)) {
+                Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            downloadAndProcessFile(fileId);
-            TelegramBotUtils.sendMessage(chatId, "Файл успешно загружен и обработан!");
-        } catch (TelegramApiException e) {
-            TelegramBotUtils.sendMessage(chatId, "Ошибка загрузки файла: " + e.getMessage());
-            throw new RuntimeException(e);
+            CategoryImportResult result = categoryImportService.importFile(chatId, file);
+            messageSender.sendMessage(chatId, result.toMessage());
+        } catch (TelegramApiException | IOException e) {
+            messageSender.sendMessage(chatId, "Ошибка загрузки файла: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Транзакция импорта откатена целиком (например, ошибка базы данных)
+            log.error("Ошибка импорта файла в чате {}", chatId, e);
+            messageSender.sendMessage(chatId, "Ошибка импорта файла: категории не добавлены. Попробуйте ещё раз.");
         } finally {
-            uploadMode.put(chatId, false);
+            chatSessionStore.clearState(chatId);
+            deleteQuietly(file);
         }
     }
 
-    /**
-     * Загружает и обрабатывает файл Excel, добавляя категории в базу данных.
-     *
-     * @param fileId идентификатор файла, загруженного в Telegram.
-     * @throws IOException если произошла ошибка при чтении файла.
-     */
-    private void downloadAndProcessFile(String fileId) throws IOException {
-        try (InputStream inputStream = TelegramBotUtils.getFileInputStream(fileId)) {
-            Workbook workbook = new XSSFWorkbook(inputStream);
-            Sheet sheet = workbook.getSheetAt(0);
-
-            for (Row row : sheet) {
-                Cell categoryCell = row.getCell(0);
-                Cell parentCell = row.getCell(1);
-
-                if (categoryCell != null) {
-                    String categoryName = categoryCell.getStringCellValue();
-                    String parentName = parentCell != null ? parentCell.getStringCellValue() : null;
-
-                    // Если родительское имя указано, сначала добавляем родительскую категорию, если она отсутствует
-                    if (parentName != null && !parentName.isEmpty()) {
-                        categoryServiceFacade.addCategory(parentName, null); // Сначала добавляем родителя
-                    }
-                    categoryServiceFacade.addCategory(categoryName, parentName); // Добавление категории с родителем
-                }
-            }
-        } catch (TelegramApiException e) {
-            throw new RuntimeException(e);
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
         }
     }
 }
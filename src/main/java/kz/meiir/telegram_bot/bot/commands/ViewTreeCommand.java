@@ -1,51 +1,189 @@
 package kz.meiir.telegram_bot.bot.commands;
 
-import kz.meiir.telegram_bot.repository.CategoryRepository;
+import kz.meiir.telegram_bot.bot.TelegramMessageSender;
+import kz.meiir.telegram_bot.service.CategoryLookup;
 import kz.meiir.telegram_bot.service.CategoryServiceFacade;
-import kz.meiir.telegram_bot.utils.TelegramBotUtils;
+import kz.meiir.telegram_bot.service.CategoryTreePage;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Команда {@code ViewTreeCommand} используется для отображения дерева категорий в Telegram-боте.
  *
  * <h2>Описание:</h2>
- * Этот класс получает данные о категориях из базы данных и формирует текстовое представление дерева категорий,
- * которое затем отправляется пользователю в чате.
+ * Этот класс получает данные о категориях из кеша дерева категорий и формирует его текстовое представление,
+ * которое затем отправляется пользователю в чате. Дерево выводится страницами не длиннее
+ * {@value #PAGE_LIMIT} символов (ограничение Telegram — 4096), разбитыми по границам строк.
+ * Переход между страницами выполняется кнопками под сообщением: сообщение редактируется,
+ * а текст страницы формируется заново из кеша.
  *
  * <h2>Использование:</h2>
- * Пользователь может выполнить команду <code>/viewTree</code>, чтобы увидеть текущее состояние дерева категорий.
+ * <ul>
+ *     <li><code>/viewTree</code> — всё дерево категорий.</li>
+ *     <li><code>/viewTree &lt;путь&gt;</code> — поддерево категории, например {@code /viewTree Электроника/Телефоны}.</li>
+ *     <li><code>/viewTree [путь] &lt;глубина&gt;</code> — ограничение глубины вывода,
+ *     например {@code /viewTree Электроника 1} (категория и её прямые потомки).</li>
+ * </ul>
  *
  * @author Meiir Akhmetov
  * @version 1.0
  */
+@Component
 public class ViewTreeCommand implements BotCommand{
+    /**
+     * Префикс данных кнопок листания: {@code tree:<id категории или 0>:<глубина>:<страница>}.
+     */
+    public static final String CALLBACK_PREFIX = "tree:";
+    static final int PAGE_LIMIT = 4000;
+
     private final CategoryServiceFacade categoryServiceFacade;
-    private final CategoryRepository categoryRepository;
+    private final TelegramMessageSender messageSender;
     /**
      * Конструктор для создания экземпляра {@code ViewTreeCommand}.
      *
      * @param categoryServiceFacade Сервис для работы с категориями.
-     * @param categoryRepository Репозиторий для доступа к данным категорий.
+     * @param messageSender         Компонент отправки сообщений.
      */
-    public ViewTreeCommand(CategoryServiceFacade categoryServiceFacade, CategoryRepository categoryRepository) {
+    public ViewTreeCommand(CategoryServiceFacade categoryServiceFacade, TelegramMessageSender messageSender) {
         this.categoryServiceFacade = categoryServiceFacade;
-        this.categoryRepository = categoryRepository;
+        this.messageSender = messageSender;
     }
+
+    @Override
+    public String getName() {
+        return "/viewTree";
+    }
+
     /**
      * Выполняет команду отображения дерева категорий.
      *
      * Если категорий нет, отправляет сообщение об отсутствии категорий.
-     * Если категории есть, получает дерево категорий и отправляет его пользователю.
+     * Иначе отправляет первую страницу дерева (или поддерева) с кнопками листания.
      *
      * @param chatId идентификатор чата, откуда пришла команда.
-     * @param text текст команды (например, "/viewTree").
+     * @param text параметры команды: необязательный путь категории и необязательная глубина.
      */
     @Override
     public void execute(Long chatId, String text) {
-        if (categoryRepository.count() == 0) {
-            TelegramBotUtils.sendMessage(chatId, "Категорий пока нет.");
+        Long rootId = null;
+        int depth = -1;
+        if (!text.isEmpty()) {
+            CategoryLookup lookup = categoryServiceFacade.findCategory(chatId, text);
+            if (lookup.ambiguous()) {
+                sendAmbiguous(chatId, text);
+                return;
+            }
+            rootId = lookup.id();
+            if (rootId == null) {
+                // Последнее слово может быть ограничением глубины: "/viewTree Путь 2"
+                int split = text.lastIndexOf(' ');
+                String last = text.substring(split + 1);
+                if (!last.matches("\\d{1,3}")) {
+                    messageSender.sendMessage(chatId, "Категория \"" + text + "\" не найдена.");
+                    return;
+                }
+                depth = Integer.parseInt(last);
+                String path = split < 0 ? "" : text.substring(0, split).trim();
+                if (!path.isEmpty()) {
+                    lookup = categoryServiceFacade.findCategory(chatId, path);
+                    if (lookup.ambiguous()) {
+                        sendAmbiguous(chatId, path);
+                        return;
+                    }
+                    rootId = lookup.id();
+                    if (rootId == null) {
+                        messageSender.sendMessage(chatId, "Категория \"" + path + "\" не найдена.");
+                        return;
+                    }
+                }
+            }
+        }
+
+        CategoryTreePage page = categoryServiceFacade.getCategoryTreePage(chatId, rootId, depth, 0, PAGE_LIMIT);
+        if (page == null || page.pageCount() == 0) {
+            messageSender.sendMessage(chatId, "Категорий пока нет.");
         } else {
-            String tree = categoryServiceFacade.getCategoryTree();
-            TelegramBotUtils.sendMessage(chatId, tree);
+            messageSender.sendMessage(chatId, pageText(page), keyboard(rootId, depth, page));
         }
     }
+
+    private void sendAmbiguous(Long chatId, String name) {
+        messageSender.sendMessage(chatId, "Найдено несколько категорий \"" + name
+                + "\". Укажите полный путь, например: /viewTree <корень>/<категория>");
+    }
+
+    /**
+     * Обрабатывает нажатие кнопки листания: заменяет текст сообщения запрошенной страницей.
+     *
+     * @param chatId        идентификатор чата, в котором нажата кнопка.
+     * @param callbackQuery данные нажатия.
+     */
+    public void handleCallback(Long chatId, CallbackQuery callbackQuery) {
+        AnswerCallbackQuery answer = new AnswerCallbackQuery(callbackQuery.getId());
+
+        // Данные кнопки приходят от клиента: устаревшая или изменённая кнопка не должна оставить её без ответа
+        String[] parts = callbackQuery.getData().substring(CALLBACK_PREFIX.length()).split(":");
+        Long rootId = null;
+        int depth = 0;
+        int pageNumber = 0;
+        boolean valid = parts.length == 3;
+        if (valid) {
+            try {
+                long id = Long.parseLong(parts[0]);
+                rootId = id == 0 ? null : id;
+                depth = Integer.parseInt(parts[1]);
+                pageNumber = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                valid = false;
+            }
+        }
+
+        CategoryTreePage page = valid
+                ? categoryServiceFacade.getCategoryTreePage(chatId, rootId, depth, pageNumber, PAGE_LIMIT)
+                : null;
+        if (page == null || page.pageCount() == 0) {
+            answer.setText("Категория больше не существует.");
+            messageSender.execute(chatId, answer);
+            return;
+        }
+
+        EditMessageText edit = new EditMessageText();
+        edit.setChatId(chatId.toString());
+        edit.setMessageId(callbackQuery.getMessage().getMessageId());
+        edit.setText(pageText(page));
+        edit.setReplyMarkup(keyboard(rootId, depth, page));
+        messageSender.execute(chatId, answer);
+        messageSender.execute(chatId, edit);
+    }
+
+    private static String pageText(CategoryTreePage page) {
+        if (page.pageCount() == 1) {
+            return page.text();
+        }
+        return page.text() + "\nСтраница " + (page.page() + 1) + " из " + page.pageCount();
+    }
+
+    private static InlineKeyboardMarkup keyboard(Long rootId, int depth, CategoryTreePage page) {
+        List<InlineKeyboardButton> row = new ArrayList<>(2);
+        if (page.hasPrevious()) {
+            row.add(button("◀ Назад", rootId, depth, page.page() - 1));
+        }
+        if (page.hasNext()) {
+            row.add(button("Вперёд ▶", rootId, depth, page.page() + 1));
+        }
+        return row.isEmpty() ? null : new InlineKeyboardMarkup(List.of(row));
+    }
+
+    private static InlineKeyboardButton button(String label, Long rootId, int depth, int page) {
+        InlineKeyboardButton button = new InlineKeyboardButton(label);
+        button.setCallbackData(CALLBACK_PREFIX + (rootId == null ? 0 : rootId) + ":" + depth + ":" + page);
+        return button;
+    }
 }
@@ -5,6 +5,10 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Класс {@code TelegramBotProperties} представляет собой конфигурацию для Telegram-бота.
  *
@@ -16,6 +20,35 @@ import org.springframework.context.annotation.Configuration;
  * <ul>
  *     <li><strong>username</strong>: Имя пользователя бота.</li>
  *     <li><strong>token</strong>: Токен доступа бота, необходимый для взаимодействия с API Telegram.</li>
+ *     <li><strong>maxPendingUpdates</strong>: Максимальное количество принятых, но ещё не обработанных
+ *     обновлений (по умолчанию 1000).</li>
+ *     <li><strong>globalMessagesPerSecond</strong>: Лимит исходящих сообщений на все чаты (по умолчанию 30 в секунду).</li>
+ *     <li><strong>chatMessagesPerSecond</strong>: Лимит исходящих сообщений в один личный чат (по умолчанию 1 в секунду).</li>
+ *     <li><strong>groupMessagesPerMinute</strong>: Лимит исходящих сообщений в одну группу (по умолчанию 20 в минуту).</li>
+ *     <li><strong>maxSendRetries</strong>: Количество повторных попыток отправки (по умолчанию 3).</li>
+ *     <li><strong>senderThreads</strong>: Количество потоков для асинхронных вызовов Bot API (по умолчанию 8).</li>
+ *     <li><strong>mode</strong>: Способ получения обновлений: {@code polling} (по умолчанию) или {@code webhook}.</li>
+ *     <li><strong>webhookUrl</strong>: Публичный адрес приложения; если задан, webhook регистрируется
+ *     в Telegram при запуске (например, {@code https://bot.example.com}).</li>
+ *     <li><strong>webhookPath</strong>: Путь HTTP-обработчика webhook (по умолчанию {@code /telegram/webhook}).</li>
+ *     <li><strong>webhookSecret</strong>: Секрет, который Telegram передаёт в заголовке
+ *     {@code X-Telegram-Bot-Api-Secret-Token}; если не задан, заголовок не проверяется.</li>
+ *     <li><strong>recentUpdatesCapacity</strong>: Количество последних {@code update_id}, запоминаемых
+ *     для отбрасывания повторных доставок (по умолчанию 10000).</li>
+ *     <li><strong>sessionStore</strong>: Хранилище состояния чатов: {@code memory} (по умолчанию)
+ *     или {@code jdbc} (общее для всех экземпляров).</li>
+ *     <li><strong>clusterNodes</strong>: Базовые адреса всех экземпляров бота в режиме webhook;
+ *     чаты распределяются между ними по идентификатору.</li>
+ *     <li><strong>clusterSelf</strong>: Базовый адрес текущего экземпляра (один из {@code clusterNodes}).</li>
+ *     <li><strong>cacheNotifications</strong>: Синхронизировать кеш дерева категорий между экземплярами
+ *     через PostgreSQL LISTEN/NOTIFY (по умолчанию {@code false}).</li>
+ *     <li><strong>treeCacheCapacity</strong>: Количество деревьев категорий чатов, одновременно хранимых
+ *     в памяти; дерево, к которому дольше всех не обращались, вытесняется (по умолчанию 1000).</li>
+ *     <li><strong>treeSnapshotFile</strong>: Файл, в который периодически сохраняются деревья из кеша
+ *     и из которого они восстанавливаются при запуске; если не задан, деревья не сохраняются.</li>
+ *     <li><strong>treeSnapshotInterval</strong>: Период сохранения деревьев в файл (по умолчанию 5 минут).</li>
+ *     <li><strong>exportCacheCapacity</strong>: Количество запоминаемых выгрузок дерева ({@code file_id} отправленных
+ *     файлов); выгрузка, к которой дольше всех не обращались, вытесняется (по умолчанию 1000, 0 — не запоминать).</li>
  * </ul>
  *
  * <h2>Использование:</h2>
@@ -34,4 +67,23 @@ import org.springframework.context.annotation.Configuration;
 public class TelegramBotProperties {
     private String username;    // Имя пользователя бота
     private String token;       // Токен доступа бота
+    private int maxPendingUpdates = 1000; // Размер очереди необработанных обновлений
+    private double globalMessagesPerSecond = 30; // Глобальный лимит отправки
+    private double chatMessagesPerSecond = 1;    // Лимит отправки в личный чат
+    private int groupMessagesPerMinute = 20;     // Лимит отправки в группу
+    private int maxSendRetries = 3;              // Повторы при 429 и ошибках сервера
+    private int senderThreads = 8;               // Потоки для executeAsync
+    private String mode = "polling";             // polling или webhook
+    private String webhookUrl;                   // Публичный адрес для регистрации webhook
+    private String webhookPath = "/telegram/webhook";
+    private String webhookSecret;                // Значение X-Telegram-Bot-Api-Secret-Token
+    private int recentUpdatesCapacity = 10000;   // Окно дедупликации update_id
+    private String sessionStore = "memory";      // memory или jdbc
+    private List<String> clusterNodes = new ArrayList<>(); // Адреса всех экземпляров
+    private String clusterSelf;                  // Адрес текущего экземпляра
+    private boolean cacheNotifications;          // LISTEN/NOTIFY для кеша дерева
+    private int treeCacheCapacity = 1000;        // Деревья чатов в памяти (LRU)
+    private String treeSnapshotFile;             // Снимок деревьев для быстрого запуска
+    private Duration treeSnapshotInterval = Duration.ofMinutes(5);
+    private int exportCacheCapacity = 1000;      // Отправленные выгрузки (LRU)
 }
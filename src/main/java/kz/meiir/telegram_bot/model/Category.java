@@ -12,10 +12,12 @@ import java.util.List;
  * <h2>Описание:</h2>
  * Этот класс используется для представления категорий в дереве категорий бота.
  * Каждая категория может иметь родительскую категорию и список дочерних категорий.
+ * У каждого чата своё дерево: родитель и дочерние категории принадлежат тому же чату.
  *
  * <h2>Свойства:</h2>
  * <ul>
  *     <li><strong>id</strong>: Уникальный идентификатор категории.</li>
+ *     <li><strong>chatId</strong>: Чат, которому принадлежит дерево категории.</li>
  *     <li><strong>name</strong>: Название категории.</li>
  *     <li><strong>parent</strong>: Родительская категория, к которой принадлежит данная категория.</li>
  *     <li><strong>children</strong>: Список дочерних категорий.</li>
@@ -26,6 +28,8 @@ import java.util.List;
  *     <li>Множественная связь с дочерними категориями с использованием аннотации {@code @OneToMany}.</li>
  *     <li>Одинарная связь с родительской категорией с использованием аннотации {@code @ManyToOne}.</li>
  * </ul>
+ * Обе связи загружаются лениво: дерево чата целиком читается одним запросом
+ * {@code CategoryRepository#loadTree(Long)}, а не обходом коллекций.
  *
  * <h2>Использование:</h2>
  * Экземпляры этого класса используются для создания иерархии категорий, которая может быть
@@ -45,13 +49,19 @@ public class Category {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id; // Уникальный идентификатор категории
 
+    @Column(name = "chat_id", nullable = false)
+    private Long chatId; // Чат-владелец дерева
+
     private String name; // Название категории
 
-    @ManyToOne
+    @Column(insertable = false, updatable = false, columnDefinition = "text")
+    private String path; // Путь от корня через "/", вычисляется базой данных
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_id")
     private Category parent; // Родительская категория
 
 
-    @OneToMany(mappedBy = "parent", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "parent", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Category> children = new ArrayList<>(); // Список дочерних категорий
 }
@@ -0,0 +1,88 @@
+package kz.meiir.telegram_bot.model;
+
+/**
+ * Строка журнала изменений категорий ({@code category_change}).
+ *
+ * @param version      порядковый номер изменения.
+ * @param xid          идентификатор транзакции, выполнившей изменение.
+ * @param chatId       чат, дерево которого изменено.
+ * @param categoryId   идентификатор категории.
+ * @param parentId     идентификатор родительской категории ({@code null} для корня).
+ * @param name         название категории.
+ * @param path         путь категории после изменения ({@code null} в строках, записанных до
+ *                     появления путей в журнале).
+ * @param previousPath путь категории до переименования или переноса ({@code null} для остальных изменений).
+ * @param operation    вид изменения.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public record CategoryChange(long version, long xid, long chatId, long categoryId, Long parentId, String name,
+                             String path, String previousPath, Operation operation) {
+
+    /**
+     * Вид изменения.
+     */
+    public enum Operation {
+        /** Категория добавлена. */
+        INSERT("добавление"),
+        /** Категория удалена. */
+        DELETE("удаление"),
+        /** Категория переименована или перенесена к другому родителю. */
+        UPDATE("перемещение");
+
+        private final String title;
+
+        Operation(String title) {
+            this.title = title;
+        }
+
+        /**
+         * @return название вида изменения в файле выгрузки изменений.
+         */
+        public String title() {
+            return title;
+        }
+
+        /**
+         * Возвращает вид изменения по коду из колонки {@code operation}.
+         *
+         * @param code {@code I}, {@code D} или {@code U}.
+         * @return вид изменения.
+         */
+        public static Operation of(String code) {
+            return switch (code) {
+                case "I" -> INSERT;
+                case "D" -> DELETE;
+                case "U" -> UPDATE;
+                default -> throw new IllegalArgumentException("Неизвестный вид изменения: " + code);
+            };
+        }
+
+        /**
+         * Возвращает вид изменения по названию из файла выгрузки изменений.
+         *
+         * @param title название без учёта регистра и пробелов по краям.
+         * @return вид изменения или {@code null}, если название неизвестно.
+         */
+        public static Operation ofTitle(String title) {
+            if (title != null) {
+                for (Operation operation : values()) {
+                    if (operation.title.equalsIgnoreCase(title.trim())) {
+                        return operation;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Возвращает узел дерева, соответствующий изменённой категории.
+     *
+     * @return узел с идентификатором, родителем и названием категории.
+     */
+    public CategoryTreeSnapshot.Node node() {
+        return new CategoryTreeSnapshot.Node(categoryId, parentId, name);
+    }
+}
@@ -0,0 +1,29 @@
+package kz.meiir.telegram_bot.model;
+
+/**
+ * Плоская строка дерева категорий, возвращаемая запросами {@code CategoryRepository}.
+ *
+ * <h2>Описание:</h2>
+ * Проекция используется вместо загрузки сущностей {@link Category} с их коллекциями:
+ * всё дерево (или поддерево) читается одним запросом, а иерархия собирается в памяти.
+ *
+ * <h2>Свойства:</h2>
+ * <ul>
+ *     <li><strong>id</strong>: Идентификатор категории.</li>
+ *     <li><strong>parentId</strong>: Идентификатор родительской категории ({@code null} для корня).</li>
+ *     <li><strong>name</strong>: Название категории.</li>
+ *     <li><strong>depth</strong>: Глубина узла относительно начала выборки (корень — 0).</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public interface CategoryTreeRow {
+    Long getId();
+
+    Long getParentId();
+
+    String getName();
+
+    Integer getDepth();
+}
@@ -0,0 +1,698 @@
+package kz.meiir.telegram_bot.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Неизменяемый снимок всего дерева категорий в памяти.
+ *
+ * <h2>Описание:</h2>
+ * Узлы хранятся в параллельных массивах примитивов и адресуются индексом {@code 0..size()-1}.
+ * Связи между узлами представлены индексами: родитель, первый дочерний узел и
+ * следующий узел того же уровня. Корневые узлы связаны в общий список, начинающийся
+ * с {@link #firstRoot()}. Порядок дочерних узлов совпадает с порядком добавления.
+ *
+ * <p>Названия всех узлов лежат подряд в одном массиве {@code char[]}, узел хранит только
+ * смещение начала названия. Объекты {@link String} создаются лишь при вызове {@link #name(int)};
+ * для вывода и сравнения без создания строк служат {@link #appendName(int, Appendable)},
+ * {@link #nameLength(int)} и {@link #nameEquals(int, String)}.</p>
+ *
+ * <h2>Индексы:</h2>
+ * <ul>
+ *     <li>по идентификатору категории ({@link #indexOf(long)});</li>
+ *     <li>по названию категории ({@link #findByName(String)}).</li>
+ * </ul>
+ * Оба индекса — хеш-таблицы с открытой адресацией в массивах {@code int[]}: в них нет
+ * объектов-обёрток и узлов цепочек, поэтому снимок из миллиона категорий занимает
+ * порядка сотни байт на категорию вместе с названием.
+ *
+ * <h2>Прямой обход:</h2>
+ * Позиции узлов в прямом (pre-order) обходе вычисляются один раз при первом обращении
+ * ({@link #position(int)}, {@link #atPosition(int)}). Поддерево любого узла занимает
+ * непрерывный диапазон позиций {@code [position(node), subtreeEnd(node))}, что позволяет
+ * выводить дерево страницами без построения полного текста.
+ *
+ * <h2>Двоичный формат:</h2>
+ * {@link #write(WritableByteChannel)} записывает массивы снимка как есть: количество узлов,
+ * количество символов названий, идентификаторы, идентификаторы родителей, смещения названий
+ * и символы названий. {@link #read(ByteBuffer)} копирует их обратно массовыми операциями
+ * (в том числе из файла, отображённого в память) и строит индексы, не создавая строк и узлов.
+ *
+ * <p>Снимок никогда не изменяется после создания: методы {@code withAdded} и
+ * {@code withRemoved} возвращают новый снимок, поэтому читатели могут использовать
+ * его без блокировок.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public final class CategoryTreeSnapshot {
+    /**
+     * Значение индекса, означающее отсутствие узла.
+     */
+    public static final int NONE = -1;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final CategoryTreeSnapshot EMPTY =
+            new CategoryTreeSnapshot(new long[0], new long[0], new char[0], new int[]{0}, 0);
+
+    private final int size;
+    private final long[] ids;
+    private final long[] parentIds;
+    private final char[] nameChars;
+    private final int[] nameOffsets; // название узла i — nameChars[nameOffsets[i]..nameOffsets[i + 1])
+    private final int[] parent;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int firstRoot;
+    private final int[] idTable;      // индекс узла + 1 или 0 для пустой ячейки
+    private final int[] nameTable;    // первый узел с данным названием + 1 или 0
+    private final int[] nextSameName; // следующий узел с тем же названием или NONE
+    private volatile Preorder preorder;
+
+    private CategoryTreeSnapshot(long[] ids, long[] parentIds, char[] nameChars, int[] nameOffsets, int size) {
+        this.size = size;
+        this.ids = ids;
+        this.parentIds = parentIds;
+        this.nameChars = nameChars;
+        this.nameOffsets = nameOffsets;
+        this.parent = new int[size];
+        this.firstChild = new int[size];
+        this.nextSibling = new int[size];
+        this.idTable = new int[tableCapacity(size)];
+        this.nameTable = new int[tableCapacity(size)];
+        this.nextSameName = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            int slot = idSlot(ids[i]);
+            if (idTable[slot] == 0) {
+                idTable[slot] = i + 1;
+            }
+        }
+
+        Arrays.fill(firstChild, NONE);
+        Arrays.fill(nextSibling, NONE);
+        Arrays.fill(nextSameName, NONE);
+        int[] lastChild = new int[size];
+        Arrays.fill(lastChild, NONE);
+        int[] lastSameName = new int[size];
+        int rootHead = NONE;
+        int rootTail = NONE;
+
+        for (int i = 0; i < size; i++) {
+            int p = parentIds[i] == 0 ? NONE : indexOf(parentIds[i]);
+            parent[i] = p;
+            if (p == NONE) {
+                if (rootTail == NONE) {
+                    rootHead = i;
+                } else {
+                    nextSibling[rootTail] = i;
+                }
+                rootTail = i;
+            } else {
+                if (lastChild[p] == NONE) {
+                    firstChild[p] = i;
+                } else {
+                    nextSibling[lastChild[p]] = i;
+                }
+                lastChild[p] = i;
+            }
+
+            int slot = nameSlot(i);
+            int first = nameTable[slot] - 1;
+            if (first == NONE) {
+                nameTable[slot] = i + 1;
+                lastSameName[i] = i;
+            } else {
+                nextSameName[lastSameName[first]] = i;
+                lastSameName[first] = i;
+            }
+        }
+        this.firstRoot = rootHead;
+    }
+
+    /**
+     * Возвращает пустой снимок.
+     *
+     * @return снимок без узлов.
+     */
+    public static CategoryTreeSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Строит снимок из списка узлов.
+     *
+     * @param nodes узлы дерева в произвольном порядке.
+     * @return новый снимок.
+     */
+    public static CategoryTreeSnapshot of(Collection<Node> nodes) {
+        return EMPTY.withAdded(nodes);
+    }
+
+    /**
+     * Возвращает новый снимок с добавленными узлами.
+     *
+     * @param nodes добавляемые узлы; родитель каждого узла должен присутствовать в снимке
+     *              или в этом же списке.
+     * @return новый снимок.
+     */
+    public CategoryTreeSnapshot withAdded(Collection<Node> nodes) {
+        int newSize = size + nodes.size();
+        int nameLength = nameOffsets[size];
+        for (Node node : nodes) {
+            nameLength += node.name().length();
+        }
+
+        long[] newIds = Arrays.copyOf(ids, newSize);
+        long[] newParentIds = Arrays.copyOf(parentIds, newSize);
+        char[] newNameChars = Arrays.copyOf(nameChars, nameLength);
+        int[] newNameOffsets = Arrays.copyOf(nameOffsets, newSize + 1);
+        int i = size;
+        for (Node node : nodes) {
+            newIds[i] = node.id();
+            newParentIds[i] = node.parentId() == null ? 0 : node.parentId();
+            String name = node.name();
+            name.getChars(0, name.length(), newNameChars, newNameOffsets[i]);
+            newNameOffsets[i + 1] = newNameOffsets[i] + name.length();
+            i++;
+        }
+        return new CategoryTreeSnapshot(newIds, newParentIds, newNameChars, newNameOffsets, newSize);
+    }
+
+    /**
+     * Возвращает новый снимок без указанной категории и всех её потомков.
+     *
+     * @param id идентификатор удаляемой категории.
+     * @return новый снимок или текущий, если категория не найдена.
+     */
+    public CategoryTreeSnapshot withRemoved(long id) {
+        return withRemoved(List.of(id));
+    }
+
+    /**
+     * Возвращает новый снимок без указанных категорий и всех их потомков.
+     *
+     * @param removedIds идентификаторы удаляемых категорий; отсутствующие в снимке пропускаются.
+     * @return новый снимок или текущий, если ни одна категория не найдена.
+     */
+    public CategoryTreeSnapshot withRemoved(Collection<Long> removedIds) {
+        boolean[] removed = new boolean[size];
+        int removedCount = 0;
+        int removedChars = 0;
+        int[] stack = new int[size];
+        for (long id : removedIds) {
+            int root = indexOf(id);
+            if (root == NONE || removed[root]) {
+                continue;
+            }
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int node = stack[--top];
+                if (removed[node]) {
+                    continue; // Поддерево уже удалено вместе с другой категорией из списка
+                }
+                removed[node] = true;
+                removedCount++;
+                removedChars += nameLength(node);
+                for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                    stack[top++] = child;
+                }
+            }
+        }
+        if (removedCount == 0) {
+            return this;
+        }
+
+        int newSize = size - removedCount;
+        long[] newIds = new long[newSize];
+        long[] newParentIds = new long[newSize];
+        char[] newNameChars = new char[nameOffsets[size] - removedChars];
+        int[] newNameOffsets = new int[newSize + 1];
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (!removed[i]) {
+                newIds[j] = ids[i];
+                newParentIds[j] = parentIds[i];
+                int length = nameLength(i);
+                System.arraycopy(nameChars, nameOffsets[i], newNameChars, newNameOffsets[j], length);
+                newNameOffsets[j + 1] = newNameOffsets[j] + length;
+                j++;
+            }
+        }
+        return new CategoryTreeSnapshot(newIds, newParentIds, newNameChars, newNameOffsets, newSize);
+    }
+
+    /**
+     * Возвращает размер снимка в двоичном формате {@link #write(WritableByteChannel)}.
+     *
+     * @return количество байт.
+     */
+    public long serializedSize() {
+        return 2L * Integer.BYTES + 2L * Long.BYTES * size + (long) Integer.BYTES * (size + 1)
+                + (long) Character.BYTES * nameOffsets[size];
+    }
+
+    /**
+     * Записывает снимок в двоичном формате.
+     *
+     * @param channel канал, в который записывается снимок (не закрывается методом).
+     * @throws IOException если произошла ошибка записи.
+     */
+    public void write(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        buffer.putInt(size).putInt(nameOffsets[size]);
+        for (int i = 0; i < size; i++) {
+            ensureRemaining(channel, buffer, Long.BYTES).putLong(ids[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            ensureRemaining(channel, buffer, Long.BYTES).putLong(parentIds[i]);
+        }
+        for (int i = 0; i <= size; i++) {
+            ensureRemaining(channel, buffer, Integer.BYTES).putInt(nameOffsets[i]);
+        }
+        for (int i = 0; i < nameOffsets[size]; i++) {
+            ensureRemaining(channel, buffer, Character.BYTES).putChar(nameChars[i]);
+        }
+        drain(channel, buffer);
+    }
+
+    private static ByteBuffer ensureRemaining(WritableByteChannel channel, ByteBuffer buffer, int needed)
+            throws IOException {
+        if (buffer.remaining() < needed) {
+            drain(channel, buffer);
+        }
+        return buffer;
+    }
+
+    private static void drain(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Читает снимок, записанный {@link #write(WritableByteChannel)}, начиная с текущей позиции буфера.
+     *
+     * @param buffer буфер с двоичным снимком; позиция сдвигается за конец снимка.
+     * @return восстановленный снимок.
+     * @throws IllegalArgumentException если данные повреждены.
+     */
+    public static CategoryTreeSnapshot read(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        int nameLength = buffer.getInt();
+        long expected = 2L * Long.BYTES * size + (long) Integer.BYTES * (size + 1) + (long) Character.BYTES * nameLength;
+        if (size < 0 || nameLength < 0 || buffer.remaining() < expected) {
+            throw new IllegalArgumentException("Повреждённый снимок дерева: неверный размер");
+        }
+
+        long[] ids = new long[size];
+        long[] parentIds = new long[size];
+        int[] nameOffsets = new int[size + 1];
+        char[] nameChars = new char[nameLength];
+        buffer.asLongBuffer().get(ids);
+        buffer.position(buffer.position() + Long.BYTES * size);
+        buffer.asLongBuffer().get(parentIds);
+        buffer.position(buffer.position() + Long.BYTES * size);
+        buffer.asIntBuffer().get(nameOffsets);
+        buffer.position(buffer.position() + Integer.BYTES * (size + 1));
+        buffer.asCharBuffer().get(nameChars);
+        buffer.position(buffer.position() + Character.BYTES * nameLength);
+
+        if (nameOffsets[0] != 0 || nameOffsets[size] != nameLength) {
+            throw new IllegalArgumentException("Повреждённый снимок дерева: неверные смещения названий");
+        }
+        for (int i = 0; i < size; i++) {
+            if (nameOffsets[i] > nameOffsets[i + 1]) {
+                throw new IllegalArgumentException("Повреждённый снимок дерева: неверные смещения названий");
+            }
+        }
+        return new CategoryTreeSnapshot(ids, parentIds, nameChars, nameOffsets, size);
+    }
+
+    /**
+     * @return количество узлов в снимке.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true}, если дерево не содержит категорий.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return индекс первого корневого узла или {@link #NONE}.
+     */
+    public int firstRoot() {
+        return firstRoot;
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return идентификатор категории.
+     */
+    public long id(int node) {
+        return ids[node];
+    }
+
+    /**
+     * Возвращает название категории. Каждый вызов создаёт новую строку;
+     * при выводе большого числа узлов используйте {@link #appendName(int, Appendable)}.
+     *
+     * @param node индекс узла.
+     * @return название категории.
+     */
+    public String name(int node) {
+        return new String(nameChars, nameOffsets[node], nameLength(node));
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return длина названия категории в символах.
+     */
+    public int nameLength(int node) {
+        return nameOffsets[node + 1] - nameOffsets[node];
+    }
+
+    /**
+     * @param node  индекс узла.
+     * @param index номер символа названия ({@code 0..nameLength(node)-1}).
+     * @return символ названия категории.
+     */
+    public char nameCharAt(int node, int index) {
+        return nameChars[nameOffsets[node] + index];
+    }
+
+    /**
+     * Сравнивает название категории со строкой без создания промежуточных строк.
+     *
+     * @param node индекс узла.
+     * @param name сравниваемое название.
+     * @return {@code true}, если названия совпадают посимвольно.
+     */
+    public boolean nameEquals(int node, String name) {
+        int offset = nameOffsets[node];
+        int length = nameLength(node);
+        if (length != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (nameChars[offset + i] != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Записывает название категории в приёмник без создания промежуточных строк.
+     *
+     * @param node индекс узла.
+     * @param out  приёмник текста.
+     * @throws IOException если приёмник не может записать текст.
+     */
+    public void appendName(int node, Appendable out) throws IOException {
+        int offset = nameOffsets[node];
+        int length = nameLength(node);
+        if (out instanceof Writer writer) {
+            writer.write(nameChars, offset, length);
+        } else if (out instanceof StringBuilder builder) {
+            builder.append(nameChars, offset, length);
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                out.append(nameChars[i]);
+            }
+        }
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return индекс родительского узла или {@link #NONE} для корневой категории.
+     */
+    public int parent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return индекс первого дочернего узла или {@link #NONE}.
+     */
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return индекс следующего узла того же уровня или {@link #NONE}.
+     */
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * Находит узел по идентификатору категории.
+     *
+     * @param id идентификатор категории.
+     * @return индекс узла или {@link #NONE}, если категория отсутствует.
+     */
+    public int indexOf(long id) {
+        int mask = idTable.length - 1;
+        for (int slot = (int) mix(id) & mask; idTable[slot] != 0; slot = (slot + 1) & mask) {
+            int node = idTable[slot] - 1;
+            if (ids[node] == id) {
+                return node;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Находит все узлы с указанным названием.
+     *
+     * @param name название категории (в нижнем регистре).
+     * @return индексы узлов; пустой массив, если совпадений нет.
+     */
+    public int[] findByName(String name) {
+        int mask = nameTable.length - 1;
+        for (int slot = (int) mix(name.hashCode()) & mask; nameTable[slot] != 0; slot = (slot + 1) & mask) {
+            int first = nameTable[slot] - 1;
+            if (nameEquals(first, name)) {
+                int count = 0;
+                for (int node = first; node != NONE; node = nextSameName[node]) {
+                    count++;
+                }
+                int[] found = new int[count];
+                count = 0;
+                for (int node = first; node != NONE; node = nextSameName[node]) {
+                    found[count++] = node;
+                }
+                return found;
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Возвращает названия категорий от корня до указанного узла включительно.
+     *
+     * @param node индекс узла.
+     * @return список названий, начиная с корневой категории.
+     */
+    public List<String> path(int node) {
+        List<String> path = new ArrayList<>();
+        for (int current = node; current != NONE; current = parent[current]) {
+            path.add(name(current));
+        }
+        return path.reversed();
+    }
+
+    /**
+     * Находит узел по пути названий от корня.
+     *
+     * @param segments названия категорий от корня (в нижнем регистре).
+     * @return индекс узла или {@link #NONE}, если путь не найден или пуст.
+     */
+    public int findPath(List<String> segments) {
+        int node = NONE;
+        int first = firstRoot;
+        for (String segment : segments) {
+            node = NONE;
+            for (int candidate = first; candidate != NONE; candidate = nextSibling[candidate]) {
+                if (nameEquals(candidate, segment)) {
+                    node = candidate;
+                    break;
+                }
+            }
+            if (node == NONE) {
+                return NONE;
+            }
+            first = firstChild[node];
+        }
+        return node;
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return глубина узла (0 для корневой категории).
+     */
+    public int depth(int node) {
+        return preorder().depth[node];
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return позиция узла в прямом обходе дерева.
+     */
+    public int position(int node) {
+        return preorder().position[node];
+    }
+
+    /**
+     * @param position позиция в прямом обходе дерева ({@code 0..size()-1}).
+     * @return индекс узла, находящегося на этой позиции.
+     */
+    public int atPosition(int position) {
+        return preorder().order[position];
+    }
+
+    /**
+     * @param node индекс узла.
+     * @return позиция, следующая за последним потомком узла в прямом обходе.
+     */
+    public int subtreeEnd(int node) {
+        return preorder().subtreeEnd[node];
+    }
+
+    private Preorder preorder() {
+        Preorder result = preorder;
+        if (result == null) {
+            // Гонка безопасна: все потоки вычислят одинаковый результат
+            result = new Preorder(this);
+            preorder = result;
+        }
+        return result;
+    }
+
+    /**
+     * Ёмкость хеш-таблицы: степень двойки, не меньше удвоенного числа узлов.
+     */
+    private static int tableCapacity(int size) {
+        return Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+    }
+
+    /**
+     * Ячейка таблицы идентификаторов для добавления узла с идентификатором {@code id}:
+     * первая пустая ячейка или ячейка узла с тем же идентификатором.
+     */
+    private int idSlot(long id) {
+        int mask = idTable.length - 1;
+        int slot = (int) mix(id) & mask;
+        while (idTable[slot] != 0 && ids[idTable[slot] - 1] != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Ячейка таблицы названий для узла {@code node}: первая пустая ячейка или ячейка
+     * первого узла с тем же названием. Хеш совпадает с {@link String#hashCode()}.
+     */
+    private int nameSlot(int node) {
+        int hash = 0;
+        for (int i = nameOffsets[node]; i < nameOffsets[node + 1]; i++) {
+            hash = 31 * hash + nameChars[i];
+        }
+        int mask = nameTable.length - 1;
+        int slot = (int) mix(hash) & mask;
+        while (nameTable[slot] != 0 && !sameName(nameTable[slot] - 1, node)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean sameName(int left, int right) {
+        return Arrays.equals(nameChars, nameOffsets[left], nameOffsets[left + 1],
+                nameChars, nameOffsets[right], nameOffsets[right + 1]);
+    }
+
+    /**
+     * Финализатор SplitMix64: равномерно распределяет последовательные значения по таблице.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Порядок прямого обхода дерева, вычисляемый без рекурсии.
+     */
+    private static final class Preorder {
+        private final int[] order;
+        private final int[] position;
+        private final int[] depth;
+        private final int[] subtreeEnd;
+
+        private Preorder(CategoryTreeSnapshot tree) {
+            int size = tree.size;
+            order = new int[size];
+            position = new int[size];
+            depth = new int[size];
+            subtreeEnd = new int[size];
+
+            int[] stack = new int[size];
+            int top = 0;
+            int next = 0;
+            for (int root = tree.firstRoot; root != NONE; root = tree.nextSibling[root]) {
+                stack[top++] = root;
+                while (top > 0) {
+                    int node = stack[top - 1];
+                    if (node >= 0) {
+                        // Первое посещение: назначаем позицию, спускаемся к первому ребёнку
+                        order[next] = node;
+                        position[node] = next++;
+                        int p = tree.parent[node];
+                        depth[node] = p == NONE ? 0 : depth[p] + 1;
+                        stack[top - 1] = ~node;
+                        int child = tree.firstChild[node];
+                        if (child != NONE) {
+                            stack[top++] = child;
+                        }
+                    } else {
+                        // Поддерево обработано: переходим к следующему узлу того же уровня
+                        node = ~node;
+                        subtreeEnd[node] = next;
+                        top--;
+                        int sibling = tree.nextSibling[node];
+                        if (sibling != NONE && tree.parent[node] != NONE) {
+                            stack[top++] = sibling;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Узел дерева, передаваемый при построении и изменении снимка.
+     *
+     * @param id       идентификатор категории.
+     * @param parentId идентификатор родительской категории или {@code null}.
+     * @param name     название категории.
+     */
+    public record Node(long id, Long parentId, String name) {
+    }
+}
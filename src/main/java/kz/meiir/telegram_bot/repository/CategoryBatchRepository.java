@@ -0,0 +1,213 @@
+package kz.meiir.telegram_bot.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.utils.RepositoryMetrics;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Репозиторий для пакетной записи категорий через JDBC.
+ *
+ * <h2>Описание:</h2>
+ * Используется при массовых операциях (например, импорте файла), где сохранение
+ * каждой сущности через JPA означало бы отдельный запрос на каждую строку.
+ * Идентификаторы выделяются заранее блоком из последовательности таблицы,
+ * поэтому дочерние категории могут ссылаться на родителей, созданных в том же пакете.
+ * Все методы, кроме выделения идентификаторов, работают с деревом одного чата.
+ *
+ * <h2>Методы:</h2>
+ * <ul>
+ *     <li><strong>allocateIds</strong>: Выделяет блок идентификаторов одним запросом.</li>
+ *     <li><strong>insertBatch</strong>: Вставляет категории одним JDBC-пакетом, пропуская уже существующие.</li>
+ *     <li><strong>findIdsByPaths</strong>: Находит идентификаторы категорий по списку путей одним запросом.</li>
+ *     <li><strong>findPathsByNames</strong>: Находит пути категорий по списку названий одним запросом.</li>
+ *     <li><strong>deleteSubtrees</strong>: Удаляет несколько поддеревьев одним JDBC-пакетом.</li>
+ *     <li><strong>move</strong>: Переименовывает категорию или переносит её к другому родителю вместе с потомками.</li>
+ * </ul>
+ *
+ * <p>Каждый вызов записывается в таймер {@code spring.data.repository.invocations}
+ * через {@link RepositoryMetrics}, поэтому JDBC- и JPA-запросы видны в одной метрике.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Repository
+public class CategoryBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RepositoryMetrics metrics;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate  шаблон JDBC.
+     * @param meterRegistry реестр метрик.
+     */
+    public CategoryBatchRepository(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = new RepositoryMetrics(meterRegistry, "CategoryBatchRepository");
+    }
+
+    /**
+     * Выделяет блок идентификаторов из последовательности таблицы {@code category}.
+     *
+     * @param count количество идентификаторов
+     * @return выделенные идентификаторы в порядке возрастания
+     */
+    public long[] allocateIds(int count) {
+        return timed("allocateIds", () -> jdbcTemplate.queryForList(
+                        "SELECT nextval(pg_get_serial_sequence('category', 'id')) FROM generate_series(1, ?)",
+                        Long.class, count)
+                .stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray());
+    }
+
+    /**
+     * Вставляет категории одним JDBC-пакетом, пропуская уже существующие.
+     *
+     * <p>Родитель каждой категории находится по пути в момент вставки, а не по идентификатору:
+     * если родитель из того же пакета уже был добавлен другой транзакцией и не вставлен,
+     * его потомки попадают к существующей категории. Родительские категории должны
+     * предшествовать дочерним в списке либо уже существовать в базе данных.</p>
+     *
+     * @param chatId     идентификатор чата
+     * @param categories категории с заранее выделенными идентификаторами
+     * @return для каждой категории {@code true}, если она вставлена; {@code false}, если категория
+     *         с таким путём уже существует (или её родитель удалён)
+     */
+    public boolean[] insertBatch(long chatId, List<NewCategory> categories) {
+        int[] counts = timed("insertBatch", () -> jdbcTemplate.batchUpdate("""
+                        INSERT INTO category (id, chat_id, name, parent_id)
+                        SELECT ?, ?, ?, parent.id
+                        FROM (SELECT CAST(? AS TEXT) AS path) node
+                                 LEFT JOIN category parent ON parent.chat_id = ? AND parent.path = node.path
+                        WHERE node.path IS NULL OR parent.id IS NOT NULL
+                        ON CONFLICT DO NOTHING
+                        """,
+                categories, categories.size(), (ps, category) -> {
+                    ps.setLong(1, category.id());
+                    ps.setLong(2, chatId);
+                    ps.setString(3, category.name());
+                    ps.setString(4, category.parentPath());
+                    ps.setLong(5, chatId);
+                })[0]);
+        boolean[] inserted = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            inserted[i] = counts[i] != 0;
+        }
+        return inserted;
+    }
+
+    /**
+     * Находит идентификаторы категорий по материализованным путям одним запросом.
+     *
+     * @param chatId идентификатор чата
+     * @param paths  нормализованные пути категорий
+     * @return найденные категории: путь → идентификатор
+     */
+    public Map<String, Long> findIdsByPaths(long chatId, Collection<String> paths) {
+        Map<String, Long> ids = HashMap.newHashMap(paths.size());
+        if (!paths.isEmpty()) {
+            timed("findIdsByPaths", () -> {
+                jdbcTemplate.query("SELECT path, id FROM category WHERE chat_id = ? AND path = ANY (?)",
+                        ps -> {
+                            ps.setLong(1, chatId);
+                            ps.setArray(2, ps.getConnection().createArrayOf("text", paths.toArray()));
+                        },
+                        rs -> {
+                            ids.put(rs.getString(1), rs.getLong(2));
+                        });
+                return null;
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Находит пути всех категорий с указанными названиями одним запросом.
+     *
+     * @param chatId идентификатор чата
+     * @param names  названия категорий в нижнем регистре
+     * @return название → пути категорий с этим названием на любом уровне
+     */
+    public Map<String, List<String>> findPathsByNames(long chatId, Collection<String> names) {
+        Map<String, List<String>> paths = HashMap.newHashMap(names.size());
+        if (!names.isEmpty()) {
+            timed("findPathsByNames", () -> {
+                jdbcTemplate.query("SELECT name, path FROM category WHERE chat_id = ? AND name = ANY (?)",
+                        ps -> {
+                            ps.setLong(1, chatId);
+                            ps.setArray(2, ps.getConnection().createArrayOf("text", names.toArray()));
+                        },
+                        rs -> {
+                            paths.computeIfAbsent(rs.getString(1), name -> new ArrayList<>()).add(rs.getString(2));
+                        });
+                return null;
+            });
+        }
+        return paths;
+    }
+
+    /**
+     * Удаляет категории вместе с потомками одним JDBC-пакетом.
+     *
+     * @param chatId идентификатор чата
+     * @param paths  нормализованные пути удаляемых категорий
+     * @return количество удалённых строк для каждого пути (0, если поддерево уже удалено
+     *         вместе с категорией, стоящей в списке раньше)
+     */
+    public int[] deleteSubtrees(long chatId, List<String> paths) {
+        return timed("deleteSubtrees", () -> jdbcTemplate.batchUpdate("""
+                        DELETE FROM category
+                        WHERE chat_id = ?
+                          AND (path = ? OR (path ~>=~ (? || '/') AND path ~<~ (? || '0')))
+                        """,
+                paths, paths.size(), (ps, path) -> {
+                    ps.setLong(1, chatId);
+                    ps.setString(2, path);
+                    ps.setString(3, path);
+                    ps.setString(4, path);
+                })[0]);
+    }
+
+    /**
+     * Переименовывает категорию или переносит её к другому родителю.
+     * Пути потомков обновляет триггер {@code category_path_move}.
+     *
+     * @param chatId   идентификатор чата
+     * @param id       идентификатор категории
+     * @param parentId идентификатор нового родителя или {@code null} для корня
+     * @param name     новое название
+     */
+    public void move(long chatId, long id, Long parentId, String name) {
+        timed("move", () -> jdbcTemplate.update(
+                "UPDATE category SET parent_id = ?, name = ? WHERE chat_id = ? AND id = ?",
+                new Object[]{parentId, name, chatId, id},
+                new int[]{Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.BIGINT}));
+    }
+
+    private <T> T timed(String method, Supplier<T> call) {
+        return metrics.timed(method, call);
+    }
+
+    /**
+     * Категория для пакетной вставки.
+     *
+     * @param id         заранее выделенный идентификатор
+     * @param name       нормализованное название
+     * @param parentPath материализованный путь родителя или {@code null} для корневой категории
+     */
+    public record NewCategory(long id, String name, String parentPath) {
+    }
+}
@@ -0,0 +1,111 @@
+package kz.meiir.telegram_bot.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.meiir.telegram_bot.model.CategoryChange;
+import kz.meiir.telegram_bot.utils.RepositoryMetrics;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Репозиторий журнала изменений категорий ({@code category_change}).
+ *
+ * <h2>Описание:</h2>
+ * Журнал заполняется триггерами таблицы {@code category}. Позиция в журнале — это {@code xmin}
+ * снимка базы данных: все изменения, не видимые снимку, выполнены транзакциями с
+ * {@code xid >= xmin}. Поэтому дерево, прочитанное после получения позиции, догоняется
+ * изменениями {@link #findChanges(long)} с этой позиции, даже если транзакции
+ * фиксировались не в порядке номеров изменений.
+ *
+ * <h2>Методы:</h2>
+ * <ul>
+ *     <li><strong>currentPosition</strong>: Возвращает текущую позицию журнала.</li>
+ *     <li><strong>findChanges</strong>: Возвращает изменения всех чатов, сделанные начиная с позиции,
+ *     или изменения одного чата в диапазоне позиций.</li>
+ * </ul>
+ *
+ * <p>Каждый вызов записывается в таймер {@code spring.data.repository.invocations}
+ * через {@link RepositoryMetrics}.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Repository
+public class CategoryChangeRepository {
+
+    private static final String COLUMNS =
+            "version, xid, chat_id, category_id, parent_id, name, path, previous_path, operation";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RepositoryMetrics metrics;
+
+    /**
+     * Конструктор репозитория.
+     *
+     * @param jdbcTemplate  шаблон JDBC.
+     * @param meterRegistry реестр метрик.
+     */
+    public CategoryChangeRepository(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = new RepositoryMetrics(meterRegistry, "CategoryChangeRepository");
+    }
+
+    /**
+     * Возвращает текущую позицию журнала ({@code xmin} снимка базы данных).
+     *
+     * <p>Позицию нужно получить до чтения дерева: тогда каждое изменение, которое
+     * прочитанное дерево могло не увидеть, находится в журнале начиная с неё.</p>
+     *
+     * @return позиция журнала.
+     */
+    public long currentPosition() {
+        return timed("currentPosition", () -> jdbcTemplate.queryForObject(
+                "SELECT pg_snapshot_xmin(pg_current_snapshot())::TEXT::BIGINT", Long.class));
+    }
+
+    /**
+     * Возвращает изменения, выполненные транзакциями начиная с указанной позиции.
+     *
+     * @param position позиция журнала, полученная {@link #currentPosition()}.
+     * @return изменения всех чатов в порядке их выполнения.
+     */
+    public List<CategoryChange> findChanges(long position) {
+        return timed("findChanges", () -> jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM category_change WHERE xid >= ? ORDER BY version",
+                CategoryChangeRepository::mapRow, position));
+    }
+
+    /**
+     * Возвращает изменения дерева чата, выполненные транзакциями в диапазоне позиций {@code [from, to)}.
+     *
+     * <p>Если позиция {@code to} получена {@link #currentPosition()}, все транзакции диапазона
+     * уже завершены: набор изменений окончателен, и следующий диапазон, начинающийся с {@code to},
+     * не пропустит и не повторит ни одного изменения. Строки без пути (записанные до появления
+     * путей в журнале) не возвращаются.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param from   позиция, с которой читаются изменения (включительно).
+     * @param to     позиция, до которой читаются изменения (не включительно).
+     * @return изменения в порядке их выполнения.
+     */
+    public List<CategoryChange> findChanges(long chatId, long from, long to) {
+        return timed("findChatChanges", () -> jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM category_change"
+                        + " WHERE chat_id = ? AND xid >= ? AND xid < ? AND path IS NOT NULL ORDER BY version",
+                CategoryChangeRepository::mapRow, chatId, from, to));
+    }
+
+    private static CategoryChange mapRow(ResultSet rs, int row) throws SQLException {
+        return new CategoryChange(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4),
+                rs.getObject(5, Long.class), rs.getString(6), rs.getString(7), rs.getString(8),
+                CategoryChange.Operation.of(rs.getString(9)));
+    }
+
+    private <T> T timed(String method, Supplier<T> call) {
+        return metrics.timed(method, call);
+    }
+}
@@ -1,8 +1,13 @@
 package kz.meiir.telegram_bot.repository;
 
 import kz.meiir.telegram_bot.model.Category;
+import kz.meiir.telegram_bot.model.CategoryTreeRow;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -15,17 +20,27 @@ import java.util.List;
  * методы для выполнения операций с категориями, такими как поиск и проверка
  * существования категории по имени.
  *
+ * <p>Все методы принимают идентификатор чата: у каждого чата своё дерево категорий,
+ * и индексы таблицы начинаются с {@code chat_id}, поэтому запрос читает только строки своего чата.</p>
+ *
  * <h2>Методы:</h2>
  * <ul>
- *     <li><strong>findByNameAndParentIsNull</strong>: Находит категорию по имени,
+ *     <li><strong>findByChatIdAndNameAndParentIsNull</strong>: Находит категорию по имени,
  *     если у нее нет родителя.</li>
- *     <li><strong>findByNameAndParent</strong>: Находит категорию по имени и
+ *     <li><strong>findByChatIdAndNameAndParent</strong>: Находит категорию по имени и
  *     указанному родителю.</li>
- *     <li><strong>findByParentIsNull</strong>: Возвращает список всех категорий,
+ *     <li><strong>findByChatIdAndParentIsNull</strong>: Возвращает список всех категорий,
  *     у которых нет родителя.</li>
- *     <li><strong>findByName</strong>: Находит категорию по имени.</li>
- *     <li><strong>existsByName</strong>: Проверяет, существует ли категория с
+ *     <li><strong>findByChatIdAndName</strong>: Находит все категории с указанным именем.</li>
+ *     <li><strong>findByChatIdAndPath</strong>: Находит категорию по полному пути одним индексным поиском.</li>
+ *     <li><strong>existsByChatIdAndName</strong>: Проверяет, существует ли категория с
  *     заданным именем.</li>
+ *     <li><strong>findIdByPath</strong>: Возвращает идентификатор категории по полному пути.</li>
+ *     <li><strong>deleteSubtree</strong>: Удаляет категорию со всеми потомками одним запросом.</li>
+ *     <li><strong>insertIfAbsent</strong>: Добавляет категорию, если на этом уровне
+ *     ещё нет категории с таким именем.</li>
+ *     <li><strong>loadTree</strong>: Загружает всё дерево чата одним запросом.</li>
+ *     <li><strong>loadSubtree</strong>: Загружает поддерево одним рекурсивным запросом.</li>
  * </ul>
  *
  * <h2>Использование:</h2>
@@ -42,41 +57,143 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     /**
      * Находит категорию по имени, если у нее нет родителя.
      *
-     * @param name имя категории
+     * @param chatId идентификатор чата
+     * @param name   имя категории
      * @return категория без родителя или null, если категория не найдена
      */
-    Category findByNameAndParentIsNull(String name);
+    Category findByChatIdAndNameAndParentIsNull(Long chatId, String name);
 
     /**
      * Находит категорию по имени и указанному родителю.
      *
-     * @param name имя категории
+     * @param chatId идентификатор чата
+     * @param name   имя категории
      * @param parent родительская категория
      * @return категория с указанным именем и родителем или null, если категория не найдена
      */
-    Category findByNameAndParent(String name, Category parent);
+    Category findByChatIdAndNameAndParent(Long chatId, String name, Category parent);
 
     /**
-     * Возвращает список всех категорий, у которых нет родителя.
+     * Возвращает список всех категорий чата, у которых нет родителя.
      *
+     * @param chatId идентификатор чата
      * @return список категорий без родителя
      */
-    List<Category> findByParentIsNull();
+    List<Category> findByChatIdAndParentIsNull(Long chatId);
 
     /**
-     * Находит категорию по имени.
+     * Находит все категории с указанным именем на любом уровне дерева.
      *
-     * @param name имя категории
-     * @return категория с указанным именем или null, если категория не найдена
+     * @param chatId идентификатор чата
+     * @param name   имя категории
+     * @return категории с указанным именем (одно имя может встречаться у разных родителей)
      */
-    Category findByName(String name);
+    List<Category> findByChatIdAndName(Long chatId, String name);
+
+    /**
+     * Находит категорию по материализованному пути.
+     *
+     * @param chatId идентификатор чата
+     * @param path   путь от корня через "/" в нижнем регистре, например {@code "электроника/телефоны"}
+     * @return категория или null, если категория не найдена
+     */
+    Category findByChatIdAndPath(Long chatId, String path);
 
     /**
      * Проверяет, существует ли категория с заданным именем.
      *
-     * @param name имя категории
+     * @param chatId идентификатор чата
+     * @param name   имя категории
      * @return true, если категория существует, иначе false
      */
-    boolean existsByName(String name);
+    boolean existsByChatIdAndName(Long chatId, String name);
+
+    /**
+     * Возвращает идентификатор категории по материализованному пути без загрузки сущности.
+     *
+     * @param chatId идентификатор чата
+     * @param path   путь от корня через "/" в нижнем регистре
+     * @return идентификатор категории или null, если категория не найдена
+     */
+    @Query("SELECT c.id FROM Category c WHERE c.chatId = :chatId AND c.path = :path")
+    Long findIdByPath(@Param("chatId") Long chatId, @Param("path") String path);
+
+    /**
+     * Удаляет категорию и всех её потомков одним запросом {@code DELETE}.
+     *
+     * <p>Поддерево выбирается диапазоном по материализованному пути, поэтому потомки
+     * не загружаются в контекст персистентности и удаляются без запроса на каждую строку.</p>
+     *
+     * @param chatId идентификатор чата
+     * @param path   путь удаляемой категории от корня через "/" в нижнем регистре
+     * @return количество удалённых категорий (0, если категория не найдена)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM category
+            WHERE chat_id = :chatId
+              AND (path = :path OR (path ~>=~ (:path || '/') AND path ~<~ (:path || '0')))
+            """, nativeQuery = true)
+    int deleteSubtree(@Param("chatId") Long chatId, @Param("path") String path);
+
+    /**
+     * Добавляет категорию одним запросом {@code INSERT ... ON CONFLICT DO NOTHING}.
+     *
+     * <p>Уникальность названия в пределах родителя (и среди корневых категорий)
+     * обеспечивают индексы базы данных, поэтому отдельная проверка существования
+     * не нужна, а одновременные добавления не создают дубликатов.</p>
+     *
+     * @param chatId   идентификатор чата
+     * @param name     имя категории
+     * @param parentId идентификатор родительской категории того же чата или null для корневой категории
+     * @return идентификатор новой категории или null, если такая категория уже существует
+     */
+    @Transactional
+    @Query(value = """
+            INSERT INTO category (chat_id, name, parent_id)
+            VALUES (:chatId, :name, CAST(:parentId AS BIGINT))
+            ON CONFLICT DO NOTHING
+            RETURNING id
+            """, nativeQuery = true)
+    Long insertIfAbsent(@Param("chatId") Long chatId, @Param("name") String name, @Param("parentId") Long parentId);
+
+    /**
+     * Загружает всё дерево категорий чата одним запросом.
+     *
+     * <p>Строки чата читаются одним диапазоном индекса по {@code chat_id}, глубина вычисляется
+     * по материализованному пути. Строки упорядочены по глубине, поэтому родитель всегда
+     * предшествует своим дочерним категориям.</p>
+     *
+     * @param chatId идентификатор чата
+     * @return плоский список узлов дерева
+     */
+    @Query(value = """
+            SELECT id AS "id", parent_id AS "parentId", name AS "name",
+                   length(path) - length(replace(path, '/', '')) AS "depth"
+            FROM category
+            WHERE chat_id = :chatId
+            ORDER BY "depth", id
+            """, nativeQuery = true)
+    List<CategoryTreeRow> loadTree(@Param("chatId") Long chatId);
+
+    /**
+     * Загружает поддерево категории одним диапазонным поиском по материализованному пути.
+     *
+     * @param chatId идентификатор чата
+     * @param rootId идентификатор корня поддерева
+     * @return плоский список узлов поддерева (глубина отсчитывается от {@code rootId})
+     */
+    @Query(value = """
+            SELECT c.id AS "id", c.parent_id AS "parentId", c.name AS "name",
+                   length(c.path) - length(replace(c.path, '/', ''))
+                       - (length(r.path) - length(replace(r.path, '/', ''))) AS "depth"
+            FROM category r
+            JOIN category c ON c.chat_id = r.chat_id
+                AND (c.path = r.path OR (c.path ~>=~ (r.path || '/') AND c.path ~<~ (r.path || '0')))
+            WHERE r.chat_id = :chatId AND r.id = :rootId
+            ORDER BY "depth", c.id
+            """, nativeQuery = true)
+    List<CategoryTreeRow> loadSubtree(@Param("chatId") Long chatId, @Param("rootId") Long rootId);
 
 }
@@ -0,0 +1,77 @@
+package kz.meiir.telegram_bot.service;
+
+import java.util.List;
+
+/**
+ * Результат обработки одного элемента пакетной операции над категориями.
+ *
+ * @param item     путь категории в том виде, в каком он был передан.
+ * @param outcome  итог обработки.
+ * @param affected количество затронутых категорий (для удаления — вместе с потомками).
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public record CategoryBatchResult(String item, Outcome outcome, int affected) {
+    private static final int MESSAGE_LIMIT = 4000;
+
+    /**
+     * Итог обработки элемента.
+     */
+    public enum Outcome {
+        ADDED("добавлена"),
+        EXISTS("уже существует"),
+        REMOVED("удалена"),
+        NOT_FOUND("не найдена"),
+        PARENT_NOT_FOUND("родительская категория не найдена"),
+        AMBIGUOUS_PARENT("найдено несколько родительских категорий с таким названием, укажите полный путь"),
+        INVALID("название содержит недопустимые символы");
+
+        private final String description;
+
+        Outcome(String description) {
+            this.description = description;
+        }
+
+        /**
+         * @return {@code true}, если элемент обработан успешно.
+         */
+        public boolean isSuccess() {
+            return this == ADDED || this == REMOVED;
+        }
+    }
+
+    /**
+     * @return описание результата для пользователя.
+     */
+    public String toMessage() {
+        String line = " - " + item + ": " + outcome.description;
+        if (outcome == Outcome.REMOVED && affected != 1) {
+            line += affected == 0 ? " ранее в этом же пакете" : " (всего категорий: " + affected + ")";
+        }
+        return line;
+    }
+
+    /**
+     * Формирует итоговое сообщение по всем элементам пакета.
+     *
+     * <p>Сообщение ограничено по длине: если строк слишком много, последние заменяются их количеством.</p>
+     *
+     * @param results результаты обработки в исходном порядке.
+     * @return текст с итогами пакетной операции.
+     */
+    public static String toMessage(List<CategoryBatchResult> results) {
+        long succeeded = results.stream().filter(result -> result.outcome().isSuccess()).count();
+        StringBuilder message = new StringBuilder("Обработано: ").append(results.size())
+                .append(", успешно: ").append(succeeded).append('\n');
+        for (int i = 0; i < results.size(); i++) {
+            String line = results.get(i).toMessage();
+            if (message.length() + line.length() + 1 > MESSAGE_LIMIT) {
+                message.append("… и ещё ").append(results.size() - i);
+                break;
+            }
+            message.append(line).append('\n');
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,219 @@
+package kz.meiir.telegram_bot.service;
+
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.repository.CategoryBatchRepository;
+import kz.meiir.telegram_bot.utils.CategoryPaths;
+import kz.meiir.telegram_bot.validation.CategoryNameValidator;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Сервис пакетного добавления и удаления категорий.
+ *
+ * <p>Весь пакет обрабатывается в одной транзакции фиксированным числом запросов,
+ * независимо от количества элементов:</p>
+ * <ul>
+ *     <li>добавление — поиск всех родителей и существующих категорий одним запросом
+ *     {@code path = ANY(...)}, выделение идентификаторов и JDBC-пакет вставок;</li>
+ *     <li>удаление — поиск всех категорий одним запросом и JDBC-пакет удалений поддеревьев.</li>
+ * </ul>
+ *
+ * <h2>Формат элемента:</h2>
+ * Путь категории через "/", последний элемент — добавляемая или удаляемая категория.
+ * Как и в {@link CategoryCreateService}, родитель из одного названия ищется сначала
+ * среди корневых категорий, затем на любом уровне, если название однозначно.
+ * Родитель, указанный полным путём, может быть добавлен предыдущим элементом того же пакета.
+ *
+ * <h2>Параллельные изменения:</h2>
+ * Вставка не прерывает транзакцию, если категорию с тем же путём успела добавить другая транзакция:
+ * такой элемент получает результат {@link CategoryBatchResult.Outcome#EXISTS}, а кеш дерева чата
+ * сбрасывается после фиксации.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@AllArgsConstructor
+@Service
+public class CategoryBatchService {
+
+    private final CategoryBatchRepository categoryBatchRepository;
+    private final CategoryTreeCache categoryTreeCache;
+
+    /**
+     * Добавляет категории пакетом.
+     *
+     * @param chatId идентификатор чата.
+     * @param paths  пути добавляемых категорий.
+     * @return результат для каждого элемента в исходном порядке.
+     */
+    @Transactional
+    public List<CategoryBatchResult> addCategories(long chatId, List<String> paths) {
+        List<List<String>> parsed = new ArrayList<>(paths.size());
+        Set<String> lookup = new HashSet<>();
+        for (String path : paths) {
+            List<String> segments = CategoryPaths.segments(path);
+            segments.replaceAll(CategoryNameValidator::normalize);
+            if (segments.isEmpty() || segments.contains(null)) {
+                parsed.add(null);
+                continue;
+            }
+            parsed.add(segments);
+            lookup.add(String.join(CategoryPaths.SEPARATOR, segments));
+            if (segments.size() > 1) {
+                lookup.add(String.join(CategoryPaths.SEPARATOR, segments.subList(0, segments.size() - 1)));
+            }
+        }
+
+        // Один запрос на всех родителей и на уже существующие категории
+        Map<String, Long> known = categoryBatchRepository.findIdsByPaths(chatId, lookup);
+        Map<String, List<String>> parentsByName = resolveParentsByName(chatId, parsed, known);
+
+        List<CategoryBatchResult> results = new ArrayList<>(paths.size());
+        List<CategoryTreeSnapshot.Node> created = new ArrayList<>();
+        List<CategoryBatchRepository.NewCategory> inserts = new ArrayList<>();
+        List<Integer> insertResults = new ArrayList<>(); // Индекс результата для каждой вставки
+        long[] ids = null;
+        for (int i = 0; i < paths.size(); i++) {
+            List<String> segments = parsed.get(i);
+            if (segments == null) {
+                results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.INVALID, 0));
+                continue;
+            }
+
+            String name = segments.getLast();
+            String parentPath = null;
+            Long parentId = null;
+            if (segments.size() > 1) {
+                parentPath = String.join(CategoryPaths.SEPARATOR, segments.subList(0, segments.size() - 1));
+                List<String> candidates = parentsByName.get(parentPath);
+                if (!known.containsKey(parentPath) && candidates != null) {
+                    if (candidates.size() > 1) {
+                        results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.AMBIGUOUS_PARENT, 0));
+                        continue;
+                    }
+                    parentPath = candidates.getFirst();
+                }
+                parentId = known.get(parentPath);
+                if (parentId == null) {
+                    results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.PARENT_NOT_FOUND, 0));
+                    continue;
+                }
+            }
+
+            String path = parentPath == null ? name : parentPath + CategoryPaths.SEPARATOR + name;
+            if (known.containsKey(path)) {
+                results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.EXISTS, 0));
+                continue;
+            }
+
+            if (ids == null) {
+                ids = categoryBatchRepository.allocateIds(paths.size() - i);
+            }
+            long id = ids[created.size()];
+            created.add(new CategoryTreeSnapshot.Node(id, parentId, name));
+            inserts.add(new CategoryBatchRepository.NewCategory(id, name, parentPath));
+            known.put(path, id);
+            insertResults.add(results.size());
+            results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.ADDED, 1));
+        }
+
+        if (!created.isEmpty()) {
+            boolean[] inserted = categoryBatchRepository.insertBatch(chatId, inserts);
+            boolean conflicted = false;
+            for (int i = 0; i < inserted.length; i++) {
+                if (!inserted[i]) {
+                    // Категорию с тем же путём успела добавить другая транзакция
+                    int index = insertResults.get(i);
+                    results.set(index, new CategoryBatchResult(results.get(index).item(),
+                            CategoryBatchResult.Outcome.EXISTS, 0));
+                    conflicted = true;
+                }
+            }
+            if (conflicted) {
+                // Потомки пропущенных категорий привязаны к существующим строкам, а не к выделенным id
+                categoryTreeCache.invalidateAfterCommit(chatId);
+            } else {
+                categoryTreeCache.addedAfterCommit(chatId, created);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Удаляет категории вместе с потомками пакетом.
+     *
+     * @param chatId идентификатор чата.
+     * @param paths  полные пути удаляемых категорий.
+     * @return результат для каждого элемента в исходном порядке.
+     */
+    @Transactional
+    public List<CategoryBatchResult> removeCategories(long chatId, List<String> paths) {
+        List<String> normalized = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            List<String> segments = CategoryPaths.segments(path);
+            segments.replaceAll(CategoryNameValidator::normalize);
+            normalized.add(segments.isEmpty() || segments.contains(null)
+                    ? null
+                    : String.join(CategoryPaths.SEPARATOR, segments));
+        }
+
+        Map<String, Long> found = categoryBatchRepository.findIdsByPaths(chatId,
+                normalized.stream().filter(path -> path != null).toList());
+        List<String> toDelete = normalized.stream().filter(found::containsKey).toList();
+        int[] deleted = toDelete.isEmpty() ? new int[0] : categoryBatchRepository.deleteSubtrees(chatId, toDelete);
+
+        List<CategoryBatchResult> results = new ArrayList<>(paths.size());
+        int next = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            String path = normalized.get(i);
+            if (path == null) {
+                results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.INVALID, 0));
+            } else if (!found.containsKey(path)) {
+                results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.NOT_FOUND, 0));
+            } else {
+                results.add(new CategoryBatchResult(paths.get(i), CategoryBatchResult.Outcome.REMOVED, deleted[next++]));
+            }
+        }
+
+        categoryTreeCache.removedAfterCommit(chatId, toDelete.stream().map(found::get).toList());
+        return results;
+    }
+
+    /**
+     * Находит одним запросом родителей, указанных одним названием без пути и не являющихся
+     * корневыми категориями, и дозагружает существующие категории под ними.
+     *
+     * @return название → пути категорий с этим названием (только для таких родителей).
+     */
+    private Map<String, List<String>> resolveParentsByName(long chatId, List<List<String>> parsed,
+                                                           Map<String, Long> known) {
+        Set<String> names = new HashSet<>();
+        for (List<String> segments : parsed) {
+            if (segments != null && segments.size() == 2 && !known.containsKey(segments.getFirst())) {
+                names.add(segments.getFirst());
+            }
+        }
+        if (names.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, List<String>> parentsByName = categoryBatchRepository.findPathsByNames(chatId, names);
+        Set<String> lookup = new HashSet<>();
+        for (List<String> segments : parsed) {
+            List<String> candidates = segments == null || segments.size() != 2 ? null : parentsByName.get(segments.getFirst());
+            if (candidates != null && candidates.size() == 1) {
+                lookup.add(candidates.getFirst());
+                lookup.add(candidates.getFirst() + CategoryPaths.SEPARATOR + segments.getLast());
+            }
+        }
+        known.putAll(categoryBatchRepository.findIdsByPaths(chatId, lookup));
+        return parentsByName;
+    }
+}
@@ -1,11 +1,15 @@
 package kz.meiir.telegram_bot.service;
 
 import kz.meiir.telegram_bot.model.Category;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
 import kz.meiir.telegram_bot.repository.CategoryRepository;
+import kz.meiir.telegram_bot.utils.CategoryPaths;
 import kz.meiir.telegram_bot.validation.CategoryNameValidator;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Сервис для добавления категорий в базу данных.
  *
@@ -16,10 +20,14 @@ import org.springframework.stereotype.Service;
  * <h2>Основные функции:</h2>
  * <ul>
  *     <li>Валидация названий категорий.</li>
- *     <li>Проверка существования родительской категории (если указана).</li>
+ *     <li>Поиск родительской категории по полному пути (если указана).</li>
  *     <li>Добавление новой категории на верхний уровень или в подкатегорию.</li>
  * </ul>
  *
+ * <p>Проверка дубликатов выполняется уникальными индексами базы данных:
+ * категория добавляется запросом {@code INSERT ... ON CONFLICT DO NOTHING}
+ * без предварительного чтения.</p>
+ *
  * @author Meiir Akhmetov
  * @version 1.0
  */
@@ -28,6 +36,7 @@ import org.springframework.stereotype.Service;
 public class CategoryCreateService {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
 
     /**
      * Добавляет новую категорию в базу данных.
@@ -36,49 +45,61 @@ public class CategoryCreateService {
      * родительской категории (если указана) и добавляет новую категорию
      * на соответствующий уровень иерархии.</p>
      *
+     * @param chatId      идентификатор чата, в дерево которого добавляется категория
      * @param elementName имя новой категории
-     * @param parentName  имя родительской категории (может быть {@code null})
+     * @param parentName  путь родительской категории через "/" или её имя, если оно
+     *                    встречается в дереве один раз (может быть {@code null})
      * @return сообщение о результате операции:
      *         <ul>
      *             <li>Успех: подтверждение добавления категории.</li>
      *             <li>Ошибка: причины невозможности добавления.</li>
      *         </ul>
      */
-    public String addCategory(String elementName, String parentName) {
-        // Проверка корректности имени новой категории
-        if (CategoryNameValidator.isValidCategoryName(elementName)) {
+    public String addCategory(long chatId, String elementName, String parentName) {
+        // Проверка корректности и нормализация имени новой категории
+        String name = CategoryNameValidator.normalize(elementName);
+        if (name == null) {
             return "Ошибка: Название категории содержит недопустимые символы.";
         }
 
-        // Проверка корректности имени родительской категории
-        if (parentName != null && CategoryNameValidator.isValidCategoryName(elementName)) {
-            return "Ошибка: Название родительской категории содержит недопустимые символы.";
-        }
+        Category parent = null;
+        if (parentName != null) {
+            // Проверка корректности каждого элемента пути родительской категории
+            List<String> parentPath = CategoryPaths.segments(parentName);
+            parentPath.replaceAll(CategoryNameValidator::normalize);
+            if (parentPath.contains(null)) {
+                return "Ошибка: Название родительской категории содержит недопустимые символы.";
+            }
 
-        // Поиск родительской категории в базе
-        Category parent = parentName == null ? null : categoryRepository.findByName(parentName.toLowerCase());
+            // Поиск родительской категории по полному пути одним индексным запросом
+            parent = parentPath.isEmpty() ? null : categoryRepository.findByChatIdAndPath(chatId, String.join(CategoryPaths.SEPARATOR, parentPath));
 
-        if (parentName != null && parent == null) {
-            return "Ошибка: Родительская категория \"" + parentName + "\" не найдена.";
+            // Одно название без пути допускается, если оно однозначно
+            if (parent == null && parentPath.size() == 1) {
+                List<Category> candidates = categoryRepository.findByChatIdAndName(chatId, parentPath.getFirst());
+                if (candidates.size() > 1) {
+                    return "Ошибка: Найдено несколько категорий \"" + parentName + "\". Укажите полный путь, например: "
+                            + "/addElement <корень>/<родитель>/<элемент>";
+                }
+                parent = candidates.isEmpty() ? null : candidates.getFirst();
+            }
+
+            if (parent == null) {
+                return "Ошибка: Родительская категория \"" + parentName + "\" не найдена.";
+            }
         }
 
-        // Проверка существования категории на соответствующем уровне
-        boolean categoryExists = parent != null
-                ? categoryRepository.findByNameAndParent(elementName.toLowerCase(), parent) != null
-                : categoryRepository.existsByName(elementName.toLowerCase());
+        // Добавление категории; дубликат на том же уровне отклоняется уникальным индексом
+        Long parentId = parent != null ? parent.getId() : null;
+        Long id = categoryRepository.insertIfAbsent(chatId, name, parentId);
 
-        if (categoryExists) {
+        if (id == null) {
             return parent != null
                     ? "Ошибка: Категория с таким названием уже существует в родительской категории \"" + parentName + "\"."
                     : "Ошибка: Категория с таким названием уже существует на верхнем уровне.";
         }
 
-        // Создание и сохранение новой категории
-        Category newCategory = new Category();
-        newCategory.setName(elementName.toLowerCase());
-        newCategory.setParent(parent);
-
-        categoryRepository.save(newCategory);
+        categoryTreeCache.added(chatId, new CategoryTreeSnapshot.Node(id, parentId, name));
 
         return "Категория \"" + elementName + "\" успешно добавлена"
                 + (parent != null ? " в родительскую категорию \"" + parentName + "\"." : ".");
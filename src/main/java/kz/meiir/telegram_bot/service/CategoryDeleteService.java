@@ -1,11 +1,13 @@
 package kz.meiir.telegram_bot.service;
 
-import kz.meiir.telegram_bot.model.Category;
 import kz.meiir.telegram_bot.repository.CategoryRepository;
+import kz.meiir.telegram_bot.utils.CategoryPaths;
 import kz.meiir.telegram_bot.validation.CategoryNameValidator;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Сервис для удаления категорий из базы данных.
  *
@@ -16,10 +18,13 @@ import org.springframework.stereotype.Service;
  * <h2>Основные функции:</h2>
  * <ul>
  *     <li>Валидация имени категории.</li>
- *     <li>Поиск категории по имени и иерархии.</li>
- *     <li>Удаление категории из базы данных.</li>
+ *     <li>Поиск категории по полному пути одним индексным запросом.</li>
+ *     <li>Удаление категории вместе с поддеревом одним запросом к базе данных.</li>
  * </ul>
  *
+ * <p>Потомки удаляются диапазоном по материализованному пути, без загрузки сущностей
+ * и каскадного удаления Hibernate, после чего поддерево удаляется из кеша дерева.</p>
+ *
  * @author Meiir Akhmetov
  * @version 1.0
  */
@@ -28,52 +33,49 @@ import org.springframework.stereotype.Service;
 public class CategoryDeleteService {
 
     private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
 
     /**
      * Удаляет категорию из базы данных.
      *
      * <p>Метод позволяет удалить категорию по её имени, которое может включать
      * иерархический путь через символ "/". Проводится проверка корректности
-     * имени, поиск категории в указанной иерархии, а затем её удаление.</p>
+     * каждого элемента пути, поиск категории по материализованному пути, а затем её удаление.</p>
      *
-     * @param name имя категории или полный путь до неё, например: {@code "Родитель/ДочерняяКатегория"}.
+     * @param chatId идентификатор чата, из дерева которого удаляется категория.
+     * @param name   имя категории или полный путь до неё, например: {@code "Родитель/ДочерняяКатегория"}.
      * @return сообщение о результате операции:
      *         <ul>
      *             <li>Успех: подтверждение удаления категории.</li>
      *             <li>Ошибка: причины невозможности удаления (некорректное имя, категория не найдена и т.д.).</li>
      *         </ul>
      */
-    public String removeCategory(String name) {
-        if (CategoryNameValidator.isValidCategoryName(name)) {
-            return "Ошибка: Название категории содержит недопустимые символы.";
-        }
-
+    public String removeCategory(long chatId, String name) {
         // Разделение пути категории по символу "/"
-        String[] parts = name.split("/");
+        List<String> parts = CategoryPaths.segments(name);
 
-        if (parts.length == 0) {
+        if (parts.isEmpty()) {
             return "Ошибка: название категории пустое.";
         }
 
-        Category parent = null;
-        Category categoryToDelete = null;
-
-        // Поиск категории по имени с учетом иерархии
-        for (String part : parts) {
-            categoryToDelete = (parent == null)
-                    ? categoryRepository.findByNameAndParentIsNull(part.toLowerCase())
-                    : categoryRepository.findByNameAndParent(part.toLowerCase(), parent);
+        parts.replaceAll(CategoryNameValidator::normalize);
+        if (parts.contains(null)) {
+            return "Ошибка: Название категории содержит недопустимые символы.";
+        }
 
-            if (categoryToDelete == null) {
-                return "Ошибка: Категория \"" + part + "\" не найдена.";
-            }
+        // Поиск категории по полному пути
+        String path = String.join(CategoryPaths.SEPARATOR, parts);
+        Long id = categoryRepository.findIdByPath(chatId, path);
 
-            parent = categoryToDelete; // Переход на следующий уровень
+        if (id == null) {
+            return "Ошибка: Категория \"" + name + "\" не найдена.";
         }
 
-        // Удаление найденной категории
-        categoryRepository.delete(categoryToDelete);
-        return "Категория \"" + name + "\" успешно удалена.";
+        // Удаление найденной категории и всех её потомков
+        int removed = categoryRepository.deleteSubtree(chatId, path);
+        categoryTreeCache.removed(chatId, id);
+        return "Категория \"" + name + "\" успешно удалена"
+                + (removed > 1 ? " вместе с вложенными категориями (всего удалено: " + removed + ")." : ".");
     }
 
 }
\ No newline at end of file
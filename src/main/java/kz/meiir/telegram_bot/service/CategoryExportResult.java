@@ -0,0 +1,14 @@
+package kz.meiir.telegram_bot.service;
+
+/**
+ * Итоги выгрузки категорий в файл.
+ *
+ * @param rows    количество записанных строк (без заголовка).
+ * @param version версия дерева, которую отражает файл: следующая выгрузка изменений
+ *                ({@code /download since <версия>}) начинается с неё.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public record CategoryExportResult(int rows, long version) {
+}
@@ -0,0 +1,226 @@
+package kz.meiir.telegram_bot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.meiir.telegram_bot.model.CategoryChange;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.repository.CategoryChangeRepository;
+import kz.meiir.telegram_bot.utils.CategoryPaths;
+import lombok.AllArgsConstructor;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сервис экспорта дерева категорий в Excel, CSV или JSON Lines ({@link CategoryFileFormat}).
+ *
+ * <p>Книга Excel формируется потоково с помощью {@link SXSSFWorkbook}: в памяти хранится
+ * только окно из последних {@value #ROW_WINDOW} строк, остальные сбрасываются во
+ * временный сжатый файл POI. Текстовые форматы кодируются прямо в канал
+ * ({@link CategoryTextWriter}) без промежуточного файла и XML. В обоих случаях расход
+ * памяти не зависит от размера дерева.</p>
+ *
+ * <h2>Формат файла:</h2>
+ * Столбцы (в JSON Lines — поля {@code name} и {@code parent}) одинаковы во всех форматах:
+ * <ul>
+ *     <li>Столбец 1: Название категории</li>
+ *     <li>Столбец 2: Полный путь родительских категорий (разделённый через " / ")</li>
+ * </ul>
+ *
+ * <p>Строки записываются в порядке прямого обхода снимка из {@link CategoryTreeCache}.
+ * Путь родителя для каждого уровня вычисляется один раз и хранится по глубине, поэтому
+ * одновременно в памяти находятся только пути текущей ветви.</p>
+ *
+ * <h2>Выгрузка изменений:</h2>
+ * Каждая выгрузка возвращает версию дерева — позицию журнала {@code category_change}.
+ * {@link #writeChanges(long, long, CategoryFileFormat, WritableByteChannel)} выгружает только
+ * изменения, сделанные начиная с переданной версии, в порядке их выполнения (в JSON Lines — поля
+ * {@code operation}, {@code name}, {@code parent} и {@code previousPath}):
+ * <ul>
+ *     <li>Столбец 1: Операция ({@code добавление}, {@code удаление} или {@code перемещение})</li>
+ *     <li>Столбец 2: Название категории (после изменения)</li>
+ *     <li>Столбец 3: Полный путь родительских категорий (после изменения)</li>
+ *     <li>Столбец 4: Прежний путь категории (только для перемещения; потомки перемещаются вместе с ней)</li>
+ * </ul>
+ * Полная выгрузка может уже содержать часть изменений после своей версии, поэтому применение
+ * изменений должно быть повторяемым: добавление существующей категории и удаление
+ * отсутствующей пропускаются (так их обрабатывает {@link CategoryImportService}).
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@AllArgsConstructor
+@Service
+public class CategoryExportService {
+    private static final int ROW_WINDOW = 100;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final String PATH_SEPARATOR = " / ";
+    private static final String[] TREE_HEADER = {"Категория", "Родительская категория"};
+    private static final String[] TREE_KEYS = {"name", "parent"};
+    private static final String[] CHANGES_HEADER = {"Операция", "Категория", "Родительская категория", "Прежний путь"};
+    private static final String[] CHANGES_KEYS = {"operation", "name", "parent", "previousPath"};
+
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryChangeRepository categoryChangeRepository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Возвращает номер содержимого дерева чата ({@link CategoryTreeCache#version(long)}).
+     * Выгрузка, сделанная после получения номера, отражает дерево не старше него, поэтому
+     * готовый файл можно использовать повторно, пока номер не изменится.
+     *
+     * @param chatId идентификатор чата.
+     * @return номер текущего снимка дерева.
+     */
+    public long contentVersion(long chatId) {
+        return categoryTreeCache.version(chatId);
+    }
+
+    /**
+     * Записывает дерево категорий в указанном формате.
+     *
+     * @param chatId идентификатор чата, дерево которого выгружается.
+     * @param format формат файла.
+     * @param out    канал, в который записывается файл (не закрывается методом).
+     * @return количество категорий и версия выгруженного дерева.
+     * @throws IOException если произошла ошибка записи.
+     */
+    public CategoryExportResult writeTree(long chatId, CategoryFileFormat format, WritableByteChannel out)
+            throws IOException {
+        CategoryTreeCache.LoadedTree loaded = categoryTreeCache.loadedTree(chatId);
+        CategoryTreeSnapshot tree = loaded.snapshot();
+        CategoryMetrics.treeSize(meterRegistry, "export").record(tree.size());
+
+        write(format, out, TREE_HEADER, TREE_KEYS, rows -> {
+            String[] prefixes = new String[16]; // prefixes[d] — путь родителей для узлов глубины d
+            prefixes[0] = "";
+            for (int position = 0; position < tree.size(); position++) {
+                int node = tree.atPosition(position);
+                int depth = tree.depth(node);
+                String name = tree.name(node);
+
+                rows.row(name, prefixes[depth]);
+
+                if (tree.firstChild(node) != CategoryTreeSnapshot.NONE) {
+                    if (depth + 1 == prefixes.length) {
+                        prefixes = Arrays.copyOf(prefixes, prefixes.length * 2);
+                    }
+                    prefixes[depth + 1] = prefixes[depth] + name + PATH_SEPARATOR;
+                }
+            }
+        });
+        return new CategoryExportResult(tree.size(), loaded.position());
+    }
+
+    /**
+     * Записывает в указанном формате изменения дерева категорий, сделанные начиная с указанной версии.
+     *
+     * @param chatId идентификатор чата, изменения дерева которого выгружаются.
+     * @param since  версия из предыдущей выгрузки.
+     * @param format формат файла.
+     * @param out    канал, в который записывается файл (не закрывается методом).
+     * @return количество изменений и версия, с которой начнётся следующая выгрузка изменений.
+     * @throws IOException если произошла ошибка записи.
+     */
+    public CategoryExportResult writeChanges(long chatId, long since, CategoryFileFormat format,
+                                             WritableByteChannel out) throws IOException {
+        long version = categoryChangeRepository.currentPosition();
+        List<CategoryChange> changes = since < version
+                ? categoryChangeRepository.findChanges(chatId, since, version)
+                : List.of();
+        CategoryMetrics.treeSize(meterRegistry, "changes").record(changes.size());
+
+        write(format, out, CHANGES_HEADER, CHANGES_KEYS, rows -> {
+            for (CategoryChange change : changes) {
+                String previousPath = change.previousPath() == null
+                        ? null
+                        : change.previousPath().replace(CategoryPaths.SEPARATOR, PATH_SEPARATOR);
+                rows.row(change.operation().title(), change.name(), parentPath(change.path()), previousPath);
+            }
+        });
+        return new CategoryExportResult(changes.size(), Math.max(since, version));
+    }
+
+    private static String parentPath(String path) {
+        int last = path.lastIndexOf(CategoryPaths.SEPARATOR);
+        return last < 0 ? "" : path.substring(0, last).replace(CategoryPaths.SEPARATOR, PATH_SEPARATOR);
+    }
+
+    private static void write(CategoryFileFormat format, WritableByteChannel out, String[] header, String[] keys,
+                              RowsWriter body) throws IOException {
+        if (format == CategoryFileFormat.XLSX) {
+            writeWorkbook(out, header, body);
+            return;
+        }
+        CategoryTextWriter writer = new CategoryTextWriter(format, out, header, keys);
+        body.write(writer::row);
+        writer.finish();
+    }
+
+    private static void writeWorkbook(WritableByteChannel out, String[] header, RowsWriter body) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet("Категории");
+            SheetRows rows = new SheetRows(sheet);
+
+            // Добавление заголовков
+            rows.row(header);
+
+            body.write(rows);
+            // Канал остаётся открытым: поток только буферизует запись в него
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), OUTPUT_BUFFER_SIZE);
+            workbook.write(stream);
+            stream.flush();
+        } finally {
+            workbook.dispose(); // Удаляет временные файлы SXSSF
+            workbook.close();
+        }
+    }
+
+    /**
+     * Записывает строки файла после заголовка.
+     */
+    @FunctionalInterface
+    private interface RowsWriter {
+        void write(Rows rows) throws IOException;
+    }
+
+    /**
+     * Строки файла. Пустые значения ({@code null}) не записываются.
+     */
+    @FunctionalInterface
+    private interface Rows {
+        void row(String... values) throws IOException;
+    }
+
+    /**
+     * Строки листа книги Excel, начиная с первой.
+     */
+    private static final class SheetRows implements Rows {
+        private final Sheet sheet;
+        private int rowNumber;
+
+        private SheetRows(Sheet sheet) {
+            this.sheet = sheet;
+        }
+
+        @Override
+        public void row(String... values) {
+            Row row = sheet.createRow(rowNumber++);
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    row.createCell(i).setCellValue(values[i]);
+                }
+            }
+        }
+    }
+}
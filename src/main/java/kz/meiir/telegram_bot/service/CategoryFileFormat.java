@@ -0,0 +1,93 @@
+package kz.meiir.telegram_bot.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Формат файла выгрузки и загрузки дерева категорий.
+ *
+ * <h2>Форматы:</h2>
+ * <ul>
+ *     <li>{@link #XLSX}: книга Excel; строки и столбцы описаны в {@link CategoryExportService}.</li>
+ *     <li>{@link #CSV}: те же строки и столбцы, что в книге Excel, в виде текста UTF-8 по RFC 4180
+ *     (разделитель — запятая, значения с запятой, кавычкой или переводом строки заключаются
+ *     в кавычки). Первая строка — заголовок.</li>
+ *     <li>{@link #JSONL}: одна строка UTF-8 — один JSON-объект со строковыми полями
+ *     {@code name} и {@code parent}; у изменений ещё {@code operation} и {@code previousPath}.
+ *     Заголовка нет: изменение отличается от категории наличием поля {@code operation}.</li>
+ * </ul>
+ * Пути родителей во всех форматах одинаковые: названия через " / ", как в столбце
+ * «Родительская категория» книги Excel.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public enum CategoryFileFormat {
+    XLSX("xlsx"),
+    CSV("csv"),
+    JSONL("jsonl");
+
+    private static final int ZIP_SIGNATURE = 0x504B0304; // "PK\3\4": XLSX — это ZIP-архив
+    private static final int HEAD_BYTES = 64;
+
+    private final String extension;
+
+    CategoryFileFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return расширение файла без точки; оно же — аргумент команды {@code /download}.
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Возвращает формат по расширению.
+     *
+     * @param extension расширение без точки в любом регистре.
+     * @return формат или {@code null}, если расширение неизвестно.
+     */
+    public static CategoryFileFormat ofExtension(String extension) {
+        for (CategoryFileFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Определяет формат по первым байтам файла: ZIP-архив — книга Excel, первый значащий
+     * символ <code>{</code> — JSON Lines, остальное — CSV. Позиция канала не изменяется.
+     *
+     * @param channel канал файла.
+     * @return формат файла.
+     * @throws IOException если файл не удалось прочитать.
+     */
+    static CategoryFileFormat detect(FileChannel channel) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(HEAD_BYTES);
+        while (head.hasRemaining()) {
+            if (channel.read(head, head.position()) <= 0) {
+                break; // Файл короче HEAD_BYTES
+            }
+        }
+        head.flip();
+        if (head.remaining() >= Integer.BYTES && head.getInt(0) == ZIP_SIGNATURE) {
+            return XLSX;
+        }
+        if (head.remaining() >= 3 && (head.get(0) & 0xFF) == 0xEF && (head.get(1) & 0xFF) == 0xBB
+                && (head.get(2) & 0xFF) == 0xBF) {
+            head.position(3); // Метка порядка байтов UTF-8
+        }
+        while (head.hasRemaining()) {
+            byte b = head.get();
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                return b == '{' ? JSONL : CSV;
+            }
+        }
+        return CSV;
+    }
+}
@@ -0,0 +1,52 @@
+package kz.meiir.telegram_bot.service;
+
+import java.util.List;
+
+/**
+ * Итоги импорта категорий из файла.
+ *
+ * @param rows            количество непустых строк файла.
+ * @param created         количество созданных категорий (включая недостающих родителей).
+ * @param existing        количество строк, категории из которых уже существовали.
+ * @param removed         количество удалённых категорий вместе с потомками (только в файле изменений).
+ * @param moved           количество переименованных или перенесённых категорий (только в файле изменений).
+ * @param rejected        количество отклонённых строк.
+ * @param rejectedSamples описание первых отклонённых строк.
+ * @param elapsedNanos    длительность импорта в наносекундах.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public record CategoryImportResult(int rows, int created, int existing, int removed, int moved, int rejected,
+                                   List<String> rejectedSamples, long elapsedNanos) {
+
+    /**
+     * @return скорость обработки в строках в секунду.
+     */
+    public long rowsPerSecond() {
+        return elapsedNanos == 0 ? rows : Math.round(rows * 1_000_000_000d / elapsedNanos);
+    }
+
+    /**
+     * Формирует сообщение для пользователя.
+     *
+     * @return текст с итогами импорта.
+     */
+    public String toMessage() {
+        StringBuilder message = new StringBuilder("Файл успешно загружен и обработан!\n")
+                .append("Строк: ").append(rows)
+                .append(" за ").append(elapsedNanos / 1_000_000).append(" мс (")
+                .append(rowsPerSecond()).append(" строк/с)\n")
+                .append("Добавлено категорий: ").append(created).append('\n')
+                .append("Уже существовали: ").append(existing).append('\n');
+        if (removed > 0 || moved > 0) {
+            message.append("Удалено категорий: ").append(removed).append('\n')
+                    .append("Перемещено категорий: ").append(moved).append('\n');
+        }
+        message.append("Отклонено строк: ").append(rejected);
+        for (String sample : rejectedSamples) {
+            message.append("\n - ").append(sample);
+        }
+        return message.toString();
+    }
+}
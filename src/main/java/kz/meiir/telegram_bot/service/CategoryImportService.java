@@ -0,0 +1,196 @@
+package kz.meiir.telegram_bot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.meiir.telegram_bot.repository.CategoryBatchRepository;
+import lombok.AllArgsConstructor;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Сервис импорта дерева категорий из файла Excel, CSV или JSON Lines ({@link CategoryFileFormat}).
+ *
+ * <p>Файл читается за один проход: книга Excel — потоковым SAX-парсером ({@link XSSFReader}),
+ * без построения DOM всей книги; CSV и JSON Lines — из канала файла ({@link CategoryTextReader}).
+ * Каждая строка сразу передаётся в {@link CategoryImportSession}, которая разрешает родителей
+ * по дереву в памяти и пишет новые категории JDBC-пакетами.</p>
+ *
+ * <h2>Формат файла:</h2>
+ * <ul>
+ *     <li>Столбец 1 (поле {@code name}): Название категории</li>
+ *     <li>Столбец 2 (поле {@code parent}): Родительская категория или полный путь родителей через "/"</li>
+ * </ul>
+ * Первая строка книги Excel или CSV пропускается, если это заголовок выгрузки {@code /download}.
+ *
+ * <h2>Файл изменений:</h2>
+ * Если первая строка — заголовок выгрузки {@code /download since} (первый столбец «Операция»),
+ * а в JSON Lines — если в объекте есть поле {@code operation}, строки применяются как изменения:
+ * добавление, удаление или перемещение категории (формат описан в {@link CategoryExportService}). Так одно дерево можно синхронизировать
+ * с другим, передавая только изменения.
+ *
+ * <p>Весь импорт выполняется в одной транзакции; кеш дерева обновляется только после её фиксации.</p>
+ *
+ * <p>Количество строк файла записывается в гистограмму {@code category.import.rows},
+ * итоги по категориям — в счётчик {@code category.import.categories} с тегом {@code result}.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@AllArgsConstructor
+@Service
+public class CategoryImportService {
+    private static final String HEADER = "Категория";
+    private static final String CHANGES_HEADER = "Операция";
+
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryBatchRepository categoryBatchRepository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Импортирует категории из файла XLSX, CSV или JSON Lines. Формат определяется
+     * по содержимому файла ({@link CategoryFileFormat#detect}), а не по имени.
+     *
+     * @param chatId идентификатор чата, в дерево которого добавляются категории.
+     * @param file   путь к файлу на диске.
+     * @return итоги импорта.
+     * @throws IOException если файл не удалось прочитать или книга Excel повреждена.
+     */
+    @Transactional
+    public CategoryImportResult importFile(long chatId, Path file) throws IOException {
+        CategoryImportSession session = new CategoryImportSession(chatId, categoryTreeCache.snapshot(chatId),
+                categoryBatchRepository);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            switch (CategoryFileFormat.detect(channel)) {
+                case XLSX -> readExcel(file, session);
+                case CSV -> new CategoryTextReader(channel).readCsv(new TableRows(session));
+                case JSONL -> new CategoryTextReader(channel).readJsonLines(session);
+            }
+        }
+
+        CategoryImportResult result = session.finish();
+        categoryTreeCache.addedAfterCommit(chatId, session.created());
+        categoryTreeCache.removedAfterCommit(chatId, session.removedIds());
+        if (result.moved() > 0 || session.conflicted()) {
+            // Пути потомков изменились в базе данных или часть категорий добавила другая транзакция
+            categoryTreeCache.invalidateAfterCommit(chatId);
+        }
+        CategoryMetrics.recordImport(meterRegistry, result);
+        return result;
+    }
+
+    /**
+     * Читает первый лист книги Excel.
+     */
+    private static void readExcel(Path file, CategoryImportSession session) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (sheets.hasNext()) {
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(), null, strings,
+                            new RowHandler(new TableRows(session)), new DataFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Некорректный файл Excel: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Передаёт строки табличного файла (XLSX или CSV) в сессию импорта.
+     * По заголовку определяет, является ли файл выгрузкой изменений.
+     */
+    private static final class TableRows implements CategoryTextReader.Rows {
+        private final CategoryImportSession session;
+        private boolean changes;
+
+        private TableRows(CategoryImportSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void row(int rowIndex, String[] values) {
+            if (rowIndex == 0 && CHANGES_HEADER.equalsIgnoreCase(values[0])) {
+                changes = true; // Заголовок выгрузки /download since
+                return;
+            }
+            if (rowIndex == 0 && HEADER.equalsIgnoreCase(values[0])) {
+                return; // Заголовок выгрузки /download
+            }
+            if (changes) {
+                session.acceptChange(rowIndex + 1, values[0], values[1], values[2], values[3]);
+            } else {
+                session.accept(rowIndex + 1, values[0], values[1]);
+            }
+        }
+    }
+
+    /**
+     * Собирает значения первых столбцов строки листа Excel и передаёт их в {@link TableRows}.
+     */
+    private static final class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final TableRows rows;
+        private final String[] values = new String[4];
+
+        private RowHandler(TableRows rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            Arrays.fill(values, null);
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            rows.row(rowNum, values);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = column(cellReference);
+            if (column >= 0 && column < values.length) {
+                values[column] = formattedValue;
+            }
+        }
+
+        private static int column(String cellReference) {
+            if (cellReference == null) {
+                return -1;
+            }
+            int column = 0;
+            for (int i = 0; i < cellReference.length(); i++) {
+                char c = cellReference.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                column = column * 26 + (c - 'A' + 1);
+            }
+            return column - 1;
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package kz.meiir.telegram_bot.service;
+
+import kz.meiir.telegram_bot.model.CategoryChange;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.repository.CategoryBatchRepository;
+import kz.meiir.telegram_bot.utils.CategoryPaths;
+import kz.meiir.telegram_bot.validation.CategoryNameValidator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Состояние одного импорта категорий.
+ *
+ * <p>Принимает строки файла по одной (название категории и путь родителя), разрешает
+ * родителей по индексу дерева в памяти и накапливает новые категории в буфере, который
+ * сбрасывается в базу JDBC-пакетами по {@value #BATCH_SIZE} строк.</p>
+ *
+ * <h2>Правила обработки строки:</h2>
+ * <ul>
+ *     <li>Путь родителя разделяется символом "/" (формат выгрузки {@code /download}).
+ *     Отсутствующие элементы пути создаются.</li>
+ *     <li>Если путь состоит из одного названия, сначала ищется корневая категория,
+ *     затем категория с таким названием на любом уровне.</li>
+ *     <li>Уже существующие категории пропускаются, строки с недопустимыми названиями отклоняются.</li>
+ * </ul>
+ *
+ * <h2>Файл изменений:</h2>
+ * Строки выгрузки {@code /download since} принимает {@link #acceptChange}. Пути в них всегда
+ * полные, поэтому поиск родителя на любом уровне не выполняется. Удаления накапливаются и
+ * выполняются JDBC-пакетом, перенос выполняется сразу; перед операцией другого вида накопленные
+ * строки сбрасываются, поэтому изменения применяются в порядке файла. Повторное применение
+ * безопасно: добавление существующей категории, удаление отсутствующей и уже выполненный
+ * перенос пропускаются.
+ *
+ * <h2>Параллельные изменения:</h2>
+ * Существующие категории определяются по снимку дерева, который может отставать от базы.
+ * Вставка пропускает категории, уже добавленные другой транзакцией ({@code ON CONFLICT DO NOTHING}),
+ * и находит родителя по пути, поэтому импорт не прерывается нарушением уникальности:
+ * пропущенные строки считаются существующими, а их идентификаторы заменяются найденными в базе.
+ *
+ * <p>Экземпляр не потокобезопасен и используется в рамках одной транзакции.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+class CategoryImportSession {
+    static final int BATCH_SIZE = 500;
+    private static final int MAX_REJECTED_SAMPLES = 10;
+    private static final long ROOT = 0L; // Ключ «родителя» для корневых категорий
+
+    private final long chatId;
+    private final CategoryTreeSnapshot tree;
+    private final CategoryBatchRepository categoryBatchRepository;
+    private final long startedAt = System.nanoTime();
+
+    private final Map<Long, Map<String, Long>> childrenByParent = new HashMap<>();
+    private final Map<String, Long> createdByName = new HashMap<>();
+    private final List<CategoryTreeSnapshot.Node> pending = new ArrayList<>(BATCH_SIZE);
+    private final List<CategoryTreeSnapshot.Node> created = new ArrayList<>();
+    private final List<String> pendingRemovals = new ArrayList<>();
+    private final List<Long> removedIds = new ArrayList<>();
+    private final List<String> rejectedSamples = new ArrayList<>();
+    private final Map<Long, String> pathsById = new HashMap<>();
+    private final Set<Long> skippedIds = new HashSet<>();
+
+    private long[] allocatedIds = new long[0];
+    private int nextId;
+    private int rows;
+    private int existing;
+    private int removed;
+    private int moved;
+    private int rejected;
+
+    CategoryImportSession(long chatId, CategoryTreeSnapshot tree, CategoryBatchRepository categoryBatchRepository) {
+        this.chatId = chatId;
+        this.tree = tree;
+        this.categoryBatchRepository = categoryBatchRepository;
+    }
+
+    /**
+     * Обрабатывает одну строку файла.
+     *
+     * @param rowNumber  номер строки в файле (для сообщений об ошибках).
+     * @param name       название категории.
+     * @param parentPath путь родительской категории или {@code null}.
+     */
+    void accept(int rowNumber, String name, String parentPath) {
+        String rawName = name == null ? "" : name.trim();
+        String parent = parentPath == null ? "" : parentPath.trim();
+        if (rawName.isEmpty() && parent.isEmpty()) {
+            return; // Пустая строка
+        }
+        rows++;
+
+        String elementName = CategoryNameValidator.normalize(rawName);
+        if (elementName == null) {
+            reject(rowNumber, "недопустимое название \"" + rawName + "\"");
+            return;
+        }
+        String[] segments = segments(rowNumber, parent);
+        if (segments == null) {
+            return;
+        }
+
+        add(elementName, resolveParent(segments, true));
+    }
+
+    /**
+     * Обрабатывает одну строку файла изменений.
+     *
+     * @param rowNumber    номер строки в файле (для сообщений об ошибках).
+     * @param operation    название операции ({@link CategoryChange.Operation#title()}).
+     * @param name         название категории после изменения.
+     * @param parentPath   полный путь родительской категории после изменения или {@code null}.
+     * @param previousPath прежний полный путь категории (только для перемещения).
+     */
+    void acceptChange(int rowNumber, String operation, String name, String parentPath, String previousPath) {
+        String rawOperation = operation == null ? "" : operation.trim();
+        String rawName = name == null ? "" : name.trim();
+        String parent = parentPath == null ? "" : parentPath.trim();
+        String previous = previousPath == null ? "" : previousPath.trim();
+        if (rawOperation.isEmpty() && rawName.isEmpty() && parent.isEmpty() && previous.isEmpty()) {
+            return; // Пустая строка
+        }
+        rows++;
+
+        CategoryChange.Operation kind = CategoryChange.Operation.ofTitle(rawOperation);
+        if (kind == null) {
+            reject(rowNumber, "неизвестная операция \"" + rawOperation + "\"");
+            return;
+        }
+        String elementName = CategoryNameValidator.normalize(rawName);
+        if (elementName == null) {
+            reject(rowNumber, "недопустимое название \"" + rawName + "\"");
+            return;
+        }
+        String[] segments = segments(rowNumber, parent);
+        if (segments == null) {
+            return;
+        }
+
+        switch (kind) {
+            case INSERT -> add(elementName, resolveParent(segments, false));
+            case DELETE -> remove(segments, elementName);
+            case UPDATE -> move(rowNumber, segments, elementName, previous);
+        }
+    }
+
+    /**
+     * Учитывает строку файла, которую не удалось разобрать, и отклоняет её.
+     *
+     * @param rowNumber номер строки в файле.
+     * @param reason    причина отклонения.
+     */
+    void malformed(int rowNumber, String reason) {
+        rows++;
+        reject(rowNumber, reason);
+    }
+
+    /**
+     * Выполняет оставшиеся изменения и возвращает итоги импорта.
+     *
+     * @return результат импорта.
+     */
+    CategoryImportResult finish() {
+        flushCreated();
+        flushRemovals();
+        if (!skippedIds.isEmpty()) {
+            created.removeIf(node -> skippedIds.contains(node.id()));
+        }
+        return new CategoryImportResult(rows, created.size(), existing, removed, moved, rejected,
+                List.copyOf(rejectedSamples), System.nanoTime() - startedAt);
+    }
+
+    /**
+     * @return все категории, созданные в ходе импорта (для обновления кеша после фиксации транзакции).
+     */
+    List<CategoryTreeSnapshot.Node> created() {
+        return created;
+    }
+
+    /**
+     * @return идентификаторы удалённых категорий (их потомки удалены вместе с ними).
+     */
+    List<Long> removedIds() {
+        return removedIds;
+    }
+
+    /**
+     * @return {@code true}, если часть категорий уже была добавлена другой транзакцией:
+     *         родители в {@link #created()} могут не совпадать с базой, и кеш нужно перезагрузить.
+     */
+    boolean conflicted() {
+        return !skippedIds.isEmpty();
+    }
+
+    private void add(String name, long parentId) {
+        if (children(parentId).containsKey(name)) {
+            existing++;
+        } else {
+            create(name, parentId);
+        }
+    }
+
+    private void remove(String[] parent, String name) {
+        Long parentId = find(parent, parent.length);
+        Long id = parentId == null ? null : children(parentId).get(name);
+        if (id == null) {
+            existing++; // Уже удалена
+            return;
+        }
+        flushCreated();
+        pendingRemovals.add(path(parent, parent.length, name));
+        removedIds.add(id);
+        children(parentId).remove(name);
+        if (pendingRemovals.size() == BATCH_SIZE) {
+            flushRemovals();
+        }
+    }
+
+    private void move(int rowNumber, String[] parent, String name, String previousPath) {
+        String[] previous = segments(rowNumber, previousPath);
+        if (previous == null) {
+            return;
+        }
+        if (previous.length == 0) {
+            reject(rowNumber, "не указан прежний путь категории");
+            return;
+        }
+        String previousName = previous[previous.length - 1];
+        Long previousParentId = find(previous, previous.length - 1);
+        Long id = previousParentId == null ? null : children(previousParentId).get(previousName);
+        if (id == null) {
+            Long parentId = find(parent, parent.length);
+            if (parentId != null && children(parentId).containsKey(name)) {
+                existing++; // Уже перенесена
+            } else {
+                reject(rowNumber, "категория \"" + path(previous, previous.length - 1, previousName) + "\" не найдена");
+            }
+            return;
+        }
+        if (parent.length >= previous.length && Arrays.equals(parent, 0, previous.length, previous, 0, previous.length)) {
+            reject(rowNumber, "категорию нельзя перенести в её потомка");
+            return;
+        }
+
+        long parentId = resolveParent(parent, false);
+        Long target = children(parentId).get(name);
+        if (target != null) {
+            if (target.equals(id)) {
+                existing++;
+            } else {
+                reject(rowNumber, "категория \"" + path(parent, parent.length, name) + "\" уже существует");
+            }
+            return;
+        }
+
+        flushCreated(); // Новый родитель может ещё не быть записан
+        flushRemovals();
+        categoryBatchRepository.move(chatId, id, parentId == ROOT ? null : parentId, name);
+        children(previousParentId).remove(previousName);
+        children(parentId).put(name, id);
+        moved++;
+    }
+
+    /**
+     * Разбирает путь на нормализованные названия; при недопустимом названии отклоняет строку.
+     *
+     * @return названия или {@code null}, если строка отклонена.
+     */
+    private String[] segments(int rowNumber, String path) {
+        String[] segments = path.isEmpty() ? new String[0] : path.split("/");
+        int count = 0;
+        for (String segment : segments) {
+            if (segment.isBlank()) {
+                continue;
+            }
+            String normalized = CategoryNameValidator.normalize(segment);
+            if (normalized == null) {
+                reject(rowNumber, "недопустимое название родителя \"" + segment.trim() + "\"");
+                return null;
+            }
+            segments[count++] = normalized;
+        }
+        return Arrays.copyOf(segments, count);
+    }
+
+    private long resolveParent(String[] segments, boolean anyLevel) {
+        if (segments.length == 0) {
+            return ROOT;
+        }
+
+        Long current = children(ROOT).get(segments[0]);
+        if (current == null && anyLevel && segments.length == 1) {
+            current = findAtAnyLevel(segments[0]);
+        }
+        if (current == null) {
+            current = create(segments[0], ROOT);
+        }
+
+        for (int i = 1; i < segments.length; i++) {
+            Long child = children(current).get(segments[i]);
+            current = child != null ? child : create(segments[i], current);
+        }
+        return current;
+    }
+
+    /**
+     * Находит категорию по первым {@code count} названиям полного пути, не создавая недостающих.
+     *
+     * @return идентификатор, {@link #ROOT} для пустого пути или {@code null}, если категории нет.
+     */
+    private Long find(String[] segments, int count) {
+        Long current = ROOT;
+        for (int i = 0; i < count && current != null; i++) {
+            current = children(current).get(segments[i]);
+        }
+        return current;
+    }
+
+    private Long findAtAnyLevel(String name) {
+        int[] found = tree.findByName(name);
+        return found.length > 0 ? tree.id(found[0]) : createdByName.get(name);
+    }
+
+    private Map<String, Long> children(long parentId) {
+        return childrenByParent.computeIfAbsent(parentId, id -> {
+            Map<String, Long> children = new HashMap<>();
+            int first = id == ROOT ? tree.firstRoot() : firstChildInTree(id);
+            for (int child = first; child != CategoryTreeSnapshot.NONE; child = tree.nextSibling(child)) {
+                children.put(tree.name(child), tree.id(child));
+            }
+            return children;
+        });
+    }
+
+    private int firstChildInTree(long id) {
+        int node = tree.indexOf(id);
+        return node == CategoryTreeSnapshot.NONE ? CategoryTreeSnapshot.NONE : tree.firstChild(node);
+    }
+
+    private long create(String name, long parentId) {
+        flushRemovals(); // Удаление той же категории должно выполниться раньше
+        if (nextId == allocatedIds.length) {
+            allocatedIds = categoryBatchRepository.allocateIds(BATCH_SIZE);
+            nextId = 0;
+        }
+        long id = allocatedIds[nextId++];
+
+        CategoryTreeSnapshot.Node node = new CategoryTreeSnapshot.Node(id, parentId == ROOT ? null : parentId, name);
+        String parentPath = parentId == ROOT ? null : pathOf(parentId);
+        pathsById.put(id, parentPath == null ? name : parentPath + CategoryPaths.SEPARATOR + name);
+        pending.add(node);
+        created.add(node);
+        children(parentId).put(name, id);
+        createdByName.putIfAbsent(name, id);
+
+        if (pending.size() == BATCH_SIZE) {
+            flushCreated();
+        }
+        return id;
+    }
+
+    private void flushCreated() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<CategoryBatchRepository.NewCategory> categories = new ArrayList<>(pending.size());
+        for (CategoryTreeSnapshot.Node node : pending) {
+            categories.add(new CategoryBatchRepository.NewCategory(node.id(), node.name(),
+                    node.parentId() == null ? null : pathOf(node.parentId())));
+        }
+        boolean[] inserted = categoryBatchRepository.insertBatch(chatId, categories);
+        List<CategoryTreeSnapshot.Node> skipped = new ArrayList<>();
+        for (int i = 0; i < inserted.length; i++) {
+            if (!inserted[i]) {
+                skipped.add(pending.get(i));
+            }
+        }
+        pending.clear();
+        if (!skipped.isEmpty()) {
+            replaceSkipped(skipped);
+        }
+    }
+
+    /**
+     * Заменяет категории, которые уже добавила другая транзакция, существующими: последующие
+     * строки файла должны ссылаться на их идентификаторы. Такие строки считаются существующими.
+     */
+    private void replaceSkipped(List<CategoryTreeSnapshot.Node> skipped) {
+        List<String> paths = new ArrayList<>(skipped.size());
+        for (CategoryTreeSnapshot.Node node : skipped) {
+            paths.add(pathsById.get(node.id()));
+        }
+        Map<String, Long> actualIds = categoryBatchRepository.findIdsByPaths(chatId, paths);
+        Map<Long, Long> replaced = new HashMap<>();
+        for (CategoryTreeSnapshot.Node node : skipped) {
+            long allocated = node.id();
+            long parentId = node.parentId() == null ? ROOT : replaced.getOrDefault(node.parentId(), node.parentId());
+            Long actual = actualIds.get(pathsById.get(allocated));
+            Map<String, Long> orphans = childrenByParent.remove(allocated);
+            if (actual == null) {
+                children(parentId).remove(node.name()); // Родитель удалён другой транзакцией
+                createdByName.remove(node.name(), allocated);
+            } else {
+                replaced.put(allocated, actual);
+                children(parentId).put(node.name(), actual);
+                createdByName.replace(node.name(), allocated, actual);
+                pathsById.put(actual, pathsById.get(allocated));
+                if (orphans != null) {
+                    children(actual).putAll(orphans); // Потомки вставлены под существующую категорию
+                }
+            }
+            skippedIds.add(allocated);
+            existing++;
+        }
+    }
+
+    /**
+     * @return материализованный путь категории из дерева или созданной в ходе импорта.
+     */
+    private String pathOf(long id) {
+        return pathsById.computeIfAbsent(id, key -> String.join(CategoryPaths.SEPARATOR, tree.path(tree.indexOf(key))));
+    }
+
+    private void flushRemovals() {
+        if (!pendingRemovals.isEmpty()) {
+            for (int count : categoryBatchRepository.deleteSubtrees(chatId, pendingRemovals)) {
+                removed += count;
+            }
+            pendingRemovals.clear();
+        }
+    }
+
+    private static String path(String[] parent, int count, String name) {
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            path.append(parent[i]).append(CategoryPaths.SEPARATOR);
+        }
+        return path.append(name).toString();
+    }
+
+    private void reject(int rowNumber, String reason) {
+        rejected++;
+        if (rejectedSamples.size() < MAX_REJECTED_SAMPLES) {
+            rejectedSamples.add("строка " + rowNumber + ": " + reason);
+        }
+    }
+}
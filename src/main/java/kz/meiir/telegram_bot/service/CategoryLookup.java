@@ -0,0 +1,24 @@
+package kz.meiir.telegram_bot.service;
+
+/**
+ * Результат поиска категории по названию или пути.
+ *
+ * @param id        идентификатор найденной категории или {@code null}, если категория не найдена
+ *                  или найдено несколько категорий.
+ * @param ambiguous {@code true}, если путь из одного названия не найден среди корневых категорий,
+ *                  а на других уровнях дерева категорий с таким названием несколько.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public record CategoryLookup(Long id, boolean ambiguous) {
+    static final CategoryLookup NOT_FOUND = new CategoryLookup(null, false);
+    static final CategoryLookup AMBIGUOUS = new CategoryLookup(null, true);
+
+    /**
+     * @return {@code true}, если категория найдена однозначно.
+     */
+    public boolean found() {
+        return id != null;
+    }
+}
@@ -0,0 +1,46 @@
+package kz.meiir.telegram_bot.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Метрики операций с деревом категорий.
+ *
+ * <h2>Метрики:</h2>
+ * <ul>
+ *     <li><strong>category.tree.size</strong>: Количество категорий в выводимом или выгружаемом дереве
+ *     (тег {@code operation}: {@code view} или {@code export}); для выгрузки изменений — количество
+ *     изменений (тег {@code operation}: {@code changes}).</li>
+ *     <li><strong>category.import.rows</strong>: Количество строк в загруженном файле.</li>
+ *     <li><strong>category.import.categories</strong>: Итоги импорта по категориям
+ *     (тег {@code result}: {@code created}, {@code existing}, {@code removed}, {@code moved} или {@code rejected}).</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+final class CategoryMetrics {
+
+    private CategoryMetrics() {
+        // Утилитный класс
+    }
+
+    static DistributionSummary treeSize(MeterRegistry meterRegistry, String operation) {
+        return DistributionSummary.builder("category.tree.size")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    static void recordImport(MeterRegistry meterRegistry, CategoryImportResult result) {
+        DistributionSummary.builder("category.import.rows")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(result.rows());
+        meterRegistry.counter("category.import.categories", "result", "created").increment(result.created());
+        meterRegistry.counter("category.import.categories", "result", "existing").increment(result.existing());
+        meterRegistry.counter("category.import.categories", "result", "removed").increment(result.removed());
+        meterRegistry.counter("category.import.categories", "result", "moved").increment(result.moved());
+        meterRegistry.counter("category.import.categories", "result", "rejected").increment(result.rejected());
+    }
+}
@@ -0,0 +1,363 @@
+package kz.meiir.telegram_bot.service;
+
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Индекс поиска категорий по названию в памяти.
+ *
+ * <h2>Описание:</h2>
+ * Индекс хранит только идентификаторы категорий; названия и пути берутся из
+ * {@link CategoryTreeSnapshot}, переданного в {@link #search}. {@link CategoryTreeCache} держит
+ * отдельный индекс для дерева каждого чата и обновляет его при каждом добавлении и удалении
+ * категорий; целиком индекс перестраивается только при загрузке дерева или после большого
+ * числа удалений (см. {@link #removed(CategoryTreeSnapshot, int)}).
+ *
+ * <h2>Структуры:</h2>
+ * <ul>
+ *     <li><strong>Слова</strong>: Отсортированная карта «слово названия → категории».
+ *     Все слова с заданным префиксом занимают в ней непрерывный диапазон ключей,
+ *     поэтому поиск по началу слова — один переход по дереву карты.</li>
+ *     <li><strong>Триграммы</strong>: Карта «три подряд идущих символа → категории».
+ *     Слова дополняются пробелом в начале и в конце, как в {@code pg_trgm}.</li>
+ * </ul>
+ *
+ * <h2>Порядок результатов:</h2>
+ * <ol>
+ *     <li>точное совпадение названия;</li>
+ *     <li>слово названия начинается с запроса (для запроса из одного слова);</li>
+ *     <li>название содержит запрос (кандидаты — по самой редкой триграмме запроса);</li>
+ *     <li>нечёткое совпадение: доля общих триграмм не меньше {@value #MIN_SIMILARITY}.
+ *     Триграммы, встречающиеся более чем в {@value #COMMON_TRIGRAM} категориях, при этом
+ *     не учитываются: они почти не отличают категории друг от друга.</li>
+ * </ol>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+final class CategorySearchIndex {
+    private static final double MIN_SIMILARITY = 0.3;
+    private static final int COMMON_TRIGRAM = 10_000;
+    private static final int SIMILAR_CANDIDATES_PER_RESULT = 5;
+    private static final int MIN_STALE_FOR_REBUILD = 1000;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private int staleCount; // удалённые категории, ещё хранящиеся в списках
+
+    /**
+     * Перестраивает индекс по всему дереву.
+     *
+     * @param tree снимок дерева категорий.
+     */
+    public void rebuild(CategoryTreeSnapshot tree) {
+        lock.writeLock().lock();
+        try {
+            words.clear();
+            trigrams.clear();
+            staleCount = 0;
+            for (int node = 0; node < tree.size(); node++) {
+                index(tree.id(node), tree.name(node));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет категории в индекс.
+     *
+     * @param nodes добавленные категории.
+     */
+    public void add(Collection<CategoryTreeSnapshot.Node> nodes) {
+        lock.writeLock().lock();
+        try {
+            for (CategoryTreeSnapshot.Node node : nodes) {
+                index(node.id(), node.name());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Учитывает удаление категорий.
+     *
+     * <p>Удалённые категории не вычёркиваются из списков сразу: результаты поиска всегда
+     * проверяются по снимку дерева, и отсутствующие в нём категории пропускаются. Когда
+     * число удалённых, но ещё хранящихся в индексе категорий превышает число живых,
+     * индекс перестраивается по текущему снимку. Поэтому удаление поддерева любого размера
+     * стоит O(1), а перестроение амортизируется по всем удалениям.</p>
+     *
+     * @param tree    снимок дерева после удаления.
+     * @param removed количество удалённых категорий.
+     */
+    public void removed(CategoryTreeSnapshot tree, int removed) {
+        lock.writeLock().lock();
+        try {
+            staleCount += removed;
+            if (staleCount > Math.max(tree.size(), MIN_STALE_FOR_REBUILD)) {
+                rebuild(tree);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет категории по названию.
+     *
+     * @param tree  снимок дерева, в котором находятся найденные категории.
+     * @param query запрос (регистр не учитывается).
+     * @param limit максимальное количество результатов.
+     * @return индексы узлов снимка в порядке убывания релевантности.
+     */
+    public int[] search(CategoryTreeSnapshot tree, String query, int limit) {
+        String normalized = String.join(" ", words(query));
+        if (normalized.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+
+        Set<Integer> found = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            for (int node : tree.findByName(normalized)) {
+                if (!addFound(found, node, limit)) {
+                    return toArray(found);
+                }
+            }
+            if (!findByWordPrefix(tree, normalized, found, limit)
+                    || !findBySubstring(tree, normalized, found, limit)) {
+                return toArray(found);
+            }
+            findSimilar(tree, normalized, found, limit);
+            return toArray(found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет названия со словом, начинающимся с запроса. Запрос из нескольких слов
+     * ищется как подстрока: последнее слово обычно слишком короткое, чтобы отобрать кандидатов.
+     *
+     * @return {@code false}, если набрано {@code limit} результатов.
+     */
+    private boolean findByWordPrefix(CategoryTreeSnapshot tree, String query, Set<Integer> found, int limit) {
+        if (query.indexOf(' ') >= 0) {
+            return true;
+        }
+        for (Postings postings : words.subMap(query, true, query + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < postings.size; i++) {
+                int node = tree.indexOf(postings.ids[i]);
+                if (node != CategoryTreeSnapshot.NONE && !addFound(found, node, limit)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code false}, если набрано {@code limit} результатов.
+     */
+    private boolean findBySubstring(CategoryTreeSnapshot tree, String query, Set<Integer> found, int limit) {
+        Postings rarest = null;
+        for (Long trigram : queryTrigrams(query)) {
+            Postings postings = trigrams.get(trigram);
+            if (postings == null) {
+                return true; // Ни одно название не содержит эту триграмму
+            }
+            if (rarest == null || postings.size < rarest.size) {
+                rarest = postings;
+            }
+        }
+        if (rarest == null) {
+            return true;
+        }
+        for (int i = 0; i < rarest.size; i++) {
+            int node = tree.indexOf(rarest.ids[i]);
+            if (node != CategoryTreeSnapshot.NONE && contains(tree, node, query)
+                    && !addFound(found, node, limit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void findSimilar(CategoryTreeSnapshot tree, String query, Set<Integer> found, int limit) {
+        Set<Long> queryTrigrams = new HashSet<>();
+        for (String word : words(query)) {
+            addTrigrams(word, queryTrigrams);
+        }
+        Map<Long, Integer> shared = new HashMap<>();
+        int skipped = 0;
+        for (Long trigram : queryTrigrams) {
+            Postings postings = trigrams.get(trigram);
+            if (postings == null) {
+                continue;
+            }
+            if (postings.size > COMMON_TRIGRAM) {
+                skipped++;
+                continue;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                shared.merge(postings.ids[i], 1, Integer::sum);
+            }
+        }
+
+        // Сходство не превышает (общие триграммы) / (триграммы запроса), поэтому кандидаты,
+        // у которых общих триграмм заведомо мало, отбрасываются без разбора названия.
+        // Точное сходство вычисляется только для кандидатов с наибольшим числом общих триграмм.
+        double required = MIN_SIMILARITY * queryTrigrams.size() - skipped;
+        List<Map.Entry<Long, Integer>> candidates = shared.entrySet().stream()
+                .filter(candidate -> candidate.getValue() >= required)
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+                .limit((long) limit * SIMILAR_CANDIDATES_PER_RESULT)
+                .toList();
+        List<Map.Entry<Integer, Double>> scored = new ArrayList<>();
+        for (Map.Entry<Long, Integer> candidate : candidates) {
+            int node = tree.indexOf(candidate.getKey());
+            if (node == CategoryTreeSnapshot.NONE || found.contains(node)) {
+                continue;
+            }
+            Set<Long> nameTrigrams = new HashSet<>();
+            for (String word : words(tree.name(node))) {
+                addTrigrams(word, nameTrigrams);
+            }
+            int union = queryTrigrams.size() + nameTrigrams.size();
+            nameTrigrams.retainAll(queryTrigrams);
+            double similarity = (double) nameTrigrams.size() / (union - nameTrigrams.size());
+            if (similarity >= MIN_SIMILARITY) {
+                scored.add(Map.entry(node, similarity));
+            }
+        }
+        scored.sort(Map.Entry.<Integer, Double>comparingByValue().reversed());
+        for (Map.Entry<Integer, Double> entry : scored) {
+            if (!addFound(found, entry.getKey(), limit)) {
+                return;
+            }
+        }
+    }
+
+    private void index(long id, String name) {
+        Set<Long> nameTrigrams = new HashSet<>();
+        for (String word : words(name)) {
+            words.computeIfAbsent(word, w -> new Postings()).add(id);
+            addTrigrams(word, nameTrigrams);
+        }
+        for (Long trigram : nameTrigrams) {
+            trigrams.computeIfAbsent(trigram, t -> new Postings()).add(id);
+        }
+    }
+
+    /**
+     * Разбивает название на слова в нижнем регистре. Повторяющиеся слова возвращаются один раз.
+     * Регистр приводится без учёта локали по умолчанию: иначе, например, в турецкой локали
+     * «I» превращается в «ı», и запрос не совпадает с сохранёнными названиями.
+     */
+    private static Set<String> words(String name) {
+        Set<String> result = new LinkedHashSet<>();
+        int start = 0;
+        for (int i = 0; i <= name.length(); i++) {
+            if (i == name.length() || Character.isWhitespace(name.charAt(i))) {
+                if (i > start) {
+                    result.add(name.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = i + 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Триграммы, которые обязательно содержит название с подстрокой {@code query}:
+     * только внутренние триграммы запроса, без дополнения по краям.
+     */
+    private static Set<Long> queryTrigrams(String query) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            char a = query.charAt(i);
+            char b = query.charAt(i + 1);
+            char c = query.charAt(i + 2);
+            if (a != ' ' && b != ' ' && c != ' ') {
+                result.add(trigram(a, b, c));
+            }
+        }
+        return result;
+    }
+
+    private static void addTrigrams(String word, Set<Long> target) {
+        for (int i = 0; i < word.length(); i++) {
+            target.add(trigram(padded(word, i - 1), padded(word, i), padded(word, i + 1)));
+        }
+    }
+
+    /**
+     * Символ слова, дополненного пробелом с каждой стороны.
+     */
+    private static char padded(String word, int index) {
+        return index < 0 || index >= word.length() ? ' ' : word.charAt(index);
+    }
+
+    private static long trigram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    /**
+     * Ищет подстроку без учёта регистра; {@link Character#toLowerCase(char)}, как и
+     * {@code toLowerCase(Locale.ROOT)} в {@link #words(String)}, не зависит от локали.
+     */
+    private static boolean contains(CategoryTreeSnapshot tree, int node, String query) {
+        int length = tree.nameLength(node);
+        for (int start = 0; start + query.length() <= length; start++) {
+            int i = 0;
+            while (i < query.length() && Character.toLowerCase(tree.nameCharAt(node, start + i)) == query.charAt(i)) {
+                i++;
+            }
+            if (i == query.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean addFound(Set<Integer> found, int node, int limit) {
+        found.add(node);
+        return found.size() < limit;
+    }
+
+    private static int[] toArray(Set<Integer> found) {
+        return found.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Список идентификаторов категорий в массиве примитивов.
+     */
+    private static final class Postings {
+        private long[] ids = new long[1];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -4,16 +4,20 @@ import kz.meiir.telegram_bot.repository.CategoryRepository;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * Фасад для управления категориями.
  *
  * <p>Класс предоставляет унифицированный интерфейс для выполнения операций с категориями,
- * включая просмотр дерева категорий, добавление новых категорий и удаление существующих.</p>
+ * включая просмотр дерева категорий, добавление новых категорий и удаление существующих.
+ * Все операции выполняются над деревом категорий указанного чата.</p>
  *
  * <h2>Основные задачи:</h2>
  * <ul>
  *     <li>Инкапсуляция логики работы с несколькими сервисами: {@link CategoryTreeService},
- *     {@link CategoryCreateService}, {@link CategoryDeleteService}.</li>
+ *     {@link CategoryCreateService}, {@link CategoryDeleteService}, {@link CategoryBatchService}.</li>
  *     <li>Обеспечение простого и единого доступа к функциональности работы с категориями.</li>
  * </ul>
  *
@@ -30,16 +34,75 @@ public class CategoryServiceFacade {
     private final CategoryTreeService categoryTreeService;
     private final CategoryCreateService categoryCreateService;
     private final CategoryDeleteService categoryDeleteService;
+    private final CategoryBatchService categoryBatchService;
 
     /**
      * Возвращает иерархическую структуру категорий.
      *
      * <p>Метод делегирует выполнение операции сервису {@link CategoryTreeService}.</p>
      *
+     * @param chatId идентификатор чата.
      * @return строковое представление дерева категорий.
      */
-    public String getCategoryTree() {
-        return categoryTreeService.getCategoryTree();
+    public String getCategoryTree(long chatId) {
+        return categoryTreeService.getCategoryTree(chatId);
+    }
+
+    /**
+     * Записывает всё дерево категорий в указанный приёмник.
+     *
+     * <p>Метод делегирует выполнение операции сервису {@link CategoryTreeService}.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param format формат вывода.
+     * @param out    приёмник текста.
+     * @throws IOException если приёмник не может записать текст.
+     */
+    public void writeCategoryTree(long chatId, CategoryTreeFormat format, Appendable out) throws IOException {
+        categoryTreeService.writeCategoryTree(chatId, format, out);
+    }
+
+    /**
+     * Находит категорию по названию или полному пути.
+     *
+     * <p>Метод делегирует выполнение операции сервису {@link CategoryTreeService}.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param path   название категории или путь через "/".
+     * @return найденная категория или признак того, что она не найдена или неоднозначна.
+     */
+    public CategoryLookup findCategory(long chatId, String path) {
+        return categoryTreeService.findCategory(chatId, path);
+    }
+
+    /**
+     * Ищет категории по части названия.
+     *
+     * <p>Метод делегирует выполнение операции сервису {@link CategoryTreeService}.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param query  часть названия категории.
+     * @param limit  максимальное количество результатов.
+     * @return полные пути найденных категорий.
+     */
+    public List<String> findCategories(long chatId, String query, int limit) {
+        return categoryTreeService.findCategories(chatId, query, limit);
+    }
+
+    /**
+     * Возвращает одну страницу дерева категорий.
+     *
+     * <p>Метод делегирует выполнение операции сервису {@link CategoryTreeService}.</p>
+     *
+     * @param chatId    идентификатор чата.
+     * @param rootId    идентификатор начальной категории или {@code null} для всего дерева.
+     * @param maxDepth  ограничение глубины; отрицательное значение — без ограничения.
+     * @param page      номер страницы, начиная с 0.
+     * @param pageLimit максимальная длина страницы в символах.
+     * @return страница дерева или {@code null}, если категория не найдена.
+     */
+    public CategoryTreePage getCategoryTreePage(long chatId, Long rootId, int maxDepth, int page, int pageLimit) {
+        return categoryTreeService.getCategoryTreePage(chatId, rootId, maxDepth, page, pageLimit);
     }
 
     /**
@@ -47,6 +110,7 @@ public class CategoryServiceFacade {
      *
      * <p>Метод делегирует выполнение операции сервису {@link CategoryCreateService}.</p>
      *
+     * @param chatId      идентификатор чата.
      * @param elementName имя новой категории.
      * @param parentName  имя родительской категории. Может быть {@code null}, если категория создается на верхнем уровне.
      * @return сообщение о результате операции:
@@ -55,8 +119,8 @@ public class CategoryServiceFacade {
      *             <li>Ошибка: причины невозможности добавления (некорректное имя, родитель не найден и т.д.).</li>
      *         </ul>
      */
-    public String addCategory(String elementName, String parentName) {
-        return categoryCreateService.addCategory(elementName, parentName);
+    public String addCategory(long chatId, String elementName, String parentName) {
+        return categoryCreateService.addCategory(chatId, elementName, parentName);
     }
 
     /**
@@ -64,14 +128,41 @@ public class CategoryServiceFacade {
      *
      * <p>Метод делегирует выполнение операции сервису {@link CategoryDeleteService}.</p>
      *
-     * @param name имя категории или полный путь до неё (например: {@code "Родитель/ДочерняяКатегория"}).
+     * @param chatId идентификатор чата.
+     * @param name   имя категории или полный путь до неё (например: {@code "Родитель/ДочерняяКатегория"}).
      * @return сообщение о результате операции:
      *         <ul>
      *             <li>Успех: подтверждение удаления категории.</li>
      *             <li>Ошибка: причины невозможности удаления (некорректное имя, категория не найдена и т.д.).</li>
      *         </ul>
      */
-    public String removeCategory(String name) {
-        return categoryDeleteService.removeCategory(name);
+    public String removeCategory(long chatId, String name) {
+        return categoryDeleteService.removeCategory(chatId, name);
+    }
+
+    /**
+     * Добавляет несколько категорий в одной транзакции.
+     *
+     * <p>Метод делегирует выполнение операции сервису {@link CategoryBatchService}.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param paths  пути добавляемых категорий (например: {@code "Родитель/ДочерняяКатегория"}).
+     * @return результат для каждого пути в исходном порядке.
+     */
+    public List<CategoryBatchResult> addCategories(long chatId, List<String> paths) {
+        return categoryBatchService.addCategories(chatId, paths);
+    }
+
+    /**
+     * Удаляет несколько категорий вместе с потомками в одной транзакции.
+     *
+     * <p>Метод делегирует выполнение операции сервису {@link CategoryBatchService}.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param paths  полные пути удаляемых категорий.
+     * @return результат для каждого пути в исходном порядке.
+     */
+    public List<CategoryBatchResult> removeCategories(long chatId, List<String> paths) {
+        return categoryBatchService.removeCategories(chatId, paths);
     }
-}
\ No newline at end of file
+}
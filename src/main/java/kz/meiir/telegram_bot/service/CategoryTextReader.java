@@ -0,0 +1,399 @@
+package kz.meiir.telegram_bot.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Потоковое чтение файлов CSV и JSON Lines ({@link CategoryFileFormat}).
+ *
+ * <p>Байты читаются из канала в прямой {@link ByteBuffer} и декодируются из UTF-8 порциями
+ * в {@link CharBuffer}; разбор идёт по одному символу конечным автоматом, поэтому значение
+ * в кавычках или строка JSON может начинаться в одной порции и заканчиваться в другой.
+ * В памяти находится только текущая строка файла.</p>
+ *
+ * <h2>Разбор:</h2>
+ * <ul>
+ *     <li>CSV: записи по RFC 4180 (значение в кавычках может содержать запятые, переводы строк
+ *     и удвоенные кавычки; строки разделяются {@code \n} или {@code \r\n}). Первые четыре значения
+ *     записи передаются в {@link Rows}; заголовок распознаёт получатель.</li>
+ *     <li>JSON Lines: каждая непустая строка — плоский JSON-объект. Поля {@code operation},
+ *     {@code name}, {@code parent} и {@code previousPath} передаются в {@link CategoryImportSession},
+ *     остальные поля пропускаются. Строка с некорректным JSON отклоняется, чтение продолжается.</li>
+ * </ul>
+ * Метка порядка байтов UTF-8 в начале файла пропускается, некорректные последовательности байтов
+ * заменяются символом U+FFFD.
+ *
+ * <p>Экземпляр не потокобезопасен и читает один файл.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+final class CategoryTextReader {
+    private static final int BYTE_BUFFER_SIZE = 64 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 16 * 1024;
+    private static final int COLUMNS = 4;
+    private static final int EOF = -1;
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE).flip();
+    private final StringBuilder text = new StringBuilder();
+    private boolean endOfInput;
+    private boolean flushed;
+    private boolean started;
+
+    // Состояние разбора строки JSON
+    private int position;
+    private String error;
+
+    CategoryTextReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Читает записи CSV и передаёт первые {@value #COLUMNS} значения каждой записи получателю.
+     *
+     * @param rows получатель записей.
+     * @throws IOException если файл не удалось прочитать.
+     */
+    void readCsv(Rows rows) throws IOException {
+        String[] values = new String[COLUMNS];
+        int rowIndex = 0;
+        int column = 0;
+        boolean quoted = false;      // Внутри значения в кавычках
+        boolean quoteClosed = false; // Предыдущий символ закрыл кавычки
+        boolean empty = true;        // В текущей записи ещё нет символов
+
+        for (int c = next(); c != EOF; c = next()) {
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                    quoteClosed = true;
+                } else {
+                    text.append((char) c);
+                }
+                continue;
+            }
+            if (c == '"') {
+                if (quoteClosed) {
+                    text.append('"'); // Удвоенная кавычка внутри значения
+                    quoted = true;
+                    quoteClosed = false;
+                } else if (text.isEmpty()) {
+                    quoted = true;
+                } else {
+                    text.append('"');
+                }
+                empty = false;
+                continue;
+            }
+            quoteClosed = false;
+            if (c == ',') {
+                column = endValue(values, column);
+                empty = false;
+            } else if (c == '\n') {
+                endValue(values, column);
+                rows.row(rowIndex++, values);
+                Arrays.fill(values, null);
+                column = 0;
+                empty = true;
+            } else if (c != '\r') {
+                text.append((char) c);
+                empty = false;
+            }
+        }
+        if (!empty) {
+            endValue(values, column); // Последняя запись без перевода строки
+            rows.row(rowIndex, values);
+        }
+    }
+
+    private int endValue(String[] values, int column) {
+        if (column < values.length && !text.isEmpty()) {
+            values[column] = text.toString();
+        }
+        text.setLength(0);
+        return column + 1;
+    }
+
+    /**
+     * Читает строки JSON Lines и передаёт категории и изменения в сессию импорта.
+     *
+     * @param session сессия импорта.
+     * @throws IOException если файл не удалось прочитать.
+     */
+    void readJsonLines(CategoryImportSession session) throws IOException {
+        String[] fields = new String[COLUMNS]; // operation, name, parent, previousPath
+        int lineNumber = 0;
+        int c;
+        do {
+            c = next();
+            if (c != '\n' && c != EOF) {
+                text.append((char) c);
+                continue;
+            }
+            lineNumber++;
+            if (!isBlank(text)) {
+                Arrays.fill(fields, null);
+                if (!parseObject(fields)) {
+                    session.malformed(lineNumber, "некорректный JSON: " + error);
+                } else if (fields[0] != null) {
+                    session.acceptChange(lineNumber, fields[0], fields[1], fields[2], fields[3]);
+                } else {
+                    session.accept(lineNumber, fields[1], fields[2]);
+                }
+            }
+            text.setLength(0);
+        } while (c != EOF);
+    }
+
+    /**
+     * Разбирает объект из {@link #text} в поля по {@link #field(String)}.
+     *
+     * @return {@code true}, если объект корректен; иначе причина в {@link #error}.
+     */
+    private boolean parseObject(String[] fields) {
+        position = 0;
+        error = null;
+        if (!expect('{')) {
+            return false;
+        }
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+        } else {
+            while (true) {
+                skipWhitespace();
+                String key = parseString();
+                if (key == null || !expect(':')) {
+                    return false;
+                }
+                skipWhitespace();
+                int index = field(key);
+                String value = parseValue();
+                if (error != null) {
+                    return false;
+                }
+                if (index >= 0) {
+                    fields[index] = value;
+                }
+                skipWhitespace();
+                int c = position < text.length() ? text.charAt(position++) : EOF;
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    return fail("ожидалась ',' или '}'");
+                }
+            }
+        }
+        skipWhitespace();
+        return position == text.length() || fail("лишние символы после объекта");
+    }
+
+    private static int field(String key) {
+        return switch (key) {
+            case "operation" -> 0;
+            case "name" -> 1;
+            case "parent" -> 2;
+            case "previousPath" -> 3;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Разбирает значение поля: строку, {@code null}, число или логическое значение.
+     * Вложенные объекты и массивы не поддерживаются.
+     */
+    private String parseValue() {
+        int c = peek();
+        if (c == '"') {
+            return parseString();
+        }
+        if (c == '{' || c == '[') {
+            fail("вложенные объекты и массивы не поддерживаются");
+            return null;
+        }
+        int start = position;
+        while (position < text.length() && isLiteralChar(text.charAt(position))) {
+            position++;
+        }
+        String literal = text.substring(start, position);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (!literal.equals("true") && !literal.equals("false") && !isNumber(literal)) {
+            fail("ожидалось значение");
+            return null;
+        }
+        return literal;
+    }
+
+    private static boolean isLiteralChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '+' || c == '-' || c == '.';
+    }
+
+    private static boolean isNumber(String literal) {
+        if (literal.isEmpty() || literal.charAt(0) != '-' && !Character.isDigit(literal.charAt(0))) {
+            return false;
+        }
+        try {
+            Double.parseDouble(literal);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private String parseString() {
+        if (!expect('"')) {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        fail("неполная escape-последовательность");
+                        return null;
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(text.charAt(position++), 16);
+                        if (digit < 0) {
+                            fail("некорректная escape-последовательность");
+                            return null;
+                        }
+                        code = code * 16 + digit;
+                    }
+                    value.append((char) code);
+                }
+                default -> {
+                    fail("некорректная escape-последовательность \\" + escaped);
+                    return null;
+                }
+            }
+        }
+        fail("незакрытая строка");
+        return null;
+    }
+
+    private boolean expect(char expected) {
+        skipWhitespace();
+        if (peek() != expected) {
+            return fail("ожидался символ '" + expected + "'");
+        }
+        position++;
+        return true;
+    }
+
+    private int peek() {
+        return position < text.length() ? text.charAt(position) : EOF;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean fail(String reason) {
+        if (error == null) {
+            error = reason + " (символ " + (position + 1) + ")";
+        }
+        return false;
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * @return следующий символ файла или {@link #EOF}.
+     */
+    private int next() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            return EOF;
+        }
+        char c = chars.get();
+        if (!started) {
+            started = true;
+            if (c == '\uFEFF') {
+                return next(); // Метка порядка байтов
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Декодирует следующую порцию символов.
+     *
+     * @return {@code false}, если файл прочитан до конца.
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !flushed) {
+            if (!endOfInput && channel.read(bytes) < 0) {
+                endOfInput = true;
+            }
+            bytes.flip();
+            boolean overflow = decoder.decode(bytes, chars, endOfInput).isOverflow();
+            bytes.compact();
+            if (endOfInput && !overflow) {
+                decoder.flush(chars);
+                flushed = true;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    /**
+     * Получатель записей CSV.
+     */
+    @FunctionalInterface
+    interface Rows {
+        /**
+         * @param rowIndex номер записи в файле, начиная с нуля.
+         * @param values   значения первых столбцов; пустые значения — {@code null}.
+         *                 Массив переиспользуется для следующей записи.
+         */
+        void row(int rowIndex, String[] values);
+    }
+}
@@ -0,0 +1,201 @@
+package kz.meiir.telegram_bot.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Потоковая запись строк выгрузки в формате CSV или JSON Lines ({@link CategoryFileFormat}).
+ *
+ * <p>Символы накапливаются в буфере и кодируются в UTF-8 прямо в прямой {@link ByteBuffer},
+ * который сбрасывается в канал по мере заполнения. Строки файла не собираются в памяти,
+ * поэтому расход памяти не зависит от размера дерева.</p>
+ *
+ * <p>Экземпляр не потокобезопасен.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+final class CategoryTextWriter {
+    private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+    private static final int BYTE_BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final CategoryFileFormat format;
+    private final String[] keys;
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+
+    /**
+     * Создаёт запись и для CSV сразу записывает заголовок.
+     *
+     * @param format  {@link CategoryFileFormat#CSV} или {@link CategoryFileFormat#JSONL}.
+     * @param channel канал, в который записывается файл (не закрывается).
+     * @param header  названия столбцов CSV.
+     * @param keys    названия полей JSON по столбцам.
+     * @throws IOException если произошла ошибка записи.
+     */
+    CategoryTextWriter(CategoryFileFormat format, WritableByteChannel channel, String[] header, String[] keys)
+            throws IOException {
+        if (format == CategoryFileFormat.XLSX) {
+            throw new IllegalArgumentException("XLSX не является текстовым форматом");
+        }
+        this.format = format;
+        this.keys = keys;
+        this.channel = channel;
+        if (format == CategoryFileFormat.CSV) {
+            row(header);
+        }
+    }
+
+    /**
+     * Записывает строку. Значения {@code null} в CSV записываются пустыми, в JSON не записываются.
+     *
+     * @param values значения по столбцам.
+     * @throws IOException если произошла ошибка записи.
+     */
+    void row(String... values) throws IOException {
+        if (format == CategoryFileFormat.CSV) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    append(',');
+                }
+                appendCsv(values[i]);
+            }
+        } else {
+            append('{');
+            boolean first = true;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    continue;
+                }
+                if (!first) {
+                    append(',');
+                }
+                first = false;
+                appendJson(keys[i]);
+                append(':');
+                appendJson(values[i]);
+            }
+            append('}');
+        }
+        append('\n');
+    }
+
+    /**
+     * Кодирует оставшиеся символы и сбрасывает их в канал.
+     *
+     * @throws IOException если произошла ошибка записи.
+     */
+    void finish() throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, true).isOverflow()) {
+            drain();
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+        drain();
+        chars.clear();
+        encoder.reset();
+    }
+
+    private void appendCsv(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (!needsQuotes(value)) {
+            append(value);
+            return;
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"'); // Кавычка внутри значения удваивается
+            }
+            append(c);
+        }
+        append('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendJson(String value) throws IOException {
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> append("\\\"");
+                case '\\' -> append("\\\\");
+                case '\n' -> append("\\n");
+                case '\r' -> append("\\r");
+                case '\t' -> append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        append("\\u00");
+                        append(HEX[c >> 4]);
+                        append(HEX[c & 0xF]);
+                    } else {
+                        append(c);
+                    }
+                }
+            }
+        }
+        append('"');
+    }
+
+    private void append(String value) throws IOException {
+        int offset = 0;
+        while (offset < value.length()) {
+            if (!chars.hasRemaining()) {
+                flushChars();
+            }
+            int count = Math.min(chars.remaining(), value.length() - offset);
+            chars.put(value, offset, offset + count);
+            offset += count;
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            flushChars();
+        }
+        chars.put(c);
+    }
+
+    /**
+     * Кодирует накопленные символы; незавершённая суррогатная пара остаётся в буфере до следующей порции.
+     */
+    private void flushChars() throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, false).isOverflow()) {
+            drain();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -0,0 +1,613 @@
+package kz.meiir.telegram_bot.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.model.CategoryChange;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.repository.CategoryChangeRepository;
+import kz.meiir.telegram_bot.repository.CategoryRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кеш деревьев категорий чатов в памяти.
+ *
+ * <p>Для каждого чата хранится актуальный {@link CategoryTreeSnapshot} и его {@link CategorySearchIndex}.
+ * Дерево загружается из базы данных при первом обращении к нему, после чего сервисы создания
+ * и удаления категорий обновляют его сразу после записи в базу данных (write-through),
+ * поэтому повторное чтение дерева не требует обращений к базе.</p>
+ *
+ * <h2>Вытеснение:</h2>
+ * В памяти хранится не больше {@code telegram.bot.tree-cache-capacity} деревьев. При превышении
+ * вытесняется дерево чата, к которому дольше всех не обращались (LRU); при следующем обращении
+ * оно снова загружается одним запросом. Каждое обращение только записывает время в само дерево,
+ * а поиск самого старого дерева выполняется при добавлении нового дерева в кеш. Изменения в невыгруженных деревьях не применяются:
+ * они будут прочитаны из базы данных при загрузке.
+ *
+ * <h2>Потокобезопасность:</h2>
+ * <ul>
+ *     <li>Читатели получают текущий снимок через {@link #snapshot(long)} без блокировок: деревья хранятся
+ *     в {@link ConcurrentHashMap}, а загрузка дерева одного чата не задерживает остальные.</li>
+ *     <li>Вытеснение сериализуется отдельной блокировкой и выполняется только при добавлении дерева.
+ *     Параллельные загрузки могут ненадолго превысить ёмкость на несколько деревьев.</li>
+ *     <li>Писатели одного чата сериализуются и публикуют новый снимок (copy-on-write).</li>
+ * </ul>
+ *
+ * <h2>Несколько экземпляров:</h2>
+ * Каждое изменение публикует {@link CategoryTreeChangedEvent} с идентификатором чата в текущем потоке
+ * (внутри транзакции записи, если она есть). {@link CategoryTreeChangeNotifier} пересылает его другим
+ * экземплярам, которые выгружают дерево этого чата. Повторное применение уже загруженных изменений
+ * безопасно: добавление существующей категории и удаление отсутствующей пропускаются.
+ *
+ * <h2>Позиция журнала:</h2>
+ * Вместе с деревом хранится позиция журнала {@code category_change}, полученная до его чтения
+ * ({@link CategoryChangeRepository#currentPosition()}). Дерево содержит все изменения до этой
+ * позиции, поэтому его можно сохранить и позже догнать изменениями из журнала
+ * ({@link #replay(List, long, long)}), не читая дерево заново.
+ *
+ * <h2>Версия содержимого:</h2>
+ * Каждый опубликованный снимок получает новый номер ({@link #version(long)}), общий счётчик для всех
+ * чатов. Равные номера означают один и тот же снимок, поэтому по номеру можно кешировать результаты,
+ * вычисленные из дерева (например, выгрузки).
+ *
+ * <h2>Метрики:</h2>
+ * <ul>
+ *     <li><strong>category.tree.nodes</strong>: Количество категорий во всех деревьях в памяти.</li>
+ *     <li><strong>category.tree.chats</strong>: Количество деревьев чатов в памяти.</li>
+ *     <li><strong>category.tree.loads</strong>: Количество загрузок дерева из базы данных.</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Service
+public class CategoryTreeCache implements MeterBinder {
+
+    private final CategoryRepository categoryRepository;
+    private final CategoryChangeRepository categoryChangeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, Tree> trees = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final int capacity;
+    private final LongAdder loads = new LongAdder();
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicLong accesses = new AtomicLong();
+
+    /**
+     * Конструктор кеша.
+     *
+     * @param categoryRepository       репозиторий, из которого загружаются деревья.
+     * @param categoryChangeRepository журнал изменений (позиция загруженного дерева).
+     * @param eventPublisher           публикатор событий изменения дерева.
+     * @param botProperties            свойства бота (количество деревьев в памяти).
+     */
+    public CategoryTreeCache(CategoryRepository categoryRepository, CategoryChangeRepository categoryChangeRepository,
+                             ApplicationEventPublisher eventPublisher, TelegramBotProperties botProperties) {
+        this.categoryRepository = categoryRepository;
+        this.categoryChangeRepository = categoryChangeRepository;
+        this.eventPublisher = eventPublisher;
+        this.capacity = botProperties.getTreeCacheCapacity();
+    }
+
+    /**
+     * Регистрирует метрики кеша.
+     *
+     * @param registry реестр метрик.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("category.tree.nodes", this, CategoryTreeCache::nodeCount).register(registry);
+        Gauge.builder("category.tree.chats", this, CategoryTreeCache::chatCount).register(registry);
+        FunctionCounter.builder("category.tree.loads", loads, LongAdder::sum).register(registry);
+    }
+
+    /**
+     * Возвращает текущий снимок дерева чата, загружая его при первом обращении.
+     *
+     * @param chatId идентификатор чата.
+     * @return неизменяемый снимок дерева категорий чата.
+     */
+    public CategoryTreeSnapshot snapshot(long chatId) {
+        return tree(chatId).loaded();
+    }
+
+    /**
+     * Возвращает текущий снимок дерева чата вместе с позицией журнала, загружая дерево при первом обращении.
+     *
+     * @param chatId идентификатор чата.
+     * @return снимок дерева и позиция, до которой он содержит все изменения.
+     */
+    public LoadedTree loadedTree(long chatId) {
+        Tree tree = tree(chatId);
+        tree.loaded();
+        long position = tree.position; // Позиция читается до снимка: снимок может быть только новее
+        return new LoadedTree(chatId, tree.snapshot, position);
+    }
+
+    /**
+     * Возвращает номер текущего снимка дерева чата, загружая дерево при первом обращении.
+     *
+     * <p>Номер нужно получить до чтения снимка: снимок, прочитанный после, может быть только новее,
+     * поэтому результат, сохранённый под этим номером, никогда не окажется старше своего номера.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @return номер снимка; меняется при каждом изменении дерева, загрузке и восстановлении.
+     */
+    public long version(long chatId) {
+        Tree tree = tree(chatId);
+        tree.loaded();
+        return tree.version;
+    }
+
+    /**
+     * Возвращает индекс поиска по дереву чата, загружая дерево при первом обращении.
+     *
+     * @param chatId идентификатор чата.
+     * @return индекс поиска, соответствующий снимку {@link #snapshot(long)}.
+     */
+    CategorySearchIndex searchIndex(long chatId) {
+        Tree tree = tree(chatId);
+        tree.loaded();
+        return tree.searchIndex;
+    }
+
+    /**
+     * Выгружает дерево чата; следующее обращение загрузит его из базы данных.
+     *
+     * @param chatId идентификатор чата.
+     */
+    public void invalidate(long chatId) {
+        trees.remove(chatId);
+    }
+
+    /**
+     * Выгружает деревья всех чатов.
+     */
+    public void invalidateAll() {
+        trees.clear();
+    }
+
+    /**
+     * Возвращает загруженные деревья от давно не использованного к недавно использованному.
+     *
+     * @return деревья чатов с позициями журнала.
+     */
+    public List<LoadedTree> loadedTrees() {
+        List<Tree> resident = new ArrayList<>(trees.values());
+        resident.sort(Comparator.comparingLong(tree -> tree.accessedAt));
+        List<LoadedTree> loaded = new ArrayList<>();
+        for (Tree tree : resident) {
+            long position = tree.position; // Позиция читается до снимка: снимок может быть только новее
+            CategoryTreeSnapshot snapshot = tree.snapshot;
+            if (snapshot != null) {
+                loaded.add(new LoadedTree(tree.chatId, snapshot, position));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Помещает в кеш дерево, прочитанное не из базы данных (например, из сохранённого снимка).
+     * Если дерево чата уже в кеше, оно не заменяется.
+     *
+     * @param chatId   идентификатор чата.
+     * @param snapshot дерево чата.
+     * @param position позиция журнала, до которой дерево содержит все изменения.
+     */
+    public void restore(long chatId, CategoryTreeSnapshot snapshot, long position) {
+        Tree tree = new Tree(chatId);
+        tree.searchIndex.rebuild(snapshot);
+        tree.position = position;
+        tree.publish(snapshot);
+        if (trees.putIfAbsent(chatId, tree) == null) {
+            evictLeastRecentlyUsed();
+        }
+    }
+
+    /**
+     * Применяет изменения из журнала к загруженным деревьям.
+     *
+     * <p>Изменения должны быть прочитаны {@link CategoryChangeRepository#findChanges(long)} с позиции
+     * {@code from} после получения позиции {@code to}. Деревья с позицией не меньше {@code from}
+     * применяют изменения со своей позиции и получают позицию {@code to}; повторное применение
+     * уже отражённых в дереве изменений безопасно. Дерево чата, в котором категория была
+     * переименована или перенесена, выгружается и при следующем обращении загружается заново.</p>
+     *
+     * <p>Между чтением журнала и вызовом метода категорию могут удалить из кеша напрямую
+     * ({@link #removed(long, Collection)}), а её добавление ещё есть в прочитанных изменениях.
+     * Идентификаторы категорий не переиспользуются, поэтому дерево помнит удалённые из него
+     * категории и не добавляет их снова. Журнал должен читаться и применяться по очереди:
+     * удалённая категория забывается, когда её добавления нет в изменениях, прочитанных
+     * после предыдущего вызова.</p>
+     *
+     * @param changes изменения всех чатов в порядке выполнения.
+     * @param from    позиция, с которой прочитаны изменения.
+     * @param to      позиция журнала, полученная до чтения изменений.
+     */
+    public void replay(List<CategoryChange> changes, long from, long to) {
+        Map<Long, List<CategoryChange>> byChat = new HashMap<>();
+        for (CategoryChange change : changes) {
+            byChat.computeIfAbsent(change.chatId(), chatId -> new ArrayList<>()).add(change);
+        }
+        for (Tree tree : trees.values()) {
+            if (!tree.replay(byChat.getOrDefault(tree.chatId, List.of()), from, to)) {
+                trees.remove(tree.chatId, tree);
+            }
+        }
+    }
+
+    /**
+     * Добавляет сохранённую категорию в кеш.
+     *
+     * @param chatId идентификатор чата.
+     * @param node   узел, уже сохранённый в базе данных.
+     */
+    public void added(long chatId, CategoryTreeSnapshot.Node node) {
+        added(chatId, List.of(node));
+    }
+
+    /**
+     * Добавляет несколько сохранённых категорий в кеш одним снимком.
+     *
+     * @param chatId идентификатор чата.
+     * @param nodes  узлы, уже сохранённые в базе данных.
+     */
+    public void added(long chatId, List<CategoryTreeSnapshot.Node> nodes) {
+        changed(chatId, nodes);
+        applyAdded(chatId, nodes);
+    }
+
+    /**
+     * Удаляет категорию и всех её потомков из кеша.
+     *
+     * @param chatId идентификатор чата.
+     * @param id     идентификатор удалённой категории.
+     */
+    public void removed(long chatId, long id) {
+        removed(chatId, List.of(id));
+    }
+
+    /**
+     * Удаляет несколько категорий вместе с потомками из кеша одним снимком.
+     *
+     * @param chatId идентификатор чата.
+     * @param ids    идентификаторы удалённых категорий.
+     */
+    public void removed(long chatId, Collection<Long> ids) {
+        changed(chatId, ids);
+        applyRemoved(chatId, ids);
+    }
+
+    /**
+     * Добавляет категории в кеш после фиксации текущей транзакции.
+     *
+     * <p>Если транзакция будет откачена, кеш не изменится. Вне транзакции категории
+     * добавляются сразу.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param nodes  узлы, записанные в базу данных в текущей транзакции.
+     */
+    public void addedAfterCommit(long chatId, List<CategoryTreeSnapshot.Node> nodes) {
+        changed(chatId, nodes);
+        afterCommit(() -> applyAdded(chatId, nodes));
+    }
+
+    /**
+     * Удаляет категории из кеша после фиксации текущей транзакции.
+     *
+     * @param chatId идентификатор чата.
+     * @param ids    идентификаторы категорий, удалённых в текущей транзакции.
+     */
+    public void removedAfterCommit(long chatId, Collection<Long> ids) {
+        changed(chatId, ids);
+        afterCommit(() -> applyRemoved(chatId, ids));
+    }
+
+    /**
+     * Выгружает дерево чата после фиксации текущей транзакции. Используется для изменений,
+     * которые кеш не применяет сам (переименование или перенос категорий).
+     *
+     * @param chatId идентификатор чата.
+     */
+    public void invalidateAfterCommit(long chatId) {
+        eventPublisher.publishEvent(new CategoryTreeChangedEvent(chatId));
+        afterCommit(() -> invalidate(chatId));
+    }
+
+    private Tree tree(long chatId) {
+        Tree tree = trees.get(chatId);
+        if (tree == null) {
+            Tree created = new Tree(chatId);
+            tree = trees.putIfAbsent(chatId, created);
+            if (tree == null) {
+                evictLeastRecentlyUsed();
+                return created;
+            }
+        }
+        tree.accessed();
+        return tree;
+    }
+
+    private Tree resident(long chatId) {
+        Tree tree = trees.get(chatId);
+        if (tree != null) {
+            tree.accessed();
+        }
+        return tree;
+    }
+
+    /**
+     * Вытесняет деревья, к которым дольше всех не обращались, пока их больше ёмкости кеша.
+     * Просмотр всех деревьев выполняется только при добавлении дерева, то есть рядом с загрузкой
+     * из базы данных, поэтому не влияет на чтение уже загруженных деревьев.
+     */
+    private void evictLeastRecentlyUsed() {
+        synchronized (evictionLock) {
+            while (trees.size() > capacity) {
+                Tree eldest = null;
+                for (Tree tree : trees.values()) {
+                    if (eldest == null || tree.accessedAt < eldest.accessedAt) {
+                        eldest = tree;
+                    }
+                }
+                if (eldest == null) {
+                    return;
+                }
+                trees.remove(eldest.chatId, eldest);
+            }
+        }
+    }
+
+    private void applyAdded(long chatId, List<CategoryTreeSnapshot.Node> nodes) {
+        Tree tree = resident(chatId);
+        if (tree != null) {
+            tree.applyAdded(nodes);
+        }
+    }
+
+    private void applyRemoved(long chatId, Collection<Long> ids) {
+        Tree tree = resident(chatId);
+        if (tree != null) {
+            tree.applyRemoved(ids);
+        }
+    }
+
+    private double nodeCount() {
+        long count = 0;
+        for (Tree tree : trees.values()) {
+            CategoryTreeSnapshot snapshot = tree.snapshot;
+            count += snapshot == null ? 0 : snapshot.size();
+        }
+        return count;
+    }
+
+    private double chatCount() {
+        return trees.size();
+    }
+
+    private void changed(long chatId, Collection<?> items) {
+        if (!items.isEmpty()) {
+            eventPublisher.publishEvent(new CategoryTreeChangedEvent(chatId));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Загруженное дерево чата.
+     *
+     * @param chatId   идентификатор чата.
+     * @param snapshot снимок дерева.
+     * @param position позиция журнала, до которой снимок содержит все изменения.
+     */
+    public record LoadedTree(long chatId, CategoryTreeSnapshot snapshot, long position) {
+    }
+
+    /**
+     * Дерево одного чата. Загрузка и изменения сериализуются монитором дерева, поэтому
+     * изменение, зафиксированное во время загрузки, применяется к уже загруженному снимку.
+     */
+    private final class Tree {
+        private final long chatId;
+        private final CategorySearchIndex searchIndex = new CategorySearchIndex();
+        private volatile CategoryTreeSnapshot snapshot; // null, пока дерево не загружено
+        private volatile long position;
+        private volatile long version;
+        private volatile long accessedAt = accesses.incrementAndGet(); // Для вытеснения (LRU)
+        // Удалённые категории и номер применения журнала, во время которого они удалены
+        private final Map<Long, Long> removedAt = new HashMap<>();
+        private long replays;
+
+        private Tree(long chatId) {
+            this.chatId = chatId;
+        }
+
+        /**
+         * Отмечает обращение к дереву. Время записывается, только если дерево уже не самое недавнее,
+         * поэтому частое чтение одного дерева не изменяет общий счётчик на каждом обращении.
+         */
+        private void accessed() {
+            if (accessedAt != accesses.get()) {
+                accessedAt = accesses.incrementAndGet();
+            }
+        }
+
+        /**
+         * Публикует новый снимок. Номер записывается после снимка: читатель, увидевший номер,
+         * увидит и снимок не старше него.
+         */
+        private void publish(CategoryTreeSnapshot tree) {
+            snapshot = tree;
+            version = versions.incrementAndGet();
+        }
+
+        private CategoryTreeSnapshot loaded() {
+            CategoryTreeSnapshot current = snapshot;
+            return current != null ? current : load();
+        }
+
+        private synchronized CategoryTreeSnapshot load() {
+            if (snapshot == null) {
+                long loadedAt = categoryChangeRepository.currentPosition();
+                List<CategoryTreeSnapshot.Node> nodes = categoryRepository.loadTree(chatId).stream()
+                        .map(row -> new CategoryTreeSnapshot.Node(row.getId(), row.getParentId(), row.getName()))
+                        .toList();
+                CategoryTreeSnapshot tree = CategoryTreeSnapshot.of(nodes);
+                searchIndex.rebuild(tree);
+                position = loadedAt;
+                publish(tree);
+                loads.increment();
+            }
+            return snapshot;
+        }
+
+        private synchronized void applyAdded(List<CategoryTreeSnapshot.Node> nodes) {
+            if (snapshot == null) {
+                return; // Загрузка ещё не начиналась и прочитает уже зафиксированные категории
+            }
+            // Категория уже могла попасть в снимок при загрузке
+            List<CategoryTreeSnapshot.Node> missing = new ArrayList<>(nodes.stream()
+                    .filter(node -> snapshot.indexOf(node.id()) == CategoryTreeSnapshot.NONE)
+                    .toList());
+            dropOrphans(missing);
+            if (!missing.isEmpty()) {
+                publish(snapshot.withAdded(missing));
+                searchIndex.add(missing);
+            }
+        }
+
+        /**
+         * Убирает узлы, родителя которых нет ни в снимке, ни среди добавляемых узлов.
+         *
+         * <p>Добавление применяется к кешу после фиксации вставки, и удаление поддерева родителя,
+         * зафиксированное позже, может попасть в кеш раньше. В базе данных такой категории уже нет,
+         * а в снимке без родителя она стала бы корневой.</p>
+         */
+        private void dropOrphans(List<CategoryTreeSnapshot.Node> nodes) {
+            Set<Long> ids = new HashSet<>();
+            for (CategoryTreeSnapshot.Node node : nodes) {
+                ids.add(node.id());
+            }
+            boolean dropped;
+            do {
+                // Повтор нужен для потомков убранного узла, которые идут в списке раньше него
+                dropped = nodes.removeIf(node -> {
+                    Long parentId = node.parentId();
+                    if (parentId == null || ids.contains(parentId)
+                            || snapshot.indexOf(parentId) != CategoryTreeSnapshot.NONE) {
+                        return false;
+                    }
+                    ids.remove(node.id());
+                    return true;
+                });
+            } while (dropped);
+        }
+
+        private synchronized void applyRemoved(Collection<Long> ids) {
+            if (snapshot == null || ids.isEmpty()) {
+                return;
+            }
+            CategoryTreeSnapshot previous = snapshot;
+            for (long id : ids) {
+                remember(previous, previous.indexOf(id));
+            }
+            publish(previous.withRemoved(ids));
+            searchIndex.removed(snapshot, previous.size() - snapshot.size());
+        }
+
+        /**
+         * @return {@code false}, если дерево нужно загрузить заново.
+         */
+        private synchronized boolean replay(List<CategoryChange> changes, long from, long to) {
+            if (snapshot == null || position < from) {
+                // Дерево ещё не загружено или изменения между его позицией и from не прочитаны:
+                // дерево остаётся со своей позицией и догонит журнал при следующем чтении
+                return true;
+            }
+            List<CategoryTreeSnapshot.Node> added = new ArrayList<>();
+            List<Long> removed = new ArrayList<>();
+            Set<Long> stale = new HashSet<>();
+            for (CategoryChange change : changes) {
+                if (change.xid() < position) {
+                    continue;
+                }
+                switch (change.operation()) {
+                    case INSERT -> {
+                        if (removedAt.containsKey(change.categoryId())) {
+                            stale.add(change.categoryId()); // Категория уже удалена из дерева
+                            continue;
+                        }
+                        applyRemoved(removed);
+                        removed.clear();
+                        added.add(change.node());
+                    }
+                    case DELETE -> {
+                        applyAdded(added);
+                        added.clear();
+                        removed.add(change.categoryId());
+                    }
+                    case UPDATE -> {
+                        return false;
+                    }
+                }
+            }
+            applyAdded(added);
+            applyRemoved(removed);
+            position = Math.max(position, to);
+            // Изменения этого вызова прочитаны после предыдущего: добавление категории, удалённой
+            // раньше и не найденной в них, уже не вернётся при следующих чтениях журнала
+            long current = replays++;
+            removedAt.entrySet().removeIf(entry -> entry.getValue() < current && !stale.contains(entry.getKey()));
+            return true;
+        }
+
+        /**
+         * Запоминает категорию и её потомков как удалённые.
+         */
+        private void remember(CategoryTreeSnapshot tree, int root) {
+            if (root == CategoryTreeSnapshot.NONE) {
+                return;
+            }
+            Deque<Integer> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                int node = stack.pop();
+                removedAt.putIfAbsent(tree.id(node), replays);
+                for (int child = tree.firstChild(node); child != CategoryTreeSnapshot.NONE;
+                     child = tree.nextSibling(child)) {
+                    stack.push(child);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package kz.meiir.telegram_bot.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Синхронизация кеша дерева категорий между экземплярами бота через PostgreSQL LISTEN/NOTIFY.
+ *
+ * <h2>Описание:</h2>
+ * <ul>
+ *     <li>На каждое {@link CategoryTreeChangedEvent} выполняется {@code pg_notify} в канал
+ *     {@value #CHANNEL} с содержимым {@code <идентификатор экземпляра>:<идентификатор чата>}. Если запись
+ *     выполняется в транзакции, PostgreSQL доставит уведомление только после её фиксации.</li>
+ *     <li>Отдельный поток держит соединение с {@code LISTEN} и при уведомлениях от других экземпляров
+ *     выгружает из кеша дерево изменённого чата; оно будет загружено заново при следующем обращении.</li>
+ *     <li>После переподключения выгружаются деревья всех чатов, так как уведомления могли быть пропущены.</li>
+ * </ul>
+ *
+ * <p>Включается свойством {@code telegram.bot.cache-notifications=true}. После ручного изменения
+ * таблицы достаточно выполнить {@code NOTIFY category_tree} (без содержимого), чтобы все экземпляры
+ * выгрузили деревья всех чатов.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "telegram.bot", name = "cache-notifications", havingValue = "true")
+public class CategoryTreeChangeNotifier {
+    static final String CHANNEL = "category_tree";
+    private static final int POLL_MILLIS = 1000;
+    private static final long RECONNECT_MILLIS = 5000;
+
+    private final CategoryTreeCache categoryTreeCache;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private volatile boolean running = true;
+    private Thread listener;
+
+    /**
+     * Конструктор синхронизатора кеша.
+     *
+     * @param categoryTreeCache кеш дерева категорий.
+     * @param dataSource        источник соединения для {@code LISTEN}.
+     * @param jdbcTemplate      шаблон для отправки уведомлений.
+     */
+    public CategoryTreeChangeNotifier(CategoryTreeCache categoryTreeCache, DataSource dataSource,
+                                      JdbcTemplate jdbcTemplate) {
+        this.categoryTreeCache = categoryTreeCache;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Запускает поток, принимающий уведомления.
+     */
+    @PostConstruct
+    public void start() {
+        listener = Thread.ofPlatform().name("category-tree-listener").daemon().start(this::listen);
+    }
+
+    /**
+     * Сообщает другим экземплярам об изменении дерева.
+     *
+     * @param event событие изменения дерева.
+     */
+    @EventListener
+    public void onChanged(CategoryTreeChangedEvent event) {
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, CHANNEL,
+                instanceId + ':' + event.chatId());
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnect) {
+                    categoryTreeCache.invalidateAll();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            invalidate(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Соединение для уведомлений о категориях потеряно: {}", e.getMessage());
+                reconnect = true;
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void invalidate(String payload) {
+        int separator = payload.lastIndexOf(':');
+        if (separator < 0) {
+            categoryTreeCache.invalidateAll(); // Ручное уведомление без идентификатора чата
+            return;
+        }
+        if (payload.regionMatches(0, instanceId, 0, separator) && separator == instanceId.length()) {
+            return; // Собственное уведомление: кеш уже обновлён
+        }
+        try {
+            categoryTreeCache.invalidate(Long.parseLong(payload.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            categoryTreeCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Останавливает поток, принимающий уведомления.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package kz.meiir.telegram_bot.service;
+
+/**
+ * Событие изменения дерева категорий чата.
+ *
+ * <p>Публикуется {@link CategoryTreeCache} синхронно в потоке, выполняющем запись,
+ * поэтому обработчик выполняется внутри транзакции записи, если она есть.</p>
+ *
+ * @param chatId идентификатор чата, дерево которого изменилось.
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public record CategoryTreeChangedEvent(long chatId) {
+}
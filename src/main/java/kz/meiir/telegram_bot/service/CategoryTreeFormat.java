@@ -0,0 +1,23 @@
+package kz.meiir.telegram_bot.service;
+
+/**
+ * Формат текстового представления дерева категорий.
+ *
+ * <h2>Форматы:</h2>
+ * <ul>
+ *     <li><strong>PLAIN</strong>: Строки {@code "- Название"} с отступом в два пробела на уровень
+ *     (формат команды {@code /viewTree}).</li>
+ *     <li><strong>MARKDOWN</strong>: Вложенный список Markdown; служебные символы Markdown
+ *     в названиях экранируются обратной косой чертой.</li>
+ *     <li><strong>JSON</strong>: Массив корневых категорий, каждая категория —
+ *     {@code {"id": 1, "name": "...", "children": [...]}}.</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public enum CategoryTreeFormat {
+    PLAIN,
+    MARKDOWN,
+    JSON
+}
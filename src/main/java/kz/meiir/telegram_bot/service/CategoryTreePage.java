@@ -0,0 +1,28 @@
+package kz.meiir.telegram_bot.service;
+
+/**
+ * Одна страница текстового представления дерева категорий.
+ *
+ * @param text      текст страницы (строки дерева целиком, без разрыва посередине строки).
+ * @param page      номер страницы, начиная с 0.
+ * @param pageCount общее количество страниц.
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public record CategoryTreePage(String text, int page, int pageCount) {
+
+    /**
+     * @return {@code true}, если перед этой страницей есть другие.
+     */
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+
+    /**
+     * @return {@code true}, если после этой страницы есть другие.
+     */
+    public boolean hasNext() {
+        return page + 1 < pageCount;
+    }
+}
@@ -0,0 +1,185 @@
+package kz.meiir.telegram_bot.service;
+
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Потоковый вывод дерева категорий в {@link Appendable}.
+ *
+ * <h2>Описание:</h2>
+ * Дерево выводится без рекурсии: узлы перебираются по позициям прямого обхода снимка
+ * ({@link CategoryTreeSnapshot#atPosition(int)}), поэтому глубина дерева не ограничена
+ * размером стека потока. Незакрытые уровни JSON отслеживаются по глубине предыдущего узла.
+ *
+ * <p>Для узлов не создаются временные строки: названия копируются из буфера снимка
+ * ({@link CategoryTreeSnapshot#appendName(int, Appendable)}), отступ — из общего буфера пробелов,
+ * идентификаторы записываются цифрами в переиспользуемый буфер, а экранирование выполняется
+ * посимвольно. Для {@link Writer} и {@link StringBuilder} буферы записываются без копирования
+ * в промежуточные строки.</p>
+ *
+ * <p>Экземпляр не потокобезопасен и создаётся на один вывод.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+final class CategoryTreeRenderer {
+    private static final String MARKDOWN_SPECIAL = "\\`*_{}[]()<>#+-.!|~";
+
+    private final CategoryTreeFormat format;
+    private final Appendable out;
+    private final char[] digits = new char[20];
+    private char[] indent = new char[0];
+
+    /**
+     * Конструктор вывода.
+     *
+     * @param format формат вывода.
+     * @param out    приёмник текста.
+     */
+    CategoryTreeRenderer(CategoryTreeFormat format, Appendable out) {
+        this.format = format;
+        this.out = out;
+    }
+
+    /**
+     * Выводит узлы, занимающие позиции {@code [from, to)} прямого обхода.
+     *
+     * <p>Для формата JSON диапазон должен быть целым деревом или поддеревом
+     * (непрерывным диапазоном {@code [position(node), subtreeEnd(node))} или всеми корнями).</p>
+     *
+     * @param tree       снимок дерева категорий.
+     * @param from       первая позиция.
+     * @param to         позиция, следующая за последней.
+     * @param baseDepth  глубина, выводимая без отступа.
+     * @param depthLimit максимальная глубина относительно {@code baseDepth}; потомки более
+     *                   глубоких узлов пропускаются.
+     * @throws IOException если приёмник не может записать текст.
+     */
+    void render(CategoryTreeSnapshot tree, int from, int to, int baseDepth, int depthLimit) throws IOException {
+        if (format == CategoryTreeFormat.JSON) {
+            out.append('[');
+        }
+        int previousLevel = -1;
+        for (int position = from; position < to; ) {
+            int node = tree.atPosition(position);
+            int level = tree.depth(node) - baseDepth;
+            if (format == CategoryTreeFormat.JSON) {
+                appendJsonNode(tree, node, level, previousLevel);
+            } else {
+                appendLine(tree, node, level);
+            }
+            previousLevel = level;
+            position = level >= depthLimit ? tree.subtreeEnd(node) : position + 1;
+        }
+        if (format == CategoryTreeFormat.JSON) {
+            closeJsonNodes(previousLevel + 1);
+            out.append(']');
+        }
+    }
+
+    private void appendLine(CategoryTreeSnapshot tree, int node, int level) throws IOException {
+        appendIndent(2 * level);
+        out.append("- ");
+        if (format == CategoryTreeFormat.MARKDOWN) {
+            appendMarkdownEscaped(tree, node);
+        } else {
+            tree.appendName(node, out);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Записывает начало объекта узла. Массив {@code children} остаётся открытым до тех пор,
+     * пока не встретится узел того же или меньшего уровня.
+     */
+    private void appendJsonNode(CategoryTreeSnapshot tree, int node, int level, int previousLevel)
+            throws IOException {
+        if (level <= previousLevel) {
+            closeJsonNodes(previousLevel - level + 1);
+            out.append(',');
+        }
+        out.append("{\"id\":");
+        appendLong(tree.id(node));
+        out.append(",\"name\":\"");
+        appendJsonEscaped(tree, node);
+        out.append("\",\"children\":[");
+    }
+
+    private void closeJsonNodes(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.append("]}");
+        }
+    }
+
+    private void appendIndent(int width) throws IOException {
+        if (indent.length < width) {
+            indent = new char[Math.max(width, indent.length * 2)];
+            Arrays.fill(indent, ' ');
+        }
+        appendChars(indent, 0, width);
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.append(Long.toString(value));
+            return;
+        }
+        long remaining = Math.abs(value);
+        int start = digits.length;
+        do {
+            digits[--start] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (value < 0) {
+            digits[--start] = '-';
+        }
+        appendChars(digits, start, digits.length - start);
+    }
+
+    private void appendChars(char[] chars, int offset, int length) throws IOException {
+        if (out instanceof Writer writer) {
+            writer.write(chars, offset, length);
+        } else if (out instanceof StringBuilder builder) {
+            builder.append(chars, offset, length);
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                out.append(chars[i]);
+            }
+        }
+    }
+
+    private void appendMarkdownEscaped(CategoryTreeSnapshot tree, int node) throws IOException {
+        for (int i = 0; i < tree.nameLength(node); i++) {
+            char c = tree.nameCharAt(node, i);
+            if (MARKDOWN_SPECIAL.indexOf(c) >= 0) {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+    }
+
+    private void appendJsonEscaped(CategoryTreeSnapshot tree, int node) throws IOException {
+        for (int i = 0; i < tree.nameLength(node); i++) {
+            char c = tree.nameCharAt(node, i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append("\\u00");
+                        out.append(Character.forDigit(c >> 4, 16));
+                        out.append(Character.forDigit(c & 0xf, 16));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,24 +1,36 @@
 package kz.meiir.telegram_bot.service;
 
-import kz.meiir.telegram_bot.model.Category;
-import kz.meiir.telegram_bot.repository.CategoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.utils.CategoryPaths;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+
 /**
  * Сервис для работы с деревом категорий.
  *
  * <p>Класс отвечает за построение иерархической структуры категорий,
- * представляя её в виде строки. Использует репозиторий {@link CategoryRepository}
- * для получения данных из базы.</p>
+ * представляя её в виде строки. У каждого чата своё дерево; данные берутся из кеша
+ * {@link CategoryTreeCache}, поэтому построение дерева не обращается к базе данных
+ * (кроме первого обращения к дереву чата или после его вытеснения из кеша).</p>
  *
  * <h2>Основные задачи:</h2>
  * <ul>
  *     <li>Получение списка корневых категорий (категорий без родителя).</li>
- *     <li>Построение дерева категорий в виде многоуровневой текстовой структуры.</li>
+ *     <li>Построение дерева категорий в виде многоуровневой текстовой структуры
+ *     и потоковая запись дерева в форматах {@link CategoryTreeFormat}.</li>
+ *     <li>Постраничный вывод дерева или отдельного поддерева с ограничением глубины.</li>
+ *     <li>Поиск категорий по части названия.</li>
  * </ul>
  *
+ * <p>Размер выводимого дерева (количество категорий в нём) записывается в гистограмму
+ * {@code category.tree.size} с тегом {@code operation=view}.</p>
+ *
  * @author Meiir Akhmetov
  * @version 1.0
  */
@@ -26,40 +38,165 @@ import java.util.List;
 @Service
 public class CategoryTreeService {
 
-    private final CategoryRepository categoryRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final MeterRegistry meterRegistry;
 
     /**
      * Возвращает иерархическую структуру категорий.
      *
-     * <p>Метод извлекает из базы корневые категории и рекурсивно строит дерево
-     * в виде строки. Каждый уровень дерева представлен отступами.</p>
+     * <p>Каждый уровень дерева представлен отступами (формат {@link CategoryTreeFormat#PLAIN}).</p>
      *
-     * @return строковое представление дерева категорий.
+     * @param chatId идентификатор чата.
+     * @return строковое представление дерева категорий или пустая строка, если категорий нет.
      */
-    public String getCategoryTree() {
-        List<Category> rootCategories = categoryRepository.findByParentIsNull();
+    public String getCategoryTree(long chatId) {
         StringBuilder treeBuilder = new StringBuilder();
-        for (Category root : rootCategories) {
-            buildTree(root, treeBuilder, 0);
+        try {
+            writeCategoryTree(chatId, CategoryTreeFormat.PLAIN, treeBuilder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder не выбрасывает IOException
         }
         return treeBuilder.toString();
     }
 
     /**
-     * Рекурсивно строит текстовое представление дерева категорий.
+     * Записывает всё дерево категорий в указанный приёмник.
+     *
+     * <p>Текст не накапливается в памяти: строки записываются в приёмник по мере обхода,
+     * поэтому вывод можно направить в файл, HTTP-ответ или разбивку на сообщения.</p>
      *
-     * @param category категория, с которой начинается построение.
-     * @param builder  объект {@link StringBuilder}, в который записывается дерево.
-     * @param level    текущий уровень глубины дерева (используется для создания отступов).
+     * @param chatId идентификатор чата.
+     * @param format формат вывода.
+     * @param out    приёмник текста (не закрывается методом).
+     * @throws IOException если приёмник не может записать текст.
      */
-    private void buildTree(Category category, StringBuilder builder, int level) {
-        builder.append("  ".repeat(level))
-                .append("- ")
-                .append(category.getName())
-                .append("\n");
+    public void writeCategoryTree(long chatId, CategoryTreeFormat format, Appendable out) throws IOException {
+        CategoryTreeSnapshot tree = categoryTreeCache.snapshot(chatId);
+        new CategoryTreeRenderer(format, out).render(tree, 0, tree.size(), 0, Integer.MAX_VALUE);
+    }
 
-        for (Category child : category.getChildren()) {
-            buildTree(child, builder, level + 1);
+    /**
+     * Находит категорию по названию или полному пути через "/".
+     *
+     * <p>Путь из одного названия сначала ищется среди корневых категорий,
+     * затем на любом уровне дерева; если там найдено несколько категорий с таким названием,
+     * результат помечается как неоднозначный.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param path   название категории или путь от корня (например: {@code "Родитель/Дочерняя"}).
+     * @return найденная категория, {@link CategoryLookup#NOT_FOUND} или {@link CategoryLookup#AMBIGUOUS}.
+     */
+    public CategoryLookup findCategory(long chatId, String path) {
+        List<String> segments = CategoryPaths.segments(path);
+        if (segments.isEmpty()) {
+            return CategoryLookup.NOT_FOUND;
+        }
+
+        CategoryTreeSnapshot tree = categoryTreeCache.snapshot(chatId);
+        int node = tree.findPath(segments);
+        if (node == CategoryTreeSnapshot.NONE && segments.size() == 1) {
+            int[] found = tree.findByName(segments.getFirst());
+            if (found.length > 1) {
+                return CategoryLookup.AMBIGUOUS;
+            }
+            node = found.length == 1 ? found[0] : CategoryTreeSnapshot.NONE;
+        }
+        return node == CategoryTreeSnapshot.NONE ? CategoryLookup.NOT_FOUND : new CategoryLookup(tree.id(node), false);
+    }
+
+    /**
+     * Ищет категории по названию и возвращает их полные пути.
+     *
+     * <p>Поиск выполняется по индексу {@link CategorySearchIndex}: точное совпадение,
+     * начало слова, подстрока и нечёткое совпадение.</p>
+     *
+     * @param chatId идентификатор чата.
+     * @param query  часть названия категории.
+     * @param limit  максимальное количество результатов.
+     * @return пути найденных категорий от корня (через "/") в порядке релевантности.
+     */
+    public List<String> findCategories(long chatId, String query, int limit) {
+        CategoryTreeSnapshot tree = categoryTreeCache.snapshot(chatId);
+        List<String> paths = new ArrayList<>();
+        for (int node : categoryTreeCache.searchIndex(chatId).search(tree, query, limit)) {
+            paths.add(String.join(CategoryPaths.SEPARATOR, tree.path(node)));
         }
+        return paths;
+    }
+
+    /**
+     * Возвращает одну страницу дерева категорий.
+     *
+     * <p>Страницы разбиваются по границам строк так, чтобы текст страницы не превышал
+     * {@code pageLimit} символов. Формируется только запрошенная страница: для остальных
+     * вычисляется лишь длина строк, поэтому листание большого дерева не строит его текст целиком.</p>
+     *
+     * @param chatId    идентификатор чата.
+     * @param rootId    идентификатор категории, поддерево которой выводится, или {@code null} для всего дерева.
+     * @param maxDepth  максимальная глубина относительно начала вывода ({@code 0} — только сама категория
+     *                  или только корневые категории); отрицательное значение снимает ограничение.
+     * @param page      номер страницы, начиная с 0; значение вне диапазона приводится к ближайшей странице.
+     * @param pageLimit максимальная длина страницы в символах.
+     * @return страница дерева или {@code null}, если категория {@code rootId} не найдена в дереве чата.
+     */
+    public CategoryTreePage getCategoryTreePage(long chatId, Long rootId, int maxDepth, int page, int pageLimit) {
+        CategoryTreeSnapshot tree = categoryTreeCache.snapshot(chatId);
+        int from = 0;
+        int to = tree.size();
+        int baseDepth = 0;
+        if (rootId != null) {
+            int root = tree.indexOf(rootId);
+            if (root == CategoryTreeSnapshot.NONE) {
+                return null;
+            }
+            from = tree.position(root);
+            to = tree.subtreeEnd(root);
+            baseDepth = tree.depth(root);
+        }
+        int depthLimit = maxDepth < 0 ? Integer.MAX_VALUE : maxDepth;
+
+        // Первый проход: границы страниц по длинам строк, без построения текста
+        int pageCount = from < to ? 1 : 0;
+        int pageStart = from;
+        int pageEnd = to;
+        int length = 0;
+        for (int position = from; position < to; ) {
+            int node = tree.atPosition(position);
+            int level = tree.depth(node) - baseDepth;
+            int lineLength = lineLength(tree, node, level);
+            if (length > 0 && length + lineLength > pageLimit) {
+                if (pageCount - 1 == page) {
+                    pageEnd = position;
+                }
+                pageCount++;
+                if (pageCount - 1 == page) {
+                    pageStart = position;
+                }
+                length = 0;
+            }
+            length += lineLength;
+            position = level >= depthLimit ? tree.subtreeEnd(node) : position + 1;
+        }
+
+        if (page >= pageCount && pageCount > 0) {
+            return getCategoryTreePage(chatId, rootId, maxDepth, pageCount - 1, pageLimit);
+        }
+        if (page < 0) {
+            return getCategoryTreePage(chatId, rootId, maxDepth, 0, pageLimit);
+        }
+
+        CategoryMetrics.treeSize(meterRegistry, "view").record(to - from);
+        StringBuilder builder = new StringBuilder();
+        try {
+            new CategoryTreeRenderer(CategoryTreeFormat.PLAIN, builder)
+                    .render(tree, pageStart, pageEnd, baseDepth, depthLimit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CategoryTreePage(builder.toString(), page, pageCount);
+    }
+
+    private static int lineLength(CategoryTreeSnapshot tree, int node, int level) {
+        return 2 * level + 2 + tree.nameLength(node) + 1;
     }
 }
@@ -0,0 +1,240 @@
+package kz.meiir.telegram_bot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.model.CategoryChange;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import kz.meiir.telegram_bot.repository.CategoryChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сохранение деревьев категорий из кеша в файл для быстрого запуска.
+ *
+ * <h2>Описание:</h2>
+ * <ul>
+ *     <li>Каждые {@code telegram.bot.tree-snapshot-interval} и при остановке приложения деревья
+ *     из {@link CategoryTreeCache} записываются в файл {@code telegram.bot.tree-snapshot-file}
+ *     вместе с позициями журнала {@code category_change}. Перед записью деревья догоняются
+ *     изменениями из журнала, поэтому позиции в файле не отстают больше чем на один период.</li>
+ *     <li>При запуске файл отображается в память через {@link FileChannel#map}, массивы деревьев
+ *     копируются из него массовыми операциями ({@link CategoryTreeSnapshot#read}), после чего
+ *     из базы данных читаются только изменения, сделанные после сохранения.</li>
+ * </ul>
+ * Если файл отсутствует или повреждён, деревья загружаются из базы данных при первом обращении.
+ *
+ * <h2>Формат файла:</h2>
+ * Сигнатура {@code CTS1} и количество деревьев, затем для каждого дерева: идентификатор чата,
+ * позиция журнала, длина дерева в байтах и дерево в формате {@link CategoryTreeSnapshot#write}.
+ * Файл сначала пишется во временный файл рядом и заменяет прежний атомарным переименованием.
+ *
+ * <p>Время сохранения и восстановления записывается в таймер {@code category.tree.snapshot}
+ * с тегом {@code operation} ({@code save} или {@code restore}).</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "telegram.bot", name = "tree-snapshot-file")
+public class CategoryTreeSnapshotStore {
+    private static final int MAGIC = 0x43545331; // "CTS1"
+    private static final int FILE_HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int TREE_HEADER_BYTES = 3 * Long.BYTES;
+
+    private final CategoryTreeCache categoryTreeCache;
+    private final CategoryChangeRepository categoryChangeRepository;
+    private final MeterRegistry meterRegistry;
+    private final Path file;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("category-tree-snapshot").daemon().factory());
+
+    /**
+     * Конструктор хранилища снимков.
+     *
+     * @param categoryTreeCache        кеш деревьев категорий.
+     * @param categoryChangeRepository журнал изменений категорий.
+     * @param botProperties            свойства бота (путь к файлу и период сохранения).
+     * @param meterRegistry            реестр метрик.
+     */
+    public CategoryTreeSnapshotStore(CategoryTreeCache categoryTreeCache,
+                                     CategoryChangeRepository categoryChangeRepository,
+                                     TelegramBotProperties botProperties,
+                                     MeterRegistry meterRegistry) {
+        this.categoryTreeCache = categoryTreeCache;
+        this.categoryChangeRepository = categoryChangeRepository;
+        this.meterRegistry = meterRegistry;
+        this.file = Path.of(botProperties.getTreeSnapshotFile());
+        this.interval = botProperties.getTreeSnapshotInterval();
+    }
+
+    /**
+     * Восстанавливает деревья из файла и запускает периодическое сохранение.
+     */
+    @PostConstruct
+    public void start() {
+        restore();
+        long period = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::saveQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает периодическое сохранение и сохраняет деревья в последний раз.
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        saveQuietly();
+    }
+
+    /**
+     * Догоняет деревья кеша по журналу изменений и записывает их в файл.
+     *
+     * @throws IOException если файл не удалось записать.
+     */
+    public synchronized void save() throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<CategoryTreeCache.LoadedTree> trees = categoryTreeCache.loadedTrees();
+        if (!trees.isEmpty()) {
+            long from = oldestPosition(trees);
+            long to = categoryChangeRepository.currentPosition();
+            categoryTreeCache.replay(categoryChangeRepository.findChanges(from), from, to);
+            trees = categoryTreeCache.loadedTrees();
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(trees.size()).flip());
+            for (CategoryTreeCache.LoadedTree tree : trees) {
+                writeFully(channel, ByteBuffer.allocate(TREE_HEADER_BYTES)
+                        .putLong(tree.chatId())
+                        .putLong(tree.position())
+                        .putLong(tree.snapshot().serializedSize())
+                        .flip());
+                tree.snapshot().write(channel);
+            }
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        sample.stop(timer("save"));
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось сохранить деревья категорий в {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Восстанавливает деревья из файла и догоняет их изменениями из журнала.
+     */
+    private void restore() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<CategoryTreeCache.LoadedTree> trees = read();
+            if (trees.isEmpty()) {
+                return;
+            }
+            long from = oldestPosition(trees);
+            long to = categoryChangeRepository.currentPosition();
+            List<CategoryChange> changes = categoryChangeRepository.findChanges(from);
+            long nodes = 0;
+            for (CategoryTreeCache.LoadedTree tree : trees) {
+                categoryTreeCache.restore(tree.chatId(), tree.snapshot(), tree.position());
+                nodes += tree.snapshot().size();
+            }
+            categoryTreeCache.replay(changes, from, to);
+            long nanos = sample.stop(timer("restore"));
+            log.info("Восстановлено деревьев категорий из {}: {} ({} категорий, изменений из журнала: {}) за {} мс",
+                    file, trees.size(), nodes, changes.size(), TimeUnit.NANOSECONDS.toMillis(nanos));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Деревья категорий не восстановлены из {} и будут загружены из базы данных: {}",
+                    file, e.getMessage());
+        }
+    }
+
+    private List<CategoryTreeCache.LoadedTree> read() throws IOException {
+        List<CategoryTreeCache.LoadedTree> trees = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, FILE_HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("неизвестный формат файла");
+            }
+            int count = header.getInt();
+            long offset = FILE_HEADER_BYTES;
+            for (int i = 0; i < count; i++) {
+                ByteBuffer treeHeader = readFully(channel, offset, TREE_HEADER_BYTES);
+                long chatId = treeHeader.getLong();
+                long position = treeHeader.getLong();
+                long length = treeHeader.getLong();
+                offset += TREE_HEADER_BYTES;
+                if (length < 0 || offset + length > channel.size()) {
+                    throw new EOFException("файл обрезан");
+                }
+                // Отображение остаётся доступным после закрытия канала
+                ByteBuffer tree = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                trees.add(new CategoryTreeCache.LoadedTree(chatId, CategoryTreeSnapshot.read(tree), position));
+                offset += length;
+            }
+        }
+        return trees;
+    }
+
+    private static long oldestPosition(List<CategoryTreeCache.LoadedTree> trees) {
+        long oldest = Long.MAX_VALUE;
+        for (CategoryTreeCache.LoadedTree tree : trees) {
+            oldest = Math.min(oldest, tree.position());
+        }
+        return oldest;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException("файл обрезан");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("category.tree.snapshot").tag("operation", operation).register(meterRegistry);
+    }
+}
@@ -0,0 +1,44 @@
+package kz.meiir.telegram_bot.service;
+
+/**
+ * Хранилище состояния диалога с чатом.
+ *
+ * <h2>Описание:</h2>
+ * Состояние — короткая строка, описывающая, чего бот ожидает от чата
+ * (например, файл после команды {@code /upload}). Реализация выбирается свойством
+ * {@code telegram.bot.session-store}:
+ * <ul>
+ *     <li><strong>memory</strong> (по умолчанию): {@link InMemoryChatSessionStore}, состояние
+ *     теряется при перезапуске и не видно другим экземплярам.</li>
+ *     <li><strong>jdbc</strong>: {@link JdbcChatSessionStore}, состояние хранится в таблице
+ *     {@code chat_session} и общее для всех экземпляров.</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public interface ChatSessionStore {
+
+    /**
+     * Возвращает состояние чата.
+     *
+     * @param chatId идентификатор чата.
+     * @return состояние или {@code null}, если чат ничего не ожидает.
+     */
+    String getState(Long chatId);
+
+    /**
+     * Сохраняет состояние чата.
+     *
+     * @param chatId идентификатор чата.
+     * @param state  новое состояние.
+     */
+    void setState(Long chatId, String state);
+
+    /**
+     * Сбрасывает состояние чата.
+     *
+     * @param chatId идентификатор чата.
+     */
+    void clearState(Long chatId);
+}
@@ -0,0 +1,38 @@
+package kz.meiir.telegram_bot.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Хранилище состояния чатов в памяти процесса.
+ *
+ * <p>Подходит для одного экземпляра бота. Используется по умолчанию
+ * ({@code telegram.bot.session-store=memory}).</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@Service
+@ConditionalOnProperty(prefix = "telegram.bot", name = "session-store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryChatSessionStore implements ChatSessionStore {
+
+    private final Map<Long, String> states = new ConcurrentHashMap<>();
+
+    @Override
+    public String getState(Long chatId) {
+        return states.get(chatId);
+    }
+
+    @Override
+    public void setState(Long chatId, String state) {
+        states.put(chatId, state);
+    }
+
+    @Override
+    public void clearState(Long chatId) {
+        states.remove(chatId);
+    }
+}
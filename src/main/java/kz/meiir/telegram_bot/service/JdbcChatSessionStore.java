@@ -0,0 +1,46 @@
+package kz.meiir.telegram_bot.service;
+
+import lombok.AllArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Хранилище состояния чатов в таблице {@code chat_session}.
+ *
+ * <p>Состояние переживает перезапуск и доступно любому экземпляру бота, поэтому чат
+ * может продолжить диалог на другом узле после изменения состава кластера.
+ * Включается свойством {@code telegram.bot.session-store=jdbc}.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+@AllArgsConstructor
+@Service
+@ConditionalOnProperty(prefix = "telegram.bot", name = "session-store", havingValue = "jdbc")
+public class JdbcChatSessionStore implements ChatSessionStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public String getState(Long chatId) {
+        List<String> states = jdbcTemplate.queryForList(
+                "SELECT state FROM chat_session WHERE chat_id = ?", String.class, chatId);
+        return states.isEmpty() ? null : states.getFirst();
+    }
+
+    @Override
+    public void setState(Long chatId, String state) {
+        jdbcTemplate.update("""
+                INSERT INTO chat_session (chat_id, state) VALUES (?, ?)
+                ON CONFLICT (chat_id) DO UPDATE SET state = EXCLUDED.state, updated_at = now()
+                """, chatId, state);
+    }
+
+    @Override
+    public void clearState(Long chatId) {
+        jdbcTemplate.update("DELETE FROM chat_session WHERE chat_id = ?", chatId);
+    }
+}
@@ -0,0 +1,67 @@
+package kz.meiir.telegram_bot.utils;
+
+import kz.meiir.telegram_bot.validation.CategoryNameValidator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Утилиты для работы с путями категорий.
+ *
+ * <h2>Описание:</h2>
+ * Путь категории — названия категорий от корня, разделённые символом {@value #SEPARATOR},
+ * например {@code "электроника/телефоны"}. В таком же виде путь хранится в столбце
+ * {@code category.path}, поэтому нормализованный путь можно сразу искать в базе данных.
+ *
+ * <h2>Пример использования:</h2>
+ * <pre>
+ * CategoryPaths.segments(" Электроника / Телефоны/"); // ["электроника", "телефоны"]
+ * CategoryPaths.normalize(" Электроника / Телефоны/"); // "электроника/телефоны"
+ * </pre>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public final class CategoryPaths {
+    /**
+     * Разделитель элементов пути.
+     */
+    public static final String SEPARATOR = "/";
+
+    private CategoryPaths() {
+        // Приватный конструктор, чтобы запретить создание экземпляра
+    }
+
+    /**
+     * Разбивает путь на названия категорий.
+     *
+     * <p>Названия нормализуются так же, как при сохранении ({@link CategoryNameValidator#normalize}),
+     * поэтому результат не зависит от локали по умолчанию. Название с недопустимыми символами
+     * только обрезается и приводится к нижнему регистру: такой категории нет в базе, и поиск
+     * по нему ничего не находит. Пустые элементы пропускаются.</p>
+     *
+     * @param path путь, введённый пользователем.
+     * @return названия категорий от корня; пустой список, если путь пуст.
+     */
+    public static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split(SEPARATOR)) {
+            if (!segment.isBlank()) {
+                String normalized = CategoryNameValidator.normalize(segment);
+                segments.add(normalized != null ? normalized : segment.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Приводит путь к виду, в котором он хранится в базе данных.
+     *
+     * @param path путь, введённый пользователем.
+     * @return нормализованный путь; пустая строка, если путь пуст.
+     */
+    public static String normalize(String path) {
+        return String.join(SEPARATOR, segments(path));
+    }
+}
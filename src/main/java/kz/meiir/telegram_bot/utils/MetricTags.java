@@ -0,0 +1,38 @@
+package kz.meiir.telegram_bot.utils;
+
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Общие теги метрик Micrometer.
+ *
+ * <h2>Описание:</h2>
+ * Все таймеры приложения помечают результат одинаково, чтобы запросы к Prometheus
+ * можно было строить по одной схеме:
+ * <ul>
+ *     <li><strong>outcome</strong>: {@code success} или {@code error};</li>
+ *     <li><strong>exception</strong>: простое имя класса исключения или {@code none}.</li>
+ * </ul>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public final class MetricTags {
+    private static final Tags SUCCESS = Tags.of("outcome", "success", "exception", "none");
+
+    private MetricTags() {
+        // Утилитный класс
+    }
+
+    /**
+     * Возвращает теги результата операции.
+     *
+     * @param error исключение, которым завершилась операция, или {@code null}.
+     * @return теги {@code outcome} и {@code exception}.
+     */
+    public static Tags outcome(Throwable error) {
+        if (error == null) {
+            return SUCCESS;
+        }
+        return Tags.of("outcome", "error", "exception", error.getClass().getSimpleName());
+    }
+}
@@ -0,0 +1,70 @@
+package kz.meiir.telegram_bot.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Таймеры одной метрики с тегом операции и тегами результата {@link MetricTags}.
+ *
+ * <h2>Описание:</h2>
+ * Таймер успешного выполнения создаётся один раз для каждого значения тега и затем берётся
+ * из словаря без обращения к реестру, поэтому запись времени на горячем пути (каждое обновление,
+ * команда или вызов Bot API) не собирает заново построитель, список тегов и не ищет таймер в реестре.
+ * Таймеры ошибок строятся при каждой ошибке: ошибки редки, а тег {@code exception} заранее неизвестен.
+ *
+ * <h2>Пример использования:</h2>
+ * <pre>
+ * OutcomeTimers timers = new OutcomeTimers(meterRegistry, "telegram.command", "command");
+ * sample.stop(timers.timer("/help", error));
+ * </pre>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public final class OutcomeTimers {
+    private final MeterRegistry meterRegistry;
+    private final String name;
+    private final String tagKey;
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry реестр метрик.
+     * @param name          название метрики.
+     * @param tagKey        тег, различающий операции (например, {@code command}).
+     */
+    public OutcomeTimers(MeterRegistry meterRegistry, String name, String tagKey) {
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+        this.tagKey = tagKey;
+    }
+
+    /**
+     * Возвращает таймер операции с указанным результатом.
+     *
+     * @param tagValue значение тега операции.
+     * @param error    исключение, которым завершилась операция, или {@code null}.
+     * @return таймер с гистограммой перцентилей.
+     */
+    public Timer timer(String tagValue, Throwable error) {
+        if (error != null) {
+            return register(tagValue, MetricTags.outcome(error));
+        }
+        Timer timer = successTimers.get(tagValue);
+        if (timer == null) {
+            timer = successTimers.computeIfAbsent(tagValue, value -> register(value, MetricTags.outcome(null)));
+        }
+        return timer;
+    }
+
+    private Timer register(String tagValue, Tags outcome) {
+        return Timer.builder(name)
+                .tag(tagKey, tagValue)
+                .tags(outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,74 @@
+package kz.meiir.telegram_bot.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Замер времени запросов репозитория на {@code JdbcTemplate}.
+ *
+ * <h2>Описание:</h2>
+ * Spring Data сам записывает таймер {@code spring.data.repository.invocations} для методов
+ * JPA-репозиториев. Репозитории, работающие через {@code JdbcTemplate}, записывают тот же таймер
+ * с теми же тегами ({@code repository}, {@code method}, {@code state}, {@code exception}),
+ * поэтому все запросы к базе данных видны на одной панели.
+ *
+ * <p>Таймер успешного выполнения создаётся один раз для каждого метода, как в {@link OutcomeTimers};
+ * таймеры ошибок строятся при каждой ошибке.</p>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public final class RepositoryMetrics {
+    private static final String TIMER = "spring.data.repository.invocations";
+
+    private final MeterRegistry meterRegistry;
+    private final String repository;
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry реестр метрик.
+     * @param repository    простое имя класса репозитория.
+     */
+    public RepositoryMetrics(MeterRegistry meterRegistry, String repository) {
+        this.meterRegistry = meterRegistry;
+        this.repository = repository;
+    }
+
+    /**
+     * Выполняет запрос и записывает время его выполнения.
+     *
+     * @param method имя метода репозитория.
+     * @param call   запрос.
+     * @return результат запроса.
+     */
+    public <T> T timed(String method, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            sample.stop(register(method, "ERROR", e.getClass().getSimpleName()));
+            throw e;
+        }
+        sample.stop(successTimer(method));
+        return result;
+    }
+
+    private Timer successTimer(String method) {
+        Timer timer = successTimers.get(method);
+        if (timer == null) {
+            timer = successTimers.computeIfAbsent(method, name -> register(name, "SUCCESS", "None"));
+        }
+        return timer;
+    }
+
+    private Timer register(String method, String state, String exception) {
+        return Timer.builder(TIMER)
+                .tags("repository", repository, "method", method, "state", state, "exception", exception)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,96 @@
+package kz.meiir.telegram_bot.utils;
+
+/**
+ * Ограничитель частоты запросов по алгоритму GCRA («token bucket» с резервированием).
+ *
+ * <h2>Описание:</h2>
+ * Вместо ожидания свободного токена вызывающий код резервирует ближайший допустимый
+ * момент отправки и получает задержку до него. Это позволяет планировать отправку
+ * на планировщике, не блокируя потоки.
+ *
+ * <h2>Пример использования:</h2>
+ * <pre>
+ * TokenBucket bucket = new TokenBucket(30, 30); // 30 запросов в секунду, всплеск до 30
+ * long delayNanos = bucket.reserve();
+ * scheduler.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+ * </pre>
+ *
+ * @author Meiir Akhmetov
+ * @version 1.0
+ */
+public final class TokenBucket {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private long theoreticalArrival;
+
+    /**
+     * Создаёт ограничитель.
+     *
+     * @param permitsPerSecond допустимое среднее количество запросов в секунду.
+     * @param burst            количество запросов, которые можно выполнить подряд без задержки.
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this.intervalNanos = (long) (1_000_000_000L / permitsPerSecond);
+        this.burstNanos = (long) Math.max(0, burst - 1) * intervalNanos;
+        this.theoreticalArrival = System.nanoTime();
+    }
+
+    /**
+     * Резервирует разрешение на один запрос.
+     *
+     * @return задержка в наносекундах, через которую запрос можно выполнить (0 — сразу).
+     */
+    public long reserve() {
+        long now = System.nanoTime();
+        return reserveAt(now) - now;
+    }
+
+    /**
+     * Резервирует разрешение на один запрос сразу в этом и в общем ограничителе.
+     *
+     * <p>Сначала определяется момент, допустимый для этого ограничителя, затем в общем резервируется
+     * разрешение не раньше этого момента, и запрос учитывается здесь по итоговому моменту отправки.
+     * Так общий ограничитель не расходует разрешения на моменты, когда запрос ещё не может быть
+     * отправлен. Вложенная блокировка берётся всегда в порядке «этот, затем общий», поэтому общий
+     * ограничитель не должен резервировать разрешения в других ограничителях.</p>
+     *
+     * @param shared общий ограничитель (например, глобальный лимит бота).
+     * @return задержка в наносекундах, через которую запрос можно выполнить (0 — сразу).
+     */
+    public synchronized long reserve(TokenBucket shared) {
+        long now = System.nanoTime();
+        long sendAt = shared.reserveAt(Math.max(now, theoreticalArrival - burstNanos));
+        theoreticalArrival = Math.max(theoreticalArrival, sendAt) + intervalNanos;
+        return sendAt - now;
+    }
+
+    /**
+     * Резервирует разрешение не раньше указанного момента.
+     *
+     * @return момент отправки по {@link System#nanoTime()}.
+     */
+    private synchronized long reserveAt(long notBefore) {
+        long sendAt = Math.max(notBefore, theoreticalArrival - burstNanos);
+        theoreticalArrival = Math.max(theoreticalArrival, sendAt) + intervalNanos;
+        return sendAt;
+    }
+
+    /**
+     * Откладывает все следующие запросы: первый из них получит разрешение не раньше, чем через
+     * указанное время, а всплеск начнёт накапливаться заново только после этого.
+     *
+     * @param delayNanos пауза в наносекундах.
+     */
+    public synchronized void pause(long delayNanos) {
+        theoreticalArrival = Math.max(theoreticalArrival, System.nanoTime() + delayNanos + burstNanos);
+    }
+
+    /**
+     * Проверяет, что ограничитель полностью восстановился и его можно удалить без потери состояния.
+     *
+     * @return {@code true}, если с последнего резервирования прошло достаточно времени.
+     */
+    public synchronized boolean isIdle() {
+        return theoreticalArrival - System.nanoTime() < 0;
+    }
+}
@@ -1,11 +1,15 @@
 package kz.meiir.telegram_bot.validation;
+
+import java.text.Normalizer;
+
 /**
  * Утилитный класс для проверки корректности названий категорий.
  *
- * <p>Этот класс предоставляет статический метод для валидации
- * имен категорий. Названия проверяются на соответствие заданному
- * регулярному выражению, которое допускает использование букв,
- * цифр, пробелов и символов кириллицы и латиницы.</p>
+ * <p>Этот класс предоставляет статические методы для валидации и нормализации
+ * имен категорий. Допускаются буквы латиницы и кириллицы, цифры и пробельные
+ * символы (те же правила, что у регулярного выражения {@code "[a-zA-Zа-яА-ЯёЁ0-9\\s]+"}).
+ * Проверка выполняется посимвольным проходом по строке без регулярных выражений
+ * и без выделения памяти для корректных имён в нижнем регистре.</p>
  *
  * <p>Класс содержит приватный конструктор, чтобы исключить
  * возможность создания его экземпляров, так как он предназначен
@@ -15,6 +19,11 @@ package kz.meiir.telegram_bot.validation;
  * @version 1.0
  */
 public class CategoryNameValidator {
+    /**
+     * Максимальная длина названия категории (совпадает с размером столбца {@code category.name}).
+     */
+    public static final int MAX_LENGTH = 255;
+
     /**
      * Приватный конструктор для запрета создания экземпляров.
      */
@@ -27,8 +36,9 @@ public class CategoryNameValidator {
      *
      * <p>Имя считается некорректным, если оно:
      * <ul>
-     *     <li>является {@code null};</li>
-     *     <li>не соответствует регулярному выражению {@code "[a-zA-Zа-яА-ЯёЁ0-9\\s]+"}.</li>
+     *     <li>является {@code null} или пустое;</li>
+     *     <li>длиннее {@value #MAX_LENGTH} символов;</li>
+     *     <li>содержит символы, отличные от букв латиницы и кириллицы, цифр и пробельных символов.</li>
      * </ul>
      * </p>
      *
@@ -36,6 +46,95 @@ public class CategoryNameValidator {
      * @return {@code true}, если имя некорректно, иначе {@code false}.
      */
     public static boolean isValidCategoryName(String categoryName) {
-        return categoryName == null || !categoryName.matches("[a-zA-Zа-яА-ЯёЁ0-9\\s]+");
+        if (categoryName == null || categoryName.isEmpty() || categoryName.length() > MAX_LENGTH) {
+            return true;
+        }
+        for (int i = 0; i < categoryName.length(); i++) {
+            if (!isAllowed(categoryName.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет и нормализует имя категории за один проход.
+     *
+     * <p>Пробельные символы по краям отбрасываются, буквы приводятся к нижнему регистру
+     * (для допустимых символов результат одинаков для любой локали, включая русскую).
+     * Если имя содержит комбинируемые диакритические знаки (например, «е» + U+0308),
+     * оно предварительно приводится к форме NFC, чтобы «ё» и «й» в разложенном виде
+     * совпадали с обычными.</p>
+     *
+     * @param categoryName название категории.
+     * @return нормализованное имя или {@code null}, если имя некорректно.
+     */
+    public static String normalize(String categoryName) {
+        if (categoryName == null) {
+            return null;
+        }
+
+        int start = 0;
+        int end = categoryName.length();
+        while (start < end && isSpace(categoryName.charAt(start))) {
+            start++;
+        }
+        while (end > start && isSpace(categoryName.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+
+        char[] lower = null; // Создаётся только при первом символе в верхнем регистре
+        for (int i = start; i < end; i++) {
+            char c = categoryName.charAt(i);
+            if (!isAllowed(c)) {
+                if (isCombiningMark(c)) {
+                    String composed = Normalizer.normalize(categoryName, Normalizer.Form.NFC);
+                    return composed.equals(categoryName) ? null : normalize(composed);
+                }
+                return null;
+            }
+            char l = toLowerCase(c);
+            if (l != c && lower == null) {
+                lower = new char[end - start];
+                categoryName.getChars(start, i, lower, 0);
+            }
+            if (lower != null) {
+                lower[i - start] = l;
+            }
+        }
+
+        if (end - start > MAX_LENGTH) {
+            return null;
+        }
+        if (lower != null) {
+            return new String(lower);
+        }
+        return start == 0 && end == categoryName.length() ? categoryName : categoryName.substring(start, end);
+    }
+
+    private static boolean isAllowed(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || (c >= 'А' && c <= 'я') || c == 'ё' || c == 'Ё' || isSpace(c);
+    }
+
+    /**
+     * Пробельные символы в смысле {@code \s} регулярных выражений Java.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean isCombiningMark(char c) {
+        return c >= '\u0300' && c <= '\u036F';
+    }
+
+    private static char toLowerCase(char c) {
+        if ((c >= 'A' && c <= 'Z') || (c >= 'А' && c <= 'Я')) {
+            return (char) (c + 32);
+        }
+        return c == 'Ё' ? 'ё' : c;
     }
 }
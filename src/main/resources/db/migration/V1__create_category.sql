@@ -0,0 +1,7 @@
+-- Исходная схема (ранее создавалась Hibernate через ddl-auto=update)
+CREATE TABLE IF NOT EXISTS category
+(
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name      VARCHAR(255),
+    parent_id BIGINT REFERENCES category (id)
+);
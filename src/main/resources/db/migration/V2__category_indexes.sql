@@ -0,0 +1,43 @@
+-- Объединение дубликатов, накопленных до появления ограничений уникальности:
+-- дочерние категории переносятся в категорию с наименьшим id, затем пустые дубликаты удаляются.
+-- Перенос может породить дубликаты уровнем ниже, поэтому шаги повторяются до их исчезновения.
+DO
+$$
+    DECLARE
+        remaining INTEGER;
+    BEGIN
+        LOOP
+            WITH dup AS (SELECT id, MIN(id) OVER (PARTITION BY parent_id, name) AS keep_id
+                         FROM category)
+            UPDATE category c
+            SET parent_id = dup.keep_id
+            FROM dup
+            WHERE c.parent_id = dup.id
+              AND dup.id <> dup.keep_id;
+
+            WITH dup AS (SELECT id, MIN(id) OVER (PARTITION BY parent_id, name) AS keep_id
+                         FROM category)
+            DELETE
+            FROM category c
+            USING dup
+            WHERE c.id = dup.id
+              AND dup.id <> dup.keep_id
+              AND NOT EXISTS (SELECT 1 FROM category child WHERE child.parent_id = c.id);
+
+            SELECT COUNT(*)
+            INTO remaining
+            FROM (SELECT 1 FROM category GROUP BY parent_id, name HAVING COUNT(*) > 1) duplicates;
+            EXIT WHEN remaining = 0;
+        END LOOP;
+    END
+$$;
+
+-- Уникальность названия внутри родителя. Индекс начинается с parent_id,
+-- поэтому он же обслуживает поиск дочерних категорий и рекурсивные запросы дерева.
+CREATE UNIQUE INDEX IF NOT EXISTS category_parent_id_name_uq ON category (parent_id, name);
+
+-- Уникальность названия среди корневых категорий (NULL в parent_id не участвует в индексе выше)
+CREATE UNIQUE INDEX IF NOT EXISTS category_root_name_uq ON category (name) WHERE parent_id IS NULL;
+
+-- Поиск категории по названию на любом уровне
+CREATE INDEX IF NOT EXISTS category_name_idx ON category (name);
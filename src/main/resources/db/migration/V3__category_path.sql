@@ -0,0 +1,70 @@
+-- Материализованный путь категории: названия от корня через "/", например "электроника/телефоны".
+-- Названия проходят проверку CategoryNameValidator и не содержат "/", поэтому путь однозначен.
+ALTER TABLE category ADD COLUMN IF NOT EXISTS path TEXT;
+
+WITH RECURSIVE tree AS (SELECT id, name::TEXT AS path
+                        FROM category
+                        WHERE parent_id IS NULL
+                        UNION ALL
+                        SELECT c.id, t.path || '/' || c.name
+                        FROM category c
+                                 JOIN tree t ON c.parent_id = t.id)
+UPDATE category c
+SET path = tree.path
+FROM tree
+WHERE c.id = tree.id;
+
+ALTER TABLE category ALTER COLUMN path SET NOT NULL;
+
+-- text_pattern_ops: индекс обслуживает и точное совпадение, и диапазонный поиск по префиксу
+-- (поддерево "a/b" — это пути в диапазоне ["a/b/", "a/b0")) независимо от правил сортировки базы.
+CREATE UNIQUE INDEX IF NOT EXISTS category_path_uq ON category (path text_pattern_ops);
+
+-- Путь вычисляется базой данных из пути родителя, поэтому любая вставка
+-- (JPA, INSERT ... ON CONFLICT, пакетный импорт) получает корректное значение.
+CREATE OR REPLACE FUNCTION category_set_path() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF NEW.parent_id IS NULL THEN
+        NEW.path := NEW.name;
+    ELSE
+        SELECT p.path || '/' || NEW.name INTO NEW.path FROM category p WHERE p.id = NEW.parent_id;
+    END IF;
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+-- При переименовании или переносе категории пути всех потомков обновляются одним запросом по префиксу.
+CREATE OR REPLACE FUNCTION category_move_subtree() RETURNS TRIGGER AS
+$$
+BEGIN
+    UPDATE category
+    SET path = NEW.path || substr(path, length(OLD.path) + 1)
+    WHERE path ~>=~ (OLD.path || '/')
+      AND path ~<~ (OLD.path || '0');
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS category_path_insert ON category;
+CREATE TRIGGER category_path_insert
+    BEFORE INSERT
+    ON category
+    FOR EACH ROW
+EXECUTE FUNCTION category_set_path();
+
+DROP TRIGGER IF EXISTS category_path_update ON category;
+CREATE TRIGGER category_path_update
+    BEFORE UPDATE OF name, parent_id
+    ON category
+    FOR EACH ROW
+    WHEN (OLD.name IS DISTINCT FROM NEW.name OR OLD.parent_id IS DISTINCT FROM NEW.parent_id)
+EXECUTE FUNCTION category_set_path();
+
+DROP TRIGGER IF EXISTS category_path_move ON category;
+CREATE TRIGGER category_path_move
+    AFTER UPDATE OF name, parent_id
+    ON category
+    FOR EACH ROW
+    WHEN (OLD.name IS DISTINCT FROM NEW.name OR OLD.parent_id IS DISTINCT FROM NEW.parent_id)
+EXECUTE FUNCTION category_move_subtree();
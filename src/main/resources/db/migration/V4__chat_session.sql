@@ -0,0 +1,7 @@
+-- Состояние диалога с чатом (например, ожидание файла после /upload),
+-- общее для всех экземпляров бота
+CREATE TABLE IF NOT EXISTS chat_session (
+    chat_id    BIGINT PRIMARY KEY,
+    state      VARCHAR(64) NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
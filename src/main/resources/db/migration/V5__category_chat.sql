@@ -0,0 +1,36 @@
+-- Каждый чат ведёт собственное дерево категорий. Категории, созданные до разделения,
+-- относятся к чату 0; их можно передать чату запросом
+-- UPDATE category SET chat_id = <id чата> WHERE chat_id = 0.
+ALTER TABLE category ADD COLUMN IF NOT EXISTS chat_id BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE category ALTER COLUMN chat_id DROP DEFAULT;
+
+-- Все индексы начинаются с chat_id: запросы одного чата читают только его диапазон индекса,
+-- и рост дерева одного чата не замедляет поиск в деревьях остальных.
+DROP INDEX IF EXISTS category_parent_id_name_uq;
+DROP INDEX IF EXISTS category_root_name_uq;
+DROP INDEX IF EXISTS category_name_idx;
+DROP INDEX IF EXISTS category_path_uq;
+
+CREATE UNIQUE INDEX IF NOT EXISTS category_chat_parent_id_name_uq ON category (chat_id, parent_id, name);
+CREATE UNIQUE INDEX IF NOT EXISTS category_chat_root_name_uq ON category (chat_id, name) WHERE parent_id IS NULL;
+CREATE INDEX IF NOT EXISTS category_chat_name_idx ON category (chat_id, name);
+CREATE UNIQUE INDEX IF NOT EXISTS category_chat_path_uq ON category (chat_id, path text_pattern_ops);
+
+-- Родитель обязан принадлежать тому же чату
+CREATE UNIQUE INDEX IF NOT EXISTS category_chat_id_uq ON category (chat_id, id);
+ALTER TABLE category DROP CONSTRAINT IF EXISTS category_parent_id_fkey;
+ALTER TABLE category
+    ADD CONSTRAINT category_chat_parent_fkey FOREIGN KEY (chat_id, parent_id) REFERENCES category (chat_id, id);
+
+-- Пути уникальны только внутри чата, поэтому перенос поддерева ограничен чатом категории
+CREATE OR REPLACE FUNCTION category_move_subtree() RETURNS TRIGGER AS
+$$
+BEGIN
+    UPDATE category
+    SET path = NEW.path || substr(path, length(OLD.path) + 1)
+    WHERE chat_id = NEW.chat_id
+      AND path ~>=~ (OLD.path || '/')
+      AND path ~<~ (OLD.path || '0');
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,91 @@
+-- Журнал изменений категорий. Строки пишутся триггерами уровня оператора, поэтому пакетная
+-- вставка или удаление поддерева добавляют строки журнала одним INSERT ... SELECT.
+--   version — порядковый номер изменения;
+--   xid     — транзакция, выполнившая изменение. Изменения, не видимые снимку с xmin = X,
+--             сделаны транзакциями с xid >= X, поэтому «всё, что пропущено с момента X»
+--             читается условием xid >= X независимо от порядка фиксации транзакций.
+--   operation: I — добавление, D — удаление, U — переименование или перенос.
+CREATE TABLE IF NOT EXISTS category_change (
+    version     BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    xid         BIGINT NOT NULL DEFAULT pg_current_xact_id()::TEXT::BIGINT,
+    chat_id     BIGINT NOT NULL,
+    category_id BIGINT NOT NULL,
+    parent_id   BIGINT,
+    name        VARCHAR(255),
+    operation   CHAR(1) NOT NULL,
+    changed_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS category_change_xid_idx ON category_change (xid);
+
+CREATE OR REPLACE FUNCTION category_log_insert() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, operation)
+    SELECT chat_id, id, parent_id, name, 'I' FROM new_rows ORDER BY id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION category_log_delete() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, operation)
+    SELECT chat_id, id, parent_id, name, 'D' FROM old_rows ORDER BY id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+-- Изменение только пути (его выполняет category_move_subtree для потомков) не записывается.
+-- Передача категорий другому чату записывается как удаление из старого чата и добавление в новый.
+CREATE OR REPLACE FUNCTION category_log_update() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, operation)
+    SELECT o.chat_id, o.id, o.parent_id, o.name, 'D'
+    FROM old_rows o
+             JOIN new_rows n ON n.id = o.id
+    WHERE o.chat_id <> n.chat_id
+    ORDER BY o.id;
+
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, operation)
+    SELECT n.chat_id, n.id, n.parent_id, n.name, 'I'
+    FROM new_rows n
+             JOIN old_rows o ON o.id = n.id
+    WHERE o.chat_id <> n.chat_id
+    ORDER BY length(n.path) - length(replace(n.path, '/', '')), n.id;
+
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, operation)
+    SELECT n.chat_id, n.id, n.parent_id, n.name, 'U'
+    FROM new_rows n
+             JOIN old_rows o ON o.id = n.id
+    WHERE o.chat_id = n.chat_id
+      AND (o.name IS DISTINCT FROM n.name OR o.parent_id IS DISTINCT FROM n.parent_id)
+    ORDER BY n.id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS category_log_insert ON category;
+CREATE TRIGGER category_log_insert
+    AFTER INSERT
+    ON category
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION category_log_insert();
+
+DROP TRIGGER IF EXISTS category_log_delete ON category;
+CREATE TRIGGER category_log_delete
+    AFTER DELETE
+    ON category
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION category_log_delete();
+
+DROP TRIGGER IF EXISTS category_log_update ON category;
+CREATE TRIGGER category_log_update
+    AFTER UPDATE
+    ON category
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION category_log_update();
@@ -0,0 +1,57 @@
+-- Пути категорий в журнале изменений: по ним выгрузка изменений (/download since) описывает
+-- изменения так же, как полная выгрузка, без чтения удалённых или перенесённых категорий.
+--   path          — путь категории после изменения (для удаления — путь удалённой категории);
+--   previous_path — путь до переименования или переноса (только для operation = 'U';
+--                   пути потомков меняются вместе с ним и отдельно не записываются).
+-- Строки, записанные до этой миграции, путей не содержат и в выгрузку изменений не попадают.
+ALTER TABLE category_change ADD COLUMN IF NOT EXISTS path TEXT;
+ALTER TABLE category_change ADD COLUMN IF NOT EXISTS previous_path TEXT;
+
+-- Выгрузка изменений читает журнал одного чата
+CREATE INDEX IF NOT EXISTS category_change_chat_xid_idx ON category_change (chat_id, xid);
+
+CREATE OR REPLACE FUNCTION category_log_insert() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, path, operation)
+    SELECT chat_id, id, parent_id, name, path, 'I' FROM new_rows ORDER BY id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION category_log_delete() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, path, operation)
+    SELECT chat_id, id, parent_id, name, path, 'D' FROM old_rows ORDER BY id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION category_log_update() RETURNS TRIGGER AS
+$$
+BEGIN
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, path, operation)
+    SELECT o.chat_id, o.id, o.parent_id, o.name, o.path, 'D'
+    FROM old_rows o
+             JOIN new_rows n ON n.id = o.id
+    WHERE o.chat_id <> n.chat_id
+    ORDER BY o.id;
+
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, path, operation)
+    SELECT n.chat_id, n.id, n.parent_id, n.name, n.path, 'I'
+    FROM new_rows n
+             JOIN old_rows o ON o.id = n.id
+    WHERE o.chat_id <> n.chat_id
+    ORDER BY length(n.path) - length(replace(n.path, '/', '')), n.id;
+
+    INSERT INTO category_change (chat_id, category_id, parent_id, name, path, previous_path, operation)
+    SELECT n.chat_id, n.id, n.parent_id, n.name, n.path, o.path, 'U'
+    FROM new_rows n
+             JOIN old_rows o ON o.id = n.id
+    WHERE o.chat_id = n.chat_id
+      AND (o.name IS DISTINCT FROM n.name OR o.parent_id IS DISTINCT FROM n.parent_id)
+    ORDER BY n.id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,138 @@
+package kz.meiir.telegram_bot.bot;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kz.meiir.telegram_bot.bot.commands.UploadCommand;
+import kz.meiir.telegram_bot.bot.commands.ViewTreeCommand;
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Тесты приёма обновлений через webhook: проверка секрета, дедупликация повторных доставок,
+ * отказ при заполненной очереди и пересылка узлу-владельцу чата.
+ */
+@WebMvcTest(controllers = TelegramWebhookController.class, properties = {
+        "telegram.bot.mode=webhook",
+        "telegram.bot.webhook-path=/telegram/webhook",
+        "telegram.bot.webhook-secret=secret"
+})
+@Import({TelegramBotProperties.class, UpdateHandler.class, SimpleMeterRegistry.class})
+class TelegramWebhookControllerTest {
+    private static final long CHAT_ID = 42;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UpdateDispatcher updateDispatcher;
+    @MockitoBean
+    private ChatPartitioner chatPartitioner;
+    @MockitoBean
+    private TelegramMessageSender messageSender;
+    @MockitoBean
+    private CommandRegistry commandRegistry;
+    @MockitoBean
+    private UploadCommand uploadCommand;
+    @MockitoBean
+    private ViewTreeCommand viewTreeCommand;
+
+    @Test
+    void rejectsWrongSecret() throws Exception {
+        postUpdate("wrong", 1).andExpect(status().isUnauthorized());
+        postUpdate(null, 1).andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(updateDispatcher);
+    }
+
+    @Test
+    void dispatchesDuplicateUpdateOnce() throws Exception {
+        when(updateDispatcher.tryDispatch(eq(CHAT_ID), any())).thenReturn(true);
+
+        postUpdate("secret", 2).andExpect(status().isOk());
+        postUpdate("secret", 2).andExpect(status().isOk());
+
+        verify(updateDispatcher, times(1)).tryDispatch(eq(CHAT_ID), any());
+    }
+
+    @Test
+    void rejectsUpdateWhenQueueIsFullAndAcceptsRedelivery() throws Exception {
+        when(updateDispatcher.tryDispatch(eq(CHAT_ID), any())).thenReturn(false, true);
+
+        postUpdate("secret", 3).andExpect(status().isServiceUnavailable());
+        // update_id забыт, поэтому повторная доставка снова ставится в очередь
+        postUpdate("secret", 3).andExpect(status().isOk());
+
+        verify(updateDispatcher, times(2)).tryDispatch(eq(CHAT_ID), any());
+    }
+
+    @Test
+    void handlesUpdateLocallyWhenOwnerRefusesConnection() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort(); // После закрытия порт никто не слушает
+        }
+        when(chatPartitioner.ownerOf(CHAT_ID)).thenReturn("http://localhost:" + port);
+        when(updateDispatcher.tryDispatch(eq(CHAT_ID), any())).thenReturn(true);
+
+        postUpdate("secret", 4).andExpect(status().isOk());
+
+        verify(updateDispatcher, times(1)).tryDispatch(eq(CHAT_ID), any());
+    }
+
+    @Test
+    void asksForRedeliveryWhenOwnerDropsConnection() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            // Владелец принимает соединение и закрывает его, не ответив
+            Thread.ofVirtual().start(() -> {
+                try (Socket connection = socket.accept()) {
+                    connection.getInputStream().read();
+                } catch (IOException ignored) {
+                    // Сокет закрыт после теста
+                }
+            });
+            when(chatPartitioner.ownerOf(CHAT_ID)).thenReturn("http://localhost:" + socket.getLocalPort());
+
+            postUpdate("secret", 5).andExpect(status().isServiceUnavailable());
+        }
+
+        verifyNoInteractions(updateDispatcher);
+    }
+
+    private ResultActions postUpdate(String secret, int updateId) throws Exception {
+        var request = post("/telegram/webhook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                        {"update_id": %d, "message": {"message_id": 1, "date": 0,
+                         "chat": {"id": %d, "type": "private"}, "text": "/help"}}
+                        """.formatted(updateId, CHAT_ID));
+        if (secret != null) {
+            request.header("X-Telegram-Bot-Api-Secret-Token", secret);
+        }
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
@@ -0,0 +1,55 @@
+package kz.meiir.telegram_bot.bot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты окна последних {@code update_id}.
+ */
+class UpdateDeduplicatorTest {
+
+    @Test
+    void detectsRepeatedUpdate() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(10);
+
+        assertTrue(deduplicator.firstSeen(1));
+        assertFalse(deduplicator.firstSeen(1));
+    }
+
+    @Test
+    void evictsOldestUpdateWhenFull() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(2);
+        deduplicator.firstSeen(1);
+        deduplicator.firstSeen(2);
+
+        assertTrue(deduplicator.firstSeen(3));  // Вытесняет 1
+        assertTrue(deduplicator.firstSeen(1));  // Вытесняет 2
+        assertFalse(deduplicator.firstSeen(3));
+        assertTrue(deduplicator.firstSeen(2));
+    }
+
+    @Test
+    void repeatedUpdateIsKeptAsRecent() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(2);
+        deduplicator.firstSeen(1);
+        deduplicator.firstSeen(2);
+        deduplicator.firstSeen(1);             // Повторная доставка обновляет порядок
+
+        assertTrue(deduplicator.firstSeen(3));  // Вытесняет 2, а не 1
+        assertFalse(deduplicator.firstSeen(1));
+        assertTrue(deduplicator.firstSeen(2));
+    }
+
+    @Test
+    void forgottenUpdateIsProcessedAgain() {
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(10);
+        deduplicator.firstSeen(1);
+        deduplicator.forget(1);
+
+        assertTrue(deduplicator.firstSeen(1));
+        assertTrue(deduplicator.firstSeen(null));
+        assertTrue(deduplicator.firstSeen(null));
+    }
+}
@@ -0,0 +1,154 @@
+package kz.meiir.telegram_bot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Тесты разбора CSV и JSON Lines в {@link CategoryTextReader}.
+ */
+class CategoryTextReaderTest {
+    private static final int BYTE_BUFFER_SIZE = 64 * 1024;
+
+    @Test
+    void readsQuotedCsvValues() throws IOException {
+        List<String[]> rows = readCsv("""
+                plain,"with, comma","a ""quoted"" word"
+                "two
+                lines",,"ends with ""\"
+                """, Integer.MAX_VALUE);
+
+        assertEquals(2, rows.size());
+        assertArrayEquals(new String[]{"plain", "with, comma", "a \"quoted\" word", null}, rows.get(0));
+        assertArrayEquals(new String[]{"two\nlines", null, "ends with \"", null}, rows.get(1));
+    }
+
+    @Test
+    void readsCrLfLinesAndSkipsBom() throws IOException {
+        List<String[]> rows = readCsv("\uFEFFname,parent\r\na,\"b\r\nc\"\r\nlast,row", Integer.MAX_VALUE);
+
+        assertEquals(3, rows.size());
+        assertArrayEquals(new String[]{"name", "parent", null, null}, rows.get(0));
+        assertArrayEquals(new String[]{"a", "b\r\nc", null, null}, rows.get(1)); // В кавычках \r сохраняется
+        assertArrayEquals(new String[]{"last", "row", null, null}, rows.get(2));
+    }
+
+    @Test
+    void keepsOnlyFirstColumns() throws IOException {
+        List<String[]> rows = readCsv("1,2,3,4,5,6\n", Integer.MAX_VALUE);
+
+        assertArrayEquals(new String[]{"1", "2", "3", "4"}, rows.getFirst());
+    }
+
+    @Test
+    void decodesCharactersSplitAcrossReads() throws IOException {
+        // «ж» начинается в последнем байте буфера; при чтении малыми порциями разрезаются
+        // и остальные многобайтовые символы, включая четырёхбайтовый эмодзи
+        String padding = "x".repeat(BYTE_BUFFER_SIZE - 1);
+        String emojiPadding = "y".repeat(BYTE_BUFFER_SIZE - 3);
+        String text = padding + "ж,категория\n" + emojiPadding + "\uD83D\uDE00,\"значение\"\n";
+
+        for (int chunk : new int[]{Integer.MAX_VALUE, 1, 7, BYTE_BUFFER_SIZE - 1}) {
+            List<String[]> rows = readCsv(text, chunk);
+            assertEquals(2, rows.size(), "chunk " + chunk);
+            assertEquals(padding + "ж", rows.get(0)[0], "chunk " + chunk);
+            assertEquals("категория", rows.get(0)[1], "chunk " + chunk);
+            assertEquals(emojiPadding + "\uD83D\uDE00", rows.get(1)[0], "chunk " + chunk);
+            assertEquals("значение", rows.get(1)[1], "chunk " + chunk);
+        }
+    }
+
+    @Test
+    void replacesMalformedBytes() throws IOException {
+        byte[] data = {'a', (byte) 0xFF, 'b', ',', 'c', '\n'};
+        List<String[]> rows = new ArrayList<>();
+        new CategoryTextReader(TextChannels.readable(data)).readCsv((index, values) -> rows.add(values.clone()));
+
+        assertArrayEquals(new String[]{"a\uFFFDb", "c", null, null}, rows.getFirst());
+    }
+
+    @Test
+    void readsJsonLines() throws IOException {
+        RecordingImportSession session = readJsonLines("""
+                \uFEFF{"name": "телефоны", "parent": "электроника"}
+
+                {"name":"root","parent":null,"id":17,"active":true,"weight":-1.5e3}\r
+                {"operation":"Перенос","name":"b","parent":"x","previousPath":"a/b"}
+                """);
+
+        assertEquals(List.of(
+                Arrays.asList("accept", 1, "телефоны", "электроника"),
+                Arrays.asList("accept", 3, "root", null),
+                Arrays.asList("change", 4, "Перенос", "b", "x", "a/b")), session.calls);
+    }
+
+    @Test
+    void decodesJsonEscapes() throws IOException {
+        RecordingImportSession session = readJsonLines(
+                "{\"name\":\"\\u0436\\u0416 \\\"q\\\" \\\\ \\/ \\t\\n\",\"parent\":\"\\ud83d\\ude00\"}\n");
+
+        assertEquals(List.of(Arrays.asList("accept", 1, "жЖ \"q\" \\ / \t\n", "\uD83D\uDE00")), session.calls);
+    }
+
+    @Test
+    void rejectsMalformedLinesAndContinues() throws IOException {
+        RecordingImportSession session = readJsonLines("""
+                {"name":"a"
+                {"name":{"nested":1}}
+                {"name":"\\u00zz"}
+                {"name":"b"} trailing
+                {"name":"c",}
+                {"name":nope}
+                ["array"]
+                {"name":"ok"}
+                """);
+
+        assertEquals(8, session.calls.size());
+        for (int i = 0; i < 7; i++) {
+            List<Object> call = session.calls.get(i);
+            assertEquals("malformed", call.get(0));
+            assertEquals(i + 1, call.get(1));
+            assertTrue(((String) call.get(2)).startsWith("некорректный JSON: "), call.toString());
+        }
+        assertEquals(Arrays.asList("accept", 8, "ok", null), session.calls.get(7));
+    }
+
+    @Test
+    void readsJsonLineSplitAcrossReads() throws IOException {
+        String name = "я".repeat(BYTE_BUFFER_SIZE / 2 + 11);
+        String text = "{\"name\":\"" + name + "\",\"parent\":\"\\u044f\"}\n{\"name\":\"next\"}";
+
+        for (int chunk : new int[]{Integer.MAX_VALUE, 1, 4093}) {
+            RecordingImportSession session = new RecordingImportSession();
+            new CategoryTextReader(TextChannels.readable(text.getBytes(StandardCharsets.UTF_8), chunk))
+                    .readJsonLines(session);
+            assertEquals(List.of(
+                    Arrays.asList("accept", 1, name, "я"),
+                    Arrays.asList("accept", 2, "next", null)), session.calls, "chunk " + chunk);
+        }
+    }
+
+    private static List<String[]> readCsv(String text, int chunk) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        new CategoryTextReader(TextChannels.readable(text.getBytes(StandardCharsets.UTF_8), chunk))
+                .readCsv((index, values) -> {
+                    assertEquals(rows.size(), index);
+                    rows.add(values.clone()); // Массив переиспользуется читателем
+                });
+        return rows;
+    }
+
+    private static RecordingImportSession readJsonLines(String text) throws IOException {
+        RecordingImportSession session = new RecordingImportSession();
+        new CategoryTextReader(TextChannels.readable(text.getBytes(StandardCharsets.UTF_8))).readJsonLines(session);
+        return session;
+    }
+}
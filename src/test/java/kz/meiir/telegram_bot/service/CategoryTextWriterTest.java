@@ -0,0 +1,168 @@
+package kz.meiir.telegram_bot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты записи {@link CategoryTextWriter} и обратного чтения {@link CategoryTextReader}.
+ */
+class CategoryTextWriterTest {
+    private static final String[] HEADER = {"Операция", "Категория", "Родительская категория", "Прежний путь"};
+    private static final String[] KEYS = {"operation", "name", "parent", "previousPath"};
+    private static final String[][] TRICKY_ROWS = {
+            {"Добавление", "простая", null, null},
+            {"Удаление", "с, запятой", "\"кавычки\"", ""},
+            {"Перенос", "две\nстроки", "возврат\r\nкаретки", "таб\tи \\ слеш"},
+            {null, "управляющий \u0001 символ", "эмодзи \uD83D\uDE00", "ё/й/Ж"},
+    };
+
+    @Test
+    void writesCsv() throws IOException {
+        String text = write(CategoryFileFormat.CSV, new String[][]{{"a", null, "b,c", "d\"e"}});
+
+        assertEquals("Операция,Категория,Родительская категория,Прежний путь\na,,\"b,c\",\"d\"\"e\"\n", text);
+    }
+
+    @Test
+    void writesJsonLines() throws IOException {
+        String text = write(CategoryFileFormat.JSONL, new String[][]{{null, "a\"b", "c\nd", "\u001f"}});
+
+        assertEquals("{\"name\":\"a\\\"b\",\"parent\":\"c\\nd\",\"previousPath\":\"\\u001f\"}\n", text);
+    }
+
+    @Test
+    void rejectsXlsx() {
+        assertThrows(IllegalArgumentException.class, () -> new CategoryTextWriter(CategoryFileFormat.XLSX,
+                TextChannels.writable(new ByteArrayOutputStream()), HEADER, KEYS));
+    }
+
+    @Test
+    void csvRoundTrip() throws IOException {
+        String[][] rows = withManyRows(TRICKY_ROWS);
+        byte[] data = writeBytes(CategoryFileFormat.CSV, rows);
+
+        List<String[]> read = new ArrayList<>();
+        new CategoryTextReader(TextChannels.readable(data)).readCsv((index, values) -> read.add(values.clone()));
+
+        assertEquals(rows.length + 1, read.size());
+        assertArrayEquals(HEADER, read.getFirst());
+        for (int i = 0; i < rows.length; i++) {
+            assertArrayEquals(csvExpected(rows[i]), read.get(i + 1), "row " + i);
+        }
+    }
+
+    @Test
+    void jsonLinesRoundTrip() throws IOException {
+        String[][] rows = withManyRows(TRICKY_ROWS);
+        byte[] data = writeBytes(CategoryFileFormat.JSONL, rows);
+
+        RecordingImportSession session = new RecordingImportSession();
+        new CategoryTextReader(TextChannels.readable(data)).readJsonLines(session);
+
+        assertEquals(rows.length, session.calls.size());
+        for (int i = 0; i < rows.length; i++) {
+            String[] row = rows[i];
+            List<Object> expected = row[0] == null
+                    ? Arrays.asList("accept", i + 1, row[1], row[2])
+                    : Arrays.asList("change", i + 1, row[0], row[1], row[2], row[3]);
+            assertEquals(expected, session.calls.get(i), "row " + i);
+        }
+    }
+
+    @Test
+    void roundTripThroughPipe() throws Exception {
+        String[][] rows = withManyRows(TRICKY_ROWS);
+        Pipe pipe = Pipe.open();
+        // Запись и чтение идут одновременно: буфер канала меньше файла
+        CompletableFuture<Void> writing = CompletableFuture.runAsync(() -> {
+            try (Pipe.SinkChannel sink = pipe.sink()) {
+                CategoryTextWriter writer = new CategoryTextWriter(CategoryFileFormat.CSV, sink, HEADER, KEYS);
+                for (String[] row : rows) {
+                    writer.row(row);
+                }
+                writer.finish();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        List<String[]> read = new ArrayList<>();
+        try (Pipe.SourceChannel source = pipe.source()) {
+            new CategoryTextReader(source).readCsv((index, values) -> read.add(values.clone()));
+        }
+        writing.join();
+
+        assertEquals(rows.length + 1, read.size());
+        for (int i = 0; i < rows.length; i++) {
+            assertArrayEquals(csvExpected(rows[i]), read.get(i + 1), "row " + i);
+        }
+    }
+
+    @Test
+    void finishFlushesEverythingAndCanBeRepeated() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CategoryTextWriter writer = new CategoryTextWriter(CategoryFileFormat.JSONL,
+                TextChannels.writable(out), HEADER, KEYS);
+        writer.row(null, "первая");
+        writer.finish();
+        writer.row(null, "вторая \uD83D\uDE00");
+        writer.finish();
+
+        assertEquals("{\"name\":\"первая\"}\n{\"name\":\"вторая \uD83D\uDE00\"}\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Повторяет строки с длинными многобайтовыми значениями, чтобы файл пересекал границы
+     * буферов символов и байтов в произвольных местах, в том числе посередине суррогатной пары.
+     */
+    private static String[][] withManyRows(String[][] base) {
+        List<String[]> rows = new ArrayList<>(Arrays.asList(base));
+        for (int i = 0; i < 5000; i++) {
+            String name = "категория " + i + " \uD83D\uDE00".repeat(i % 7) + "я".repeat(i % 13);
+            rows.add(new String[]{null, name, i % 3 == 0 ? null : "родитель/" + (i / 3), null});
+            if (i % 500 == 0) {
+                rows.add(base[i / 500 % base.length].clone());
+            }
+        }
+        return rows.toArray(String[][]::new);
+    }
+
+    /**
+     * Пустые значения CSV читаются как {@code null}.
+     */
+    private static String[] csvExpected(String[] row) {
+        String[] expected = new String[row.length];
+        for (int i = 0; i < row.length; i++) {
+            expected[i] = row[i] == null || row[i].isEmpty() ? null : row[i];
+        }
+        return expected;
+    }
+
+    private static String write(CategoryFileFormat format, String[][] rows) throws IOException {
+        return new String(writeBytes(format, rows), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] writeBytes(CategoryFileFormat format, String[][] rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CategoryTextWriter writer = new CategoryTextWriter(format, TextChannels.writable(out), HEADER, KEYS);
+        for (String[] row : rows) {
+            writer.row(row);
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+}
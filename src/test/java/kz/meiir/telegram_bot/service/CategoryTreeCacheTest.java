@@ -0,0 +1,113 @@
+package kz.meiir.telegram_bot.service;
+
+import kz.meiir.telegram_bot.config.TelegramBotProperties;
+import kz.meiir.telegram_bot.model.CategoryChange;
+import kz.meiir.telegram_bot.model.CategoryTreeSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Тесты применения изменений к деревьям в {@link CategoryTreeCache}.
+ *
+ * <p>Деревья помещаются в кеш через {@link CategoryTreeCache#restore}, поэтому репозитории не нужны.</p>
+ */
+class CategoryTreeCacheTest {
+    private static final long CHAT_ID = 1;
+
+    private final CategoryTreeCache cache = new CategoryTreeCache(null, null, event -> {
+    }, new TelegramBotProperties());
+
+    @Test
+    void skipsAddedCategoryWhoseParentWasRemoved() {
+        restore(node(1, null, "a"), node(2, 1L, "b"));
+
+        // Удаление поддерева "a" дошло до кеша раньше добавления его потомков
+        cache.removed(CHAT_ID, 1L);
+        cache.added(CHAT_ID, List.of(node(4, 3L, "d"), node(3, 2L, "c"), node(5, null, "e")));
+
+        CategoryTreeSnapshot tree = cache.snapshot(CHAT_ID);
+        assertEquals(1, tree.size());
+        assertEquals(5, tree.id(tree.firstRoot()));
+    }
+
+    @Test
+    void addsChildrenOfParentsFromSameBatch() {
+        restore(node(1, null, "a"));
+
+        cache.added(CHAT_ID, List.of(node(2, 1L, "b"), node(3, 2L, "c")));
+
+        CategoryTreeSnapshot tree = cache.snapshot(CHAT_ID);
+        assertEquals(3, tree.size());
+        assertEquals(List.of("a", "b", "c"), tree.path(tree.indexOf(3)));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedTree() {
+        TelegramBotProperties properties = new TelegramBotProperties();
+        properties.setTreeCacheCapacity(2);
+        CategoryTreeCache small = new CategoryTreeCache(null, null, event -> {
+        }, properties);
+        CategoryTreeSnapshot tree = CategoryTreeSnapshot.of(List.of(node(1, null, "a")));
+        small.restore(1, tree, 100);
+        small.restore(2, tree, 100);
+
+        small.snapshot(1);
+        small.restore(3, tree, 100);
+
+        assertEquals(List.of(1L, 3L), small.loadedTrees().stream().map(CategoryTreeCache.LoadedTree::chatId).toList());
+    }
+
+    @Test
+    void skipsReplayedInsertOfCategoryRemovedAfterLogWasRead() {
+        restore(node(1, null, "a"));
+
+        // Журнал прочитан до удаления категории, но применяется после него
+        cache.added(CHAT_ID, node(2, 1L, "b"));
+        cache.removed(CHAT_ID, 2L);
+        cache.replay(List.of(insert(100, 2, 1L, "b")), 100, 110);
+        assertEquals(1, cache.snapshot(CHAT_ID).size());
+
+        // Долгая транзакция: добавление снова видно при следующем чтении журнала
+        cache.replay(List.of(insert(110, 2, 1L, "b")), 110, 120);
+        assertEquals(1, cache.snapshot(CHAT_ID).size());
+    }
+
+    @Test
+    void forgetsRemovedCategoryAfterReplayWithoutItsInsert() {
+        restore(node(1, null, "a"), node(2, 1L, "b"));
+
+        cache.removed(CHAT_ID, 2L);
+        cache.replay(List.of(), 100, 110); // Мог быть прочитан до удаления: категория ещё помнится
+        cache.replay(List.of(), 110, 120); // Прочитан после удаления: категория забывается
+
+        // Идентификаторы не переиспользуются; повторное добавление показывает, что категория забыта
+        cache.replay(List.of(insert(120, 2, 1L, "b")), 120, 130);
+        assertEquals(2, cache.snapshot(CHAT_ID).size());
+    }
+
+    @Test
+    void unloadsTreeWithUpdatedCategory() {
+        restore(node(1, null, "a"));
+        cache.restore(2, CategoryTreeSnapshot.of(List.of(node(10, null, "x"))), 100);
+
+        cache.replay(List.of(new CategoryChange(1, 100, CHAT_ID, 1, null, "c", "c", "a",
+                CategoryChange.Operation.UPDATE)), 100, 110);
+
+        assertEquals(List.of(2L), cache.loadedTrees().stream().map(CategoryTreeCache.LoadedTree::chatId).toList());
+    }
+
+    private void restore(CategoryTreeSnapshot.Node... nodes) {
+        cache.restore(CHAT_ID, CategoryTreeSnapshot.of(List.of(nodes)), 100);
+    }
+
+    private static CategoryChange insert(long xid, long id, Long parentId, String name) {
+        return new CategoryChange(xid, xid, CHAT_ID, id, parentId, name, name, null, CategoryChange.Operation.INSERT);
+    }
+
+    private static CategoryTreeSnapshot.Node node(long id, Long parentId, String name) {
+        return new CategoryTreeSnapshot.Node(id, parentId, name);
+    }
+}
@@ -0,0 +1,31 @@
+package kz.meiir.telegram_bot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сессия импорта, которая только запоминает переданные ей строки.
+ */
+class RecordingImportSession extends CategoryImportSession {
+    final List<List<Object>> calls = new ArrayList<>();
+
+    RecordingImportSession() {
+        super(0, null, null);
+    }
+
+    @Override
+    void accept(int rowNumber, String name, String parentPath) {
+        calls.add(Arrays.asList("accept", rowNumber, name, parentPath));
+    }
+
+    @Override
+    void acceptChange(int rowNumber, String operation, String name, String parentPath, String previousPath) {
+        calls.add(Arrays.asList("change", rowNumber, operation, name, parentPath, previousPath));
+    }
+
+    @Override
+    void malformed(int rowNumber, String reason) {
+        calls.add(Arrays.asList("malformed", rowNumber, reason));
+    }
+}
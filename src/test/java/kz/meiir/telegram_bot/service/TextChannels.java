@@ -0,0 +1,59 @@
+package kz.meiir.telegram_bot.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Каналы поверх массивов байтов для тестов потокового чтения и записи.
+ */
+final class TextChannels {
+
+    private TextChannels() {
+        // Утилитный класс
+    }
+
+    /**
+     * Канал, который за одно чтение отдаёт не больше {@code chunk} байтов.
+     * {@code Integer.MAX_VALUE} заполняет буфер читателя целиком, поэтому границы буфера
+     * совпадают с позициями в массиве.
+     */
+    static ReadableByteChannel readable(byte[] data, int chunk) {
+        ByteBuffer source = ByteBuffer.wrap(data);
+        return new ReadableByteChannel() {
+            private boolean open = true;
+
+            @Override
+            public int read(ByteBuffer dst) {
+                if (!source.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(chunk, Math.min(dst.remaining(), source.remaining()));
+                ByteBuffer slice = source.slice(source.position(), count);
+                dst.put(slice);
+                source.position(source.position() + count);
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return open;
+            }
+
+            @Override
+            public void close() {
+                open = false;
+            }
+        };
+    }
+
+    static ReadableByteChannel readable(byte[] data) {
+        return readable(data, Integer.MAX_VALUE);
+    }
+
+    static WritableByteChannel writable(ByteArrayOutputStream out) {
+        return Channels.newChannel(out);
+    }
+}